@@ -0,0 +1,214 @@
+package lando.systems.ld48.bake;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Base64Coder;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.XmlReader;
+import lando.systems.ld48.Config;
+import lando.systems.ld48.levels.CollisionBuilder;
+import lando.systems.ld48.levels.CollisionSidecar;
+import lando.systems.ld48.levels.LevelDescriptor;
+import lando.systems.ld48.levels.OccupancyGrid;
+import lando.systems.ld48.physics.Segment2D;
+import lando.systems.ld48.physics.TerrainField;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Offline collision bake, run with 'gradlew core:bakeLevels'.
+ *
+ * Reads every level map without a GL context (tmx through XmlReader, tilesets through ImageIO),
+ * classifies ramps the same way Level does from the tileset pixels, and writes a {@link CollisionSidecar} next to the map.
+ * Pass --fields to also bake each level's terrain distance field into its sidecar.
+ */
+public class LevelBake {
+
+    private static final int FLIP_FLAGS = 0xE0000000;
+
+    // where to sample a tile for transparency, in tileset image pixels
+    private static class TileImage {
+        BufferedImage image;
+        int x, y, width, height;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File assetsDir = new File("assets");
+        // terrain distance fields make the sidecars a lot bigger, so they're only baked when asked for
+        boolean fields = false;
+        for (String arg : args) {
+            if (arg.equals("--fields")) fields = true;
+            else assetsDir = new File(arg);
+        }
+
+        for (LevelDescriptor descriptor : LevelDescriptor.values()) {
+            if (descriptor.mapFileName.isEmpty()) continue;
+
+            File mapFile = new File(assetsDir, descriptor.mapFileName);
+            long start = System.nanoTime();
+            byte[] tmxBytes = Files.readAllBytes(mapFile.toPath());
+            CollisionBuilder builder = load(mapFile, tmxBytes);
+            Array<Segment2D> segments = builder.build();
+
+            CollisionSidecar sidecar = CollisionSidecar.of(tmxBytes, builder, segments);
+            if (fields) {
+                sidecar.field = bakeField(builder, segments);
+            }
+
+            File sidecarFile = new File(assetsDir, CollisionSidecar.pathFor(descriptor.mapFileName));
+            Files.write(sidecarFile.toPath(), sidecar.write());
+            System.out.println("Baked " + sidecarFile.getPath() + ": " + segments.size + " segments in " + (System.nanoTime() - start) / 1000000 + "ms");
+        }
+    }
+
+    private static TerrainField bakeField(CollisionBuilder builder, Array<Segment2D> segments) {
+        OccupancyGrid occupancy = new OccupancyGrid(builder.width, builder.height, builder.tileSize);
+        for (int y = 0; y < builder.height; y++) {
+            for (int x = 0; x < builder.width; x++) {
+                occupancy.set(x, y, builder.isSolid(x, y));
+            }
+        }
+        TerrainField field = new TerrainField(builder.width, builder.height, builder.tileSize, Config.terrainFieldResolution);
+        field.setSolids(occupancy, builder.rampTypes, new Array<>());
+        field.bake(0, 0, builder.width * builder.tileSize, builder.height * builder.tileSize, segments);
+        return field;
+    }
+
+    private static CollisionBuilder load(File mapFile, byte[] tmxBytes) throws IOException {
+        XmlReader.Element map = new XmlReader().parse(new ByteArrayInputStream(tmxBytes));
+        int tileWidth = map.getIntAttribute("tilewidth");
+
+        IntMap<TileImage> tiles = new IntMap<>();
+        for (XmlReader.Element tileset : map.getChildrenByName("tileset")) {
+            loadTileset(mapFile.getParentFile(), tileset, tiles);
+        }
+
+        XmlReader.Element collision = null;
+        for (XmlReader.Element layer : map.getChildrenByName("layer")) {
+            if (layer.getAttribute("name", "").equalsIgnoreCase("collision")) {
+                collision = layer;
+            }
+        }
+        if (collision == null) {
+            throw new GdxRuntimeException("Tilemap missing required layer: 'collision' in " + mapFile);
+        }
+
+        int width = collision.getIntAttribute("width");
+        int height = collision.getIntAttribute("height");
+        int[] ids = readLayerData(collision.getChildByName("data"), width * height);
+
+        CollisionBuilder builder = new CollisionBuilder(width, height, tileWidth);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int id = ids[col + row * width] & ~FLIP_FLAGS;
+                if (id == 0) continue;
+                TileImage tile = tiles.get(id);
+                if (tile == null) {
+                    throw new GdxRuntimeException("Unknown tile id " + id + " in " + mapFile);
+                }
+                // tmx rows run top down, the tile layer's run bottom up
+                builder.setCell(col, height - 1 - row, classify(tile));
+            }
+        }
+        return builder;
+    }
+
+    private static byte classify(TileImage tile) {
+        boolean openL = isClear(tile.image, tile.x, tile.y + tile.height / 2);
+        boolean openR = isClear(tile.image, tile.x + tile.width - 1, tile.y + tile.height / 2);
+        boolean openU = isClear(tile.image, tile.x + tile.width / 2, tile.y);
+        boolean openD = isClear(tile.image, tile.x + tile.width / 2, tile.y + tile.height - 1);
+        return CollisionBuilder.classifyRamp(openL, openR, openU, openD);
+    }
+
+    private static boolean isClear(BufferedImage image, int x, int y) {
+        return (image.getRGB(x, y) >>> 24) == 0;
+    }
+
+    private static void loadTileset(File dir, XmlReader.Element tileset, IntMap<TileImage> tiles) throws IOException {
+        int firstGid = tileset.getIntAttribute("firstgid", 1);
+        String source = tileset.getAttribute("source", null);
+        if (source != null) {
+            File tsxFile = new File(dir, source);
+            try (InputStream in = Files.newInputStream(tsxFile.toPath())) {
+                tileset = new XmlReader().parse(in);
+            }
+            dir = tsxFile.getParentFile();
+        }
+
+        int tileWidth = tileset.getIntAttribute("tilewidth");
+        int tileHeight = tileset.getIntAttribute("tileheight");
+        int spacing = tileset.getIntAttribute("spacing", 0);
+        int margin = tileset.getIntAttribute("margin", 0);
+
+        XmlReader.Element imageElement = tileset.getChildByName("image");
+        if (imageElement != null) {
+            BufferedImage image = ImageIO.read(new File(dir, imageElement.getAttribute("source")));
+            // same walk over the sheet as TmxMapLoader, so ids line up with the regions it hands out
+            int id = firstGid;
+            for (int y = margin; y <= image.getHeight() - tileHeight; y += tileHeight + spacing) {
+                for (int x = margin; x <= image.getWidth() - tileWidth; x += tileWidth + spacing) {
+                    TileImage tile = new TileImage();
+                    tile.image = image;
+                    tile.x = x;
+                    tile.y = y;
+                    tile.width = tileWidth;
+                    tile.height = tileHeight;
+                    tiles.put(id++, tile);
+                }
+            }
+        } else {
+            // image collection tileset, every tile brings its own picture
+            for (XmlReader.Element tileElement : tileset.getChildrenByName("tile")) {
+                XmlReader.Element tileImage = tileElement.getChildByName("image");
+                if (tileImage == null) continue;
+                TileImage tile = new TileImage();
+                tile.image = ImageIO.read(new File(dir, tileImage.getAttribute("source")));
+                tile.width = tile.image.getWidth();
+                tile.height = tile.image.getHeight();
+                tiles.put(firstGid + tileElement.getIntAttribute("id"), tile);
+            }
+        }
+    }
+
+    private static int[] readLayerData(XmlReader.Element data, int count) throws IOException {
+        int[] ids = new int[count];
+        String encoding = data.getAttribute("encoding", null);
+        if ("csv".equals(encoding)) {
+            String[] values = data.getText().trim().split(",");
+            for (int i = 0; i < count; i++) {
+                ids[i] = (int) Long.parseLong(values[i].trim());
+            }
+        } else if ("base64".equals(encoding)) {
+            byte[] bytes = Base64Coder.decodeLines(data.getText().trim());
+            String compression = data.getAttribute("compression", null);
+            InputStream in = new ByteArrayInputStream(bytes);
+            if ("gzip".equals(compression)) {
+                in = new GZIPInputStream(in);
+            } else if ("zlib".equals(compression)) {
+                in = new InflaterInputStream(in);
+            } else if (compression != null) {
+                throw new GdxRuntimeException("Unsupported tile layer compression: " + compression);
+            }
+            DataInputStream stream = new DataInputStream(in);
+            for (int i = 0; i < count; i++) {
+                // tile ids are stored little endian
+                ids[i] = Integer.reverseBytes(stream.readInt());
+            }
+            stream.close();
+        } else {
+            throw new GdxRuntimeException("Unsupported tile layer encoding: " + encoding);
+        }
+        return ids;
+    }
+
+}
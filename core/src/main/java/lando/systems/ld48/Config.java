@@ -8,4 +8,18 @@ public class Config {
     public static final int worldHeight = 180;
     public static final boolean debugShaders = true;
     public static final boolean showLaunchScreen = false;
+
+    // simulation runs at a fixed rate, rendering interpolates between the last two ticks
+    public static final int tickRate = 60;
+    public static final float tickStep = 1f / tickRate;
+    // ticks allowed per frame before the backlog gets dropped, keeps a long hitch from snowballing
+    public static final int maxTicksPerFrame = 5;
+
+    // levels with the 'streaming' map property only keep regions (of this many tiles square) near the camera and player loaded
+    public static final int streamingRegionSize = 32;
+    // most regions resident at once, their collision segments and tile caches are what counts against memory
+    public static final int streamingRegionBudget = 24;
+
+    // terrain distance field samples per tile edge, particles collide against it
+    public static final int terrainFieldResolution = 4;
 }
@@ -16,6 +16,7 @@ import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Disposable;
+import lando.systems.ld48.levels.LevelLoader;
 import lando.systems.ld48.screens.BaseScreen;
 import lando.systems.ld48.screens.LaunchScreen;
 import lando.systems.ld48.screens.TitleScreen;
@@ -24,13 +25,24 @@ import lando.systems.ld48.utils.accessors.*;
 
 public class Game extends ApplicationAdapter {
 
+    public final Platform platform;
+
     public Assets assets;
+    public LevelLoader levelLoader;
     public Audio audio;
     public TweenManager tween;
 
     private BaseScreen screen;
     private ScreenTransition screenTransition;
 
+    public Game() {
+        this(new Platform());
+    }
+
+    public Game(Platform platform) {
+        this.platform = platform;
+    }
+
     @Override
     public void create() {
         Time.init();
@@ -45,6 +57,7 @@ public class Game extends ApplicationAdapter {
         Tween.registerAccessor(OrthographicCamera.class, new CameraAccessor());
 
         assets = new Assets();
+        levelLoader = new LevelLoader(assets.mgr, platform);
 
         audio = new Audio(this);
 
@@ -85,6 +98,23 @@ public class Game extends ApplicationAdapter {
         tween.update(Time.delta);
         audio.update(Time.delta);
         screen.update(Time.delta);
+
+        // step the simulation at a fixed rate, whatever is left over carries into the next frame
+        Time.tick_accumulator += Time.delta;
+        int ticks = 0;
+        while (Time.tick_accumulator >= Config.tickStep) {
+            if (ticks == Config.maxTicksPerFrame) {
+                Time.tick_accumulator %= Config.tickStep;
+                break;
+            }
+            screen.fixedUpdate(Config.tickStep);
+            if (screenTransition.active) {
+                screenTransition.next.fixedUpdate(Config.tickStep);
+            }
+            Time.tick_accumulator -= Config.tickStep;
+            ticks++;
+        }
+        Time.tick_alpha = Time.tick_accumulator / Config.tickStep;
     }
 
     @Override
@@ -106,6 +136,7 @@ public class Game extends ApplicationAdapter {
         screenTransition.dispose();
         audio.dispose();
         assets.dispose();
+        platform.dispose();
     }
 
     public BaseScreen getScreen() {
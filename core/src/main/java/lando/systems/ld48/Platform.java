@@ -0,0 +1,45 @@
+package lando.systems.ld48;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hooks for things only some backends can do, the defaults here work everywhere (including html).
+ * Launchers that can do better pass a subclass into the Game constructor.
+ */
+public class Platform implements Disposable {
+
+    public interface Task {
+        void run(int index);
+    }
+
+    /**
+     * How many tasks {@link #runAll(int, Task)} can usefully run at the same time
+     */
+    public int getParallelism() {
+        return 1;
+    }
+
+    /**
+     * Run task indices 0..count-1 and return once all of them have finished.
+     * Tasks may run concurrently, so each index must only touch its own state.
+     */
+    public void runAll(int count, Task task) {
+        for (int i = 0; i < count; i++) {
+            task.run(i);
+        }
+    }
+
+    /**
+     * The whole file as a read only buffer, backends that can memory map files do that instead of copying
+     */
+    public ByteBuffer mapFile(FileHandle file) {
+        return ByteBuffer.wrap(file.readBytes());
+    }
+
+    @Override
+    public void dispose() {}
+
+}
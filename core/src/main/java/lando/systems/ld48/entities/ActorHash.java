@@ -0,0 +1,134 @@
+package lando.systems.ld48.entities;
+
+import com.badlogic.gdx.math.Circle;
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Spatial hash over the actors projectiles can hit, rebuilt from scratch every tick once everything has moved.
+ *
+ * Grid cells are hashed into a fixed number of buckets and the rebuild is a counting sort: count how many actors
+ * cover each bucket, turn the counts into offsets, then drop the actor indices into one flat array. A query only
+ * looks at the buckets under it instead of at every actor. Different cells can share a bucket, so an actor can come
+ * up for a query it isn't near, the exact bounds test sorts that out. Nothing allocates once the arrays have grown.
+ *
+ * The cells and bucket hash are shared with {@link EntityIndex}, which keeps the whole entity store bucketed
+ * incrementally for the overlap queries; this stays the per-tick broadphase for the projectile pass.
+ */
+public class ActorHash {
+
+    public static final int TEAM_PLAYER = 1;
+    public static final int TEAM_ENEMY  = 1 << 1;
+
+    public static final float CELL_SIZE = 64f;
+    // power of two, a lot more than there are ever actors on screen so buckets are mostly one actor or empty
+    static final int BUCKETS = 1024;
+
+    private final Array<GameEntity> actors = new Array<>(false, 64);
+    private final IntArray teams = new IntArray(false, 64);
+
+    // actor indices grouped by bucket, bucket b is entries[bucketStart[b] .. bucketStart[b + 1])
+    private final int[] bucketStart = new int[BUCKETS + 1];
+    private final int[] cursor = new int[BUCKETS];
+    private int[] entries = new int[128];
+
+    /**
+     * Forget last tick's actors, add this tick's and then {@link #build()}
+     */
+    public void begin() {
+        actors.clear();
+        teams.clear();
+    }
+
+    public void add(GameEntity actor, int team) {
+        actors.add(actor);
+        teams.add(team);
+    }
+
+    public void build() {
+        Arrays.fill(bucketStart, 0);
+        int total = 0;
+        for (int i = 0; i < actors.size; i++) {
+            Rectangle r = actors.get(i).collisionBounds;
+            int x0 = cell(r.x), x1 = cell(r.x + r.width);
+            int y0 = cell(r.y), y1 = cell(r.y + r.height);
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    bucketStart[bucket(x, y) + 1]++;
+                    total++;
+                }
+            }
+        }
+        for (int b = 0; b < BUCKETS; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        if (entries.length < total) {
+            entries = new int[Math.max(total, entries.length * 2)];
+        }
+
+        System.arraycopy(bucketStart, 0, cursor, 0, BUCKETS);
+        for (int i = 0; i < actors.size; i++) {
+            Rectangle r = actors.get(i).collisionBounds;
+            int x0 = cell(r.x), x1 = cell(r.x + r.width);
+            int y0 = cell(r.y), y1 = cell(r.y + r.height);
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    entries[cursor[bucket(x, y)]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * The first actor on one of the given teams whose bounds contain the point, in the order they were added, or null
+     */
+    public GameEntity firstAt(float x, float y, int teamMask) {
+        int b = bucket(cell(x), cell(y));
+        // entries within a bucket went in by actor index, so the first match is the earliest added
+        for (int e = bucketStart[b]; e < bucketStart[b + 1]; e++) {
+            int i = entries[e];
+            if ((teams.items[i] & teamMask) == 0) continue;
+            GameEntity actor = actors.get(i);
+            if (actor.collisionBounds.contains(x, y)) return actor;
+        }
+        return null;
+    }
+
+    /**
+     * Any actor on one of the given teams whose bounds overlap the circle, or null
+     */
+    public GameEntity firstOverlapping(Circle circle, int teamMask) {
+        int x0 = cell(circle.x - circle.radius), x1 = cell(circle.x + circle.radius);
+        int y0 = cell(circle.y - circle.radius), y1 = cell(circle.y + circle.radius);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int b = bucket(x, y);
+                for (int e = bucketStart[b]; e < bucketStart[b + 1]; e++) {
+                    int i = entries[e];
+                    if ((teams.items[i] & teamMask) == 0) continue;
+                    GameEntity actor = actors.get(i);
+                    if (Intersector.overlaps(circle, actor.collisionBounds)) return actor;
+                }
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return actors.size;
+    }
+
+    static int cell(float v) {
+        return MathUtils.floor(v / CELL_SIZE);
+    }
+
+    static int bucket(int x, int y) {
+        return ((x * 73856093) ^ (y * 19349663)) & (BUCKETS - 1);
+    }
+
+}
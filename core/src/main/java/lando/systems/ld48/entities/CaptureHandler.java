@@ -1,6 +1,7 @@
 package lando.systems.ld48.entities;
 
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Array;
 import lando.systems.ld48.Audio;
 import lando.systems.ld48.screens.GameScreen;
@@ -9,11 +10,16 @@ public class CaptureHandler {
 
     private final float CAPTURE_TIME = 1.0f;
     private final float RELEASE_TIME = 0.5f;
+    // how far an enemy's center can be from the player's, and its feet from the player's, to be captured
+    private final float CAPTURE_REACH_X = 20f;
+    private final float CAPTURE_REACH_Y = 10f;
 
     private Player player;
     private GameScreen screen;
 
     private Array<EnemyEntity> nearbyCapturing = new Array<>();
+    private Array<EnemyEntity> candidates = new Array<>();
+    private Rectangle reach = new Rectangle();
     private float captureTimer = 0f;
 
     public CaptureHandler(Player p, GameScreen screen) {
@@ -21,28 +27,42 @@ public class CaptureHandler {
         this.screen = screen;
     }
 
-    public void beginCapture(Array<EnemyEntity> enemies) {
+    public void beginCapture() {
         if (player.capturing) { return; }
         if (player.capturedEnemy == null) {
             screen.game.audio.playSound(Audio.Sounds.capture);
             nearbyCapturing.clear();
-            for (EnemyEntity enemy : enemies) {
-                // possibly check for enemy closest to center to select
-                if (Math.abs((enemy.collisionBounds.x + enemy.collisionBounds.width/2) - (player.collisionBounds.x + player.collisionBounds.width/2)) <= 20
-                    && Math.abs((enemy.collisionBounds.y) - (player.collisionBounds.y)) <= 10) {
-                    nearbyCapturing.add(enemy);
-                    enemy.targeted = true;
-                    // this makes the array unnecessary, but if we want multiple possible targets, remove break and
-                    // un target all enemies when capturing
-                    break;
+
+            // anything in reach overlaps this, with a pixel to spare since touching doesn't count as overlapping
+            Rectangle bounds = player.collisionBounds;
+            float centerX = bounds.x + bounds.width / 2;
+            reach.set(centerX - CAPTURE_REACH_X - 1, bounds.y - CAPTURE_REACH_Y - 1, 2 * (CAPTURE_REACH_X + 1), 2 * (CAPTURE_REACH_Y + 1));
+            screen.entities.overlapping(reach, EntityStore.Group.enemy, candidates);
+
+            // the enemy closest to center is the one that gets captured
+            EnemyEntity target = null;
+            float targetDistance = Float.MAX_VALUE;
+            for (int i = 0; i < candidates.size; i++) {
+                EnemyEntity enemy = candidates.get(i);
+                if (!inReach(enemy)) continue;
+                float distance = Math.abs((enemy.collisionBounds.x + enemy.collisionBounds.width / 2) - centerX);
+                if (distance < targetDistance) {
+                    target = enemy;
+                    targetDistance = distance;
                 }
             }
+            candidates.clear();
+            if (target != null) {
+                // if we want multiple possible targets, add them all here and un target all enemies when capturing
+                nearbyCapturing.add(target);
+                target.targeted = true;
+            }
         }
         captureTimer = 0f;
         player.capturing = (player.capturedEnemy != null || nearbyCapturing.size != 0);
     }
 
-    public void updateCapture(float dt, Array<EnemyEntity> enemies) {
+    public void updateCapture(float dt) {
         if (!player.capturing) { return; }
 
         captureTimer += dt;
@@ -55,10 +75,9 @@ public class CaptureHandler {
             Array.ArrayIterator<EnemyEntity> e = nearbyCapturing.iterator();
             while (e.hasNext()) {
                 EnemyEntity enemy = e.next();
-                if (Math.abs((enemy.collisionBounds.x + enemy.collisionBounds.width/2) - (player.collisionBounds.x + player.collisionBounds.width/2)) > 20
-                        || Math.abs((enemy.collisionBounds.y) - (player.collisionBounds.y)) > 10
+                if (!inReach(enemy)
                         || enemy.dead
-                        || !enemies.contains(enemy, true)) {
+                        || !screen.entities.has(enemy, EntityStore.Group.enemy)) {
                     enemy.targeted = false;
                     e.remove();
                 }
@@ -90,6 +109,11 @@ public class CaptureHandler {
         player.captureProgress = MathUtils.clamp(captureTimer / maxTime, 0, 1);
     }
 
+    private boolean inReach(EnemyEntity enemy) {
+        return Math.abs((enemy.collisionBounds.x + enemy.collisionBounds.width/2) - (player.collisionBounds.x + player.collisionBounds.width/2)) <= CAPTURE_REACH_X
+            && Math.abs((enemy.collisionBounds.y) - (player.collisionBounds.y)) <= CAPTURE_REACH_Y;
+    }
+
     private void captureEnemy(EnemyEntity enemy) {
         enemy.removeFromScreen();
         player.possess(enemy);
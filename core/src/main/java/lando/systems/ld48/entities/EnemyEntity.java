@@ -4,14 +4,13 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.collision.Ray;
-import com.badlogic.gdx.utils.Array;
 import lando.systems.ld48.Config;
-import lando.systems.ld48.levels.SpawnInteractable;
+import lando.systems.ld48.levels.OccupancyGrid;
+import lando.systems.ld48.physics.RaycastHit;
 import lando.systems.ld48.screens.GameScreen;
 
 public class EnemyEntity extends MovableEntity {
@@ -49,17 +48,11 @@ public class EnemyEntity extends MovableEntity {
     @Override
     public void addToScreen(float x, float y) {
         super.addToScreen(x, y);
-        screen.enemies.add(this);
+        screen.entities.join(this, EntityStore.Group.enemy);
     }
 
-    @Override
-    public void removeFromScreen() {
-        super.removeFromScreen();
-        screen.enemies.removeValue(this, true);
-    }
-
-    Array<Rectangle> tiles = new Array<>();
     Vector2 shootRay = new Vector2();
+    RaycastHit shotHit = new RaycastHit();
     Rectangle testRectangle = new Rectangle();
     @Override
     public void update(float dt) {
@@ -69,51 +62,39 @@ public class EnemyEntity extends MovableEntity {
         boolean flip = false;
 
 
-        screen.level.getTiles(collisionBounds.x, collisionBounds.y, collisionBounds.x + collisionBounds.width, collisionBounds.y - 4, tiles);
-        if (tiles.size == 0) {
+        OccupancyGrid occupancy = screen.level.getOccupancy();
+        if (!occupancy.anySolid(collisionBounds.x, collisionBounds.y, collisionBounds.x + collisionBounds.width, collisionBounds.y - 4)) {
             velocity.x = 0;
             setGrounded(false);
         }
 
         if (direction == Direction.left){
-            screen.level.getTiles(collisionBounds.x, collisionBounds.y, collisionBounds.x - 10, collisionBounds.y + collisionBounds.height, tiles);
-            if (tiles.size > 0) {
+            if (occupancy.anySolid(collisionBounds.x, collisionBounds.y, collisionBounds.x - 10, collisionBounds.y + collisionBounds.height)) {
                 velocity.x = 0;
                 flip = true;
             }
-            screen.level.getTiles(collisionBounds.x, collisionBounds.y - 15, collisionBounds.x - 10, collisionBounds.y - 1, tiles);
-            if (tiles.size == 0) {
+            if (!occupancy.anySolid(collisionBounds.x, collisionBounds.y - 15, collisionBounds.x - 10, collisionBounds.y - 1)) {
                 velocity.x = 0;
                 flip = true;
             }
             testRectangle.set(collisionBounds.x - 10, collisionBounds.y, collisionBounds.width, collisionBounds.height);
-            for (InteractableEntity interactable : screen.interactables){
-                if (interactable.type == SpawnInteractable.Type.door){
-                    if (interactable.collisionBounds.overlaps(testRectangle)){
-                        velocity.x = 0;
-                        flip = true;
-                    }
-                }
+            if (screen.entities.anyOverlapping(testRectangle, EntityStore.Group.door)) {
+                velocity.x = 0;
+                flip = true;
             }
         } else {
-            screen.level.getTiles(collisionBounds.x + collisionBounds.width, collisionBounds.y, collisionBounds.x +collisionBounds.width + 10, collisionBounds.y + collisionBounds.height, tiles);
-            if (tiles.size > 0) {
+            if (occupancy.anySolid(collisionBounds.x + collisionBounds.width, collisionBounds.y, collisionBounds.x +collisionBounds.width + 10, collisionBounds.y + collisionBounds.height)) {
                 velocity.x = 0;
                 flip = true;
             }
-            screen.level.getTiles(collisionBounds.x + collisionBounds.width, collisionBounds.y - 15, collisionBounds.x +collisionBounds.width + 10, collisionBounds.y - 1, tiles);
-            if (tiles.size == 0) {
+            if (!occupancy.anySolid(collisionBounds.x + collisionBounds.width, collisionBounds.y - 15, collisionBounds.x +collisionBounds.width + 10, collisionBounds.y - 1)) {
                 velocity.x = 0;
                 flip = true;
             }
             testRectangle.set(collisionBounds.x + 10, collisionBounds.y, collisionBounds.width, collisionBounds.height);
-            for (InteractableEntity interactable : screen.interactables){
-                if (interactable.type == SpawnInteractable.Type.door){
-                    if (interactable.collisionBounds.overlaps(testRectangle)){
-                        velocity.x = 0;
-                        flip = true;
-                    }
-                }
+            if (screen.entities.anyOverlapping(testRectangle, EntityStore.Group.door)) {
+                velocity.x = 0;
+                flip = true;
             }
         }
 
@@ -129,7 +110,7 @@ public class EnemyEntity extends MovableEntity {
             } else {
                 shootRay.set(position.x + 200, position.y);
             }
-            if (attackDelay <= 0 && screen.player.capturedEnemy != null && Intersector.intersectSegmentRectangle(position, shootRay, screen.player.collisionBounds)) {
+            if (attackDelay <= 0 && screen.player.capturedEnemy != null && screen.physicsSystem.firstHit(position, shootRay, screen.player.collisionBounds, shotHit)) {
                 attack();
                 attackDelay += MathUtils.random(3f) + 2f;
             }
@@ -0,0 +1,97 @@
+package lando.systems.ld48.entities;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Which cells of a uniform grid each EntityStore slot's bounds cover, kept up to date as entities move instead of
+ * being rebuilt. Cells are hashed into a fixed number of buckets so the grid doesn't need to know how big the level
+ * is, and an entity only gets re-bucketed when the range of cells it covers changes, which for most entities on most
+ * ticks it doesn't.
+ *
+ * Queries hand back candidate slots, different cells can share a bucket so callers still test the actual bounds.
+ * Cells and buckets are the same as {@link ActorHash}'s.
+ */
+class EntityIndex {
+
+    // bounds are re-bucketed once a tick, pad queries by about a tick's worth of movement so nothing slips between
+    private static final float QUERY_MARGIN = 24f;
+
+    private final IntArray[] buckets = new IntArray[ActorHash.BUCKETS];
+
+    // per slot, the cell range it's bucketed under, x0 > x1 when it isn't in the index
+    private int[] x0 = new int[0], y0 = new int[0];
+    private int[] x1 = new int[0], y1 = new int[0];
+    // per slot, the query that last reported it, so a slot in several cells comes back once
+    private int[] stamps = new int[0];
+    private int stamp;
+
+    void ensureCapacity(int capacity) {
+        if (capacity <= x0.length) return;
+        int oldCapacity = x0.length;
+        x0 = Arrays.copyOf(x0, capacity);
+        y0 = Arrays.copyOf(y0, capacity);
+        x1 = Arrays.copyOf(x1, capacity);
+        y1 = Arrays.copyOf(y1, capacity);
+        stamps = Arrays.copyOf(stamps, capacity);
+        Arrays.fill(x1, oldCapacity, capacity, -1);
+    }
+
+    /**
+     * Put a slot under the cells its bounds cover, does nothing if they're the ones it's already under
+     */
+    void update(int slot, Rectangle bounds) {
+        int cx0 = ActorHash.cell(bounds.x), cx1 = ActorHash.cell(bounds.x + bounds.width);
+        int cy0 = ActorHash.cell(bounds.y), cy1 = ActorHash.cell(bounds.y + bounds.height);
+        if (cx0 == x0[slot] && cx1 == x1[slot] && cy0 == y0[slot] && cy1 == y1[slot]) return;
+
+        remove(slot);
+        x0[slot] = cx0; x1[slot] = cx1;
+        y0[slot] = cy0; y1[slot] = cy1;
+        for (int y = cy0; y <= cy1; y++) {
+            for (int x = cx0; x <= cx1; x++) {
+                int b = ActorHash.bucket(x, y);
+                if (buckets[b] == null) {
+                    buckets[b] = new IntArray(false, 8);
+                }
+                buckets[b].add(slot);
+            }
+        }
+    }
+
+    void remove(int slot) {
+        for (int y = y0[slot]; y <= y1[slot]; y++) {
+            for (int x = x0[slot]; x <= x1[slot]; x++) {
+                buckets[ActorHash.bucket(x, y)].removeValue(slot);
+            }
+        }
+        x0[slot] = 0;
+        x1[slot] = -1;
+    }
+
+    /**
+     * Every slot bucketed near the area, each once, the bounds still need testing
+     */
+    IntArray query(float minX, float minY, float maxX, float maxY, IntArray out) {
+        out.clear();
+        stamp++;
+        int qx0 = ActorHash.cell(minX - QUERY_MARGIN), qx1 = ActorHash.cell(maxX + QUERY_MARGIN);
+        int qy0 = ActorHash.cell(minY - QUERY_MARGIN), qy1 = ActorHash.cell(maxY + QUERY_MARGIN);
+        for (int y = qy0; y <= qy1; y++) {
+            for (int x = qx0; x <= qx1; x++) {
+                IntArray bucket = buckets[ActorHash.bucket(x, y)];
+                if (bucket == null) continue;
+                for (int i = 0; i < bucket.size; i++) {
+                    int slot = bucket.items[i];
+                    if (stamps[slot] == stamp) continue;
+                    stamps[slot] = stamp;
+                    out.add(slot);
+                }
+            }
+        }
+        return out;
+    }
+
+}
@@ -0,0 +1,253 @@
+package lando.systems.ld48.entities;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import lando.systems.ld48.physics.PhysicsComponent;
+
+import java.util.Arrays;
+
+/**
+ * Every entity that's live on the game screen, and which groups it's in.
+ *
+ * An entity gets a slot and a handle the first time it joins a group. The handle is the slot plus the slot's
+ * generation, and the generation goes up when the entity is removed, so a handle held on to after that resolves
+ * to nothing instead of to whatever gets the slot next.
+ *
+ * Each group is a dense array of its members that systems loop over directly. Leaving a group moves its last
+ * member into the hole, so it's O(1) but the order within a group isn't stable. Loop backwards over a group if
+ * the loop body can remove the current member.
+ *
+ * Everything in the store is also in a spatial index by its collision bounds, for "which members of this group
+ * overlap here" queries that don't have to look at the whole group. Entities are re-indexed when they're placed and
+ * once a tick after physics, see {@link #moved(GameEntity)} and {@link #reindex()}.
+ */
+public class EntityStore {
+
+    public enum Group { physics, enemy, pickup, interactable, door }
+
+    public static final int NO_HANDLE = -1;
+
+    private static final int SLOT_BITS = 20;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - SLOT_BITS)) - 1;
+
+    // dense groups, read them but change membership through join / leave / remove
+    public final Array<PhysicsComponent> physics = new Array<>(false, 64);
+    public final Array<EnemyEntity> enemies = new Array<>(false, 32);
+    public final Array<PickupEntity> pickups = new Array<>(false, 32);
+    public final Array<InteractableEntity> interactables = new Array<>(false, 16);
+    public final Array<InteractableEntity> doors = new Array<>(false, 8);
+
+    // indexed by group ordinal, the groups hold different entity types so there's no one element type to give it
+    @SuppressWarnings("rawtypes")
+    private final Array[] members = { physics, enemies, pickups, interactables, doors };
+    private static final Group[] groups = Group.values();
+
+    // per slot: the entity in it, its generation, and where it sits in each group (-1 when not a member)
+    private GameEntity[] entities = new GameEntity[64];
+    private int[] generations = new int[64];
+    private int[][] positions = new int[groups.length][64];
+    private int slots;
+    private final IntArray freeSlots = new IntArray();
+
+    private final EntityIndex index = new EntityIndex();
+    private final IntArray querySlots = new IntArray();
+
+    public EntityStore() {
+        for (int[] position : positions) {
+            Arrays.fill(position, -1);
+        }
+        index.ensureCapacity(entities.length);
+    }
+
+    /**
+     * The entity a handle refers to, or null if it has been removed since
+     */
+    public GameEntity get(int handle) {
+        if (handle == NO_HANDLE) return null;
+        int slot = handle & SLOT_MASK;
+        if (slot >= slots || generations[slot] != (handle >>> SLOT_BITS)) return null;
+        return entities[slot];
+    }
+
+    public boolean isLive(int handle) {
+        return get(handle) != null;
+    }
+
+    public boolean isLive(GameEntity entity) {
+        return slotOf(entity) != -1;
+    }
+
+    public boolean has(GameEntity entity, Group group) {
+        int slot = slotOf(entity);
+        return slot != -1 && positions[group.ordinal()][slot] != -1;
+    }
+
+    /**
+     * Add an entity to a group, giving it a slot and handle first if it isn't in the store yet. Joining twice does nothing.
+     */
+    @SuppressWarnings("unchecked")
+    public void join(GameEntity entity, Group group) {
+        int slot = slotOf(entity);
+        if (slot == -1) {
+            slot = allocate(entity);
+        }
+        int[] position = positions[group.ordinal()];
+        if (position[slot] != -1) return;
+
+        Array<GameEntity> list = members[group.ordinal()];
+        position[slot] = list.size;
+        list.add(entity);
+    }
+
+    /**
+     * Take an entity out of one group, it keeps its handle and any other groups
+     */
+    public void leave(GameEntity entity, Group group) {
+        int slot = slotOf(entity);
+        if (slot != -1) {
+            leave(slot, group.ordinal());
+        }
+    }
+
+    /**
+     * Take an entity out of every group and retire its handle
+     */
+    public void remove(GameEntity entity) {
+        int slot = slotOf(entity);
+        if (slot == -1) return;
+
+        for (int group = 0; group < groups.length; group++) {
+            leave(slot, group);
+        }
+        index.remove(slot);
+        entities[slot] = null;
+        generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+        freeSlots.add(slot);
+        entity.handle = NO_HANDLE;
+    }
+
+    /**
+     * Re-index an entity whose bounds changed, cheap when it's still over the same cells
+     */
+    public void moved(GameEntity entity) {
+        int slot = slotOf(entity);
+        if (slot != -1) {
+            index.update(slot, entity.collisionBounds);
+        }
+    }
+
+    /**
+     * Re-index everything, once a tick after physics has moved things
+     */
+    public void reindex() {
+        for (int slot = 0; slot < slots; slot++) {
+            GameEntity entity = entities[slot];
+            if (entity != null) {
+                entity.updateBounds();
+                index.update(slot, entity.collisionBounds);
+            }
+        }
+    }
+
+    /**
+     * Members of a group whose collision bounds overlap the area, in no particular order. The output is typed by
+     * whatever the group holds, eg. EnemyEntity for Group.enemy.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends GameEntity> Array<T> overlapping(Rectangle area, Group group, Array<T> out) {
+        out.clear();
+        int[] position = positions[group.ordinal()];
+        index.query(area.x, area.y, area.x + area.width, area.y + area.height, querySlots);
+        for (int i = 0; i < querySlots.size; i++) {
+            int slot = querySlots.items[i];
+            if (position[slot] == -1) continue;
+            GameEntity entity = entities[slot];
+            if (area.overlaps(entity.collisionBounds)) {
+                out.add((T) entity);
+            }
+        }
+        return out;
+    }
+
+    public boolean anyOverlapping(Rectangle area, Group group) {
+        int[] position = positions[group.ordinal()];
+        index.query(area.x, area.y, area.x + area.width, area.y + area.height, querySlots);
+        for (int i = 0; i < querySlots.size; i++) {
+            int slot = querySlots.items[i];
+            if (position[slot] != -1 && area.overlaps(entities[slot].collisionBounds)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * How many entities hold a slot right now
+     */
+    public int size() {
+        return slots - freeSlots.size;
+    }
+
+    // ------------------------------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    private void leave(int slot, int group) {
+        int[] position = positions[group];
+        int index = position[slot];
+        if (index == -1) return;
+
+        // the last member fills the hole
+        Array<GameEntity> list = members[group];
+        GameEntity last = list.pop();
+        if (index < list.size) {
+            list.set(index, last);
+            position[last.handle & SLOT_MASK] = index;
+        }
+        position[slot] = -1;
+    }
+
+    private int allocate(GameEntity entity) {
+        int slot;
+        if (freeSlots.size > 0) {
+            slot = freeSlots.pop();
+        } else {
+            slot = slots++;
+            if (slot > SLOT_MASK) {
+                throw new IllegalStateException("EntityStore is out of slots");
+            }
+            ensureCapacity(slots);
+        }
+        entities[slot] = entity;
+        entity.handle = (generations[slot] << SLOT_BITS) | slot;
+        index.update(slot, entity.collisionBounds);
+        return slot;
+    }
+
+    // a handle from another store (the previous level's) or a retired one doesn't count
+    private int slotOf(GameEntity entity) {
+        int handle = entity.handle;
+        if (handle == NO_HANDLE) return -1;
+        int slot = handle & SLOT_MASK;
+        if (slot >= slots || entities[slot] != entity || generations[slot] != (handle >>> SLOT_BITS)) return -1;
+        return slot;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= entities.length) return;
+        int capacity = Math.max(size, entities.length * 2);
+        GameEntity[] newEntities = new GameEntity[capacity];
+        System.arraycopy(entities, 0, newEntities, 0, entities.length);
+        entities = newEntities;
+        int[] newGenerations = new int[capacity];
+        System.arraycopy(generations, 0, newGenerations, 0, generations.length);
+        generations = newGenerations;
+        for (int group = 0; group < positions.length; group++) {
+            int[] newPositions = new int[capacity];
+            Arrays.fill(newPositions, -1);
+            System.arraycopy(positions[group], 0, newPositions, 0, positions[group].length);
+            positions[group] = newPositions;
+        }
+        index.ensureCapacity(capacity);
+    }
+
+}
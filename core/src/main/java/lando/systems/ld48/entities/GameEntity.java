@@ -7,7 +7,9 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.utils.Array;
 import lando.systems.ld48.Assets;
+import lando.systems.ld48.physics.ContactCache;
 import lando.systems.ld48.physics.PhysicsComponent;
+import lando.systems.ld48.physics.SleepState;
 import lando.systems.ld48.screens.GameScreen;
 
 public class GameEntity implements PhysicsComponent {
@@ -36,6 +38,8 @@ public class GameEntity implements PhysicsComponent {
     public Direction direction = Direction.right;
 
     public Vector2 position = new Vector2();
+    // position as of the previous simulation tick, rendering blends from here towards position
+    public Vector2 previousPosition = new Vector2();
     public Vector2 velocity = new Vector2();
     public Vector2 acceleration = new Vector2();
     public float bounceScale = 0.8f;
@@ -46,6 +50,11 @@ public class GameEntity implements PhysicsComponent {
     public Circle collisionCircle = new Circle();
 
     public Vector3 impulse = new Vector3();
+    // slot and generation in the screen's EntityStore, see EntityStore
+    public int handle = EntityStore.NO_HANDLE;
+    private final ContactCache contactCache = new ContactCache();
+    private final SleepState sleepState = new SleepState();
+    private final Vector2 moveRemainder = new Vector2();
 
     private boolean grounded;
 
@@ -105,6 +114,8 @@ public class GameEntity implements PhysicsComponent {
     }
 
     public void update(float dt) {
+        previousPosition.set(position);
+
         if (dead) {
             removeFromScreen();
             return;
@@ -155,11 +166,14 @@ public class GameEntity implements PhysicsComponent {
 
     public void addToScreen(float x, float y) {
         setPosition(x, y);
-        screen.physicsEntities.add(this);
+        screen.entities.join(this, EntityStore.Group.physics);
     }
 
+    /**
+     * Leaves every group it's in, subclasses don't need to take themselves out of theirs
+     */
     public void removeFromScreen() {
-        screen.physicsEntities.removeValue(this, true);
+        screen.entities.remove(this);
     }
 
     public void updateBounds() {
@@ -174,10 +188,16 @@ public class GameEntity implements PhysicsComponent {
 
     public void setPosition(float x, float y) {
         position.set(x, y);
+        // placed, not moved, so don't smear the jump across a frame
+        previousPosition.set(x, y);
         imageBounds.setPosition(x - imageBounds.width / 2f, y - collisionBounds.height / 2f);
         collisionBounds.setPosition(x - collisionBounds.width / 2f, y - collisionBounds.height / 2f);
         collisionCircle.setPosition(x, y);
         collisionCircle.setRadius(collisionBounds.width / 2f);
+        // the player gets placed before the first level's store exists
+        if (screen.entities != null) {
+            screen.entities.moved(this);
+        }
     }
 
     public void stop() {
@@ -207,6 +227,20 @@ public class GameEntity implements PhysicsComponent {
         batch.setColor(Color.WHITE);
     }
 
+    /**
+     * Render between the previous and current tick, the image bounds are moved for the draw so
+     * anything an override positions off of them follows along
+     */
+    public void render(SpriteBatch batch, float alpha) {
+        float imageX = imageBounds.x;
+        float imageY = imageBounds.y;
+        float x = MathUtils.lerp(previousPosition.x, position.x, alpha);
+        float y = MathUtils.lerp(previousPosition.y, position.y, alpha);
+        imageBounds.setPosition(x - imageBounds.width / 2f, y - collisionBounds.height / 2f);
+        render(batch);
+        imageBounds.setPosition(imageX, imageY);
+    }
+
     public void renderDebug(SpriteBatch batch) {
         batch.setColor(Color.YELLOW);
         assets.debugNinePatch.draw(batch, imageBounds.x, imageBounds.y, imageBounds.width, imageBounds.height);
@@ -274,4 +308,13 @@ public class GameEntity implements PhysicsComponent {
 
     @Override
     public void onCollision() { }
+
+    @Override
+    public ContactCache getContactCache() { return contactCache; }
+
+    @Override
+    public SleepState getSleepState() { return sleepState; }
+
+    @Override
+    public Vector2 getMoveRemainder() { return moveRemainder; }
 }
@@ -2,6 +2,7 @@ package lando.systems.ld48.entities;
 
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
 import lando.systems.ld48.Audio;
 import lando.systems.ld48.levels.SpawnInteractable;
 import lando.systems.ld48.screens.GameScreen;
@@ -17,6 +18,9 @@ public class InteractableEntity extends GameEntity {
 
     boolean completed = false;
     boolean active = false;
+    // a closed door is part of the level's collision, from when it lands until it opens
+    private final Rectangle blockingBounds = new Rectangle();
+    private boolean blocking = false;
     Callback completionCallback;
 
     public InteractableEntity(GameScreen screen, float x, float y, SpawnInteractable spawner, Animation<TextureRegion> anim) {
@@ -88,7 +92,7 @@ public class InteractableEntity extends GameEntity {
 
             // trigger target, if any
             if (targetId != -1) {
-                for (InteractableEntity interactable : screen.interactables) {
+                for (InteractableEntity interactable : screen.entities.interactables) {
                     if (interactable.id == targetId) {
                         interactable.interact();
 
@@ -101,18 +105,30 @@ public class InteractableEntity extends GameEntity {
             }
         }
         super.update(dt);
+
+        if (type == SpawnInteractable.Type.door && !blocking && !completed && isGrounded()) {
+            blockingBounds.set(collisionBounds);
+            screen.level.addCollisionRectangle(blockingBounds);
+            blocking = true;
+        }
     }
 
 
     @Override
     public void addToScreen(float x, float y) {
-        screen.interactables.add(this);
         super.addToScreen(x, y);
+        screen.entities.join(this, EntityStore.Group.interactable);
+        if (type == SpawnInteractable.Type.door) {
+            screen.entities.join(this, EntityStore.Group.door);
+        }
     }
 
     @Override
     public void removeFromScreen() {
-        screen.interactables.removeValue(this, true);
+        if (blocking) {
+            screen.level.removeCollisionRectangle(blockingBounds);
+            blocking = false;
+        }
         super.removeFromScreen();
     }
 
@@ -169,7 +169,7 @@ public class MovableEntity extends GameEntity {
         if (this.animationSet.AttackAnimation != null && this.attackCD == 0 && burstCD == 0) {
             screen.game.audio.playSound(Audio.Sounds.attack);
             attackCD = attackDuration;
-            new Bullet(this, position);
+            screen.projectiles.bullet(this);
             this.currentHeat += attackHeat;
             if (this.currentHeat > 2) {
                 this.burstCD = currentHeat;
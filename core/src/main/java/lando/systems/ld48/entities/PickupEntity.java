@@ -21,14 +21,8 @@ public class PickupEntity extends GameEntity {
 
     @Override
     public void addToScreen(float x, float y) {
-        screen.pickups.add(this);
         super.addToScreen(x, y);
-    }
-
-    @Override
-    public void removeFromScreen() {
-        screen.pickups.removeValue(this, true);
-        super.removeFromScreen();
+        screen.entities.join(this, EntityStore.Group.pickup);
     }
 
 }
@@ -5,9 +5,8 @@ import aurelienribon.tweenengine.Tween;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.Rectangle;
-import com.badlogic.gdx.utils.Array;
 import lando.systems.ld48.Game;
+import lando.systems.ld48.levels.OccupancyGrid;
 import lando.systems.ld48.levels.SpawnPlayer;
 import lando.systems.ld48.screens.GameScreen;
 import lando.systems.ld48.stuff.Progress;
@@ -170,26 +169,15 @@ public class Player extends MovableEntity {
         }
         else {
             isOffScreen = false;
-            Array<Rectangle> tiles = new Array<>();
-            screen.level.getTiles(position.x, position.y, position.x, 10000, tiles);
-
-            Rectangle rect;
-            float y = 0;
-            for (int i = 0; i < tiles.size; i++) {
-                rect = tiles.get(i);
-                if (rect.y == y) {
-                    y += rect.height;
-                } else {
-                    if (y == 0) {
-                        // respawn at start
-                        setPosition(screen.level.getPlayerSpawn().pos.x, screen.level.getPlayerSpawn().pos.y);
-                    } else {
-                        // launch back onscreen
-                        setPosition(position.x, y + collisionBounds.height / 2);
-                        velocity.set(0, 400);
-                    }
-                    break;
-                }
+            OccupancyGrid occupancy = screen.level.getOccupancy();
+            int groundHeight = occupancy.groundHeight(occupancy.toTile(position.x));
+            if (groundHeight == 0) {
+                // respawn at start
+                setPosition(screen.level.getPlayerSpawn().pos.x, screen.level.getPlayerSpawn().pos.y);
+            } else {
+                // launch back onscreen
+                setPosition(position.x, groundHeight * occupancy.tileSize + collisionBounds.height / 2);
+                velocity.set(0, 400);
             }
         }
     }
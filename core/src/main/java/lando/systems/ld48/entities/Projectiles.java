@@ -0,0 +1,317 @@
+package lando.systems.ld48.entities;
+
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Circle;
+import com.badlogic.gdx.math.MathUtils;
+import lando.systems.ld48.Audio;
+import lando.systems.ld48.entities.bosses.Boss;
+import lando.systems.ld48.levels.OccupancyGrid;
+import lando.systems.ld48.physics.RaycastHit;
+import lando.systems.ld48.screens.GameScreen;
+
+/**
+ * Everything that's been fired, bullets from the player and enemies and the bosses' missiles, stored as parallel
+ * arrays indexed 0..size-1 the same way as a ParticleBuffer. Firing fills a slot instead of making an entity and
+ * spent projectiles are packed out, so once the arrays have grown to the most that have been in the air at once
+ * nothing here allocates.
+ *
+ * Projectiles fly in straight lines. Bullets walk the collision tiles with a terrain raycast each tick and stop at
+ * the first thing in the way, missiles fly through terrain until they time out. Hits are resolved in the same pass
+ * as the move, against the boss directly and against the player and enemies through the screen's {@link ActorHash}.
+ * Spent projectiles are only marked during the pass and all dropped together at the end of it.
+ */
+public class Projectiles {
+
+    // fired by the player, hits enemies instead of the player
+    public static final byte FLAG_PLAYER  = 1;
+    // boss missile, ignores terrain, times out, and hits the player with its radius instead of its center
+    public static final byte FLAG_MISSILE = 1 << 1;
+    // used up this tick, goes away in the compaction at the end of update
+    public static final byte FLAG_SPENT   = 1 << 2;
+
+    public static float BULLET_SCALE = 0.15f;
+    public static float BULLET_MAX_SPEED = 400f;
+    public static float BULLET_SPIN = 270f;
+    public static float MISSILE_SPEED = 300f;
+    public static float MISSILE_RADIUS = 22f;
+    public static float MISSILE_LIFETIME = 5f;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    public int size;
+    private int capacity;
+
+    public byte[] flags;
+
+    public float[] x, y;
+    // position as of the previous tick, drawing blends from here like it does for entities
+    public float[] prevX, prevY;
+    public float[] vx, vy;
+    public float[] radius;
+    public float[] width, height;
+    public float[] scaleX;
+    public float[] rotation;
+    public float[] ttl;
+    public float[] animTime;
+    public int[] damage;
+
+    public TextureRegion[] keyframe;
+    public Animation<TextureRegion>[] animation;
+
+    private final GameScreen screen;
+    private final RaycastHit hit = new RaycastHit();
+    private final Circle missileBounds = new Circle();
+
+    public Projectiles(GameScreen screen) {
+        this.screen = screen;
+        this.size = 0;
+        resize(DEFAULT_CAPACITY);
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            keyframe[i] = null;
+            animation[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Fire a bullet from the owner's center the way it's facing, with the owner's bullet speed and damage
+     */
+    public void bullet(GameEntity owner) {
+        Animation<TextureRegion> anim = owner.assets.cat;
+        TextureRegion frame = anim.getKeyFrame(0f);
+        float speed = owner.bulletSpeed * ((owner.direction == GameEntity.Direction.left) ? -1 : 1);
+
+        int i = add();
+        flags[i] = (owner == screen.player) ? FLAG_PLAYER : 0;
+        x[i] = prevX[i] = owner.position.x;
+        y[i] = prevY[i] = owner.position.y;
+        vx[i] = MathUtils.clamp(speed, -BULLET_MAX_SPEED, BULLET_MAX_SPEED);
+        vy[i] = 0f;
+        radius[i] = 0f;
+        // squished, like anything else that's off the ground
+        width[i] = frame.getRegionWidth() * BULLET_SCALE * 0.85f;
+        height[i] = frame.getRegionHeight() * BULLET_SCALE * 1.15f;
+        scaleX[i] = (owner.direction == GameEntity.Direction.left) ? -1 : 1;
+        rotation[i] = 0f;
+        ttl[i] = 0f;
+        animTime[i] = 0f;
+        damage[i] = owner.damage;
+        keyframe[i] = frame;
+        animation[i] = anim;
+    }
+
+    /**
+     * Fire a boss missile from (x, y) towards (dirX, dirY), the direction doesn't need to be normalized
+     */
+    public void missile(float x, float y, float dirX, float dirY, Animation<TextureRegion> anim, int damage) {
+        TextureRegion frame = anim.getKeyFrame(0f);
+        float len = (float) Math.sqrt(dirX * dirX + dirY * dirY);
+        if (len == 0) return;
+
+        int i = add();
+        flags[i] = FLAG_MISSILE;
+        this.x[i] = prevX[i] = x;
+        this.y[i] = prevY[i] = y;
+        vx[i] = MISSILE_SPEED * dirX / len;
+        vy[i] = MISSILE_SPEED * dirY / len;
+        radius[i] = MISSILE_RADIUS;
+        width[i] = frame.getRegionWidth();
+        height[i] = frame.getRegionHeight();
+        scaleX[i] = 1f;
+        rotation[i] = 0f;
+        ttl[i] = MISSILE_LIFETIME;
+        animTime[i] = 0f;
+        this.damage[i] = damage;
+        keyframe[i] = frame;
+        animation[i] = anim;
+    }
+
+    public void update(float dt) {
+        OccupancyGrid grid = screen.level.getOccupancy();
+        float levelWidth = grid.width * grid.tileSize;
+        float levelHeight = grid.height * grid.tileSize;
+
+        for (int i = 0; i < size; i++) {
+            boolean missile = (flags[i] & FLAG_MISSILE) != 0;
+            float fromX = x[i];
+            float fromY = y[i];
+            float toX = fromX + vx[i] * dt;
+            float toY = fromY + vy[i] * dt;
+            prevX[i] = fromX;
+            prevY[i] = fromY;
+
+            animTime[i] += dt;
+            keyframe[i] = animation[i].getKeyFrame(animTime[i]);
+
+            if (!missile) {
+                rotation[i] += BULLET_SPIN * dt;
+                if (screen.physicsSystem.terrainQuery.raycast(fromX, fromY, toX, toY, hit)) {
+                    screen.game.audio.playSound(Audio.Sounds.bulletHit);
+                    flags[i] |= FLAG_SPENT;
+                    continue;
+                }
+            }
+            x[i] = toX;
+            y[i] = toY;
+
+            boolean spent = false;
+            if (missile) {
+                ttl[i] -= dt;
+                spent = ttl[i] <= 0f;
+            }
+            // nothing out there to hit, and regions that aren't streamed in have no terrain to stop it
+            if (toX < 0 || toY < 0 || toX > levelWidth || toY > levelHeight || !screen.level.isResident(toX, toY)) {
+                spent = true;
+            }
+            if (spent || resolveHit(i)) {
+                flags[i] |= FLAG_SPENT;
+            }
+        }
+        compact();
+    }
+
+    public void draw(SpriteBatch batch, float alpha) {
+        for (int i = 0; i < size; i++) {
+            TextureRegion region = keyframe[i];
+            if (region == null) continue;
+
+            float px = MathUtils.lerp(prevX[i], x[i], alpha);
+            float py = MathUtils.lerp(prevY[i], y[i], alpha);
+            float w = width[i];
+            float h = height[i];
+            batch.draw(region,
+                    px - w / 2f, py - h / 2f,
+                    w / 2f, h / 2f,
+                    w, h, scaleX[i], 1f,
+                    rotation[i]);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    // drop everything spent this tick in one pass, the rest keep the order they were fired in
+    private void compact() {
+        int live = 0;
+        for (int i = 0; i < size; i++) {
+            if ((flags[i] & FLAG_SPENT) != 0) continue;
+            if (live != i) {
+                copy(i, live);
+            }
+            live++;
+        }
+        for (int i = live; i < size; i++) {
+            keyframe[i] = null;
+            animation[i] = null;
+        }
+        size = live;
+    }
+
+    // apply whatever projectile i hit, true if it's used up
+    private boolean resolveHit(int i) {
+        float px = x[i];
+        float py = y[i];
+        Player player = screen.player;
+        ActorHash actors = screen.actors;
+
+        if ((flags[i] & FLAG_MISSILE) != 0) {
+            missileBounds.set(px, py, radius[i]);
+            if (actors.firstOverlapping(missileBounds, ActorHash.TEAM_PLAYER) != null) {
+                player.adjustHitpoints(-damage[i]);
+                screen.particles.physics(px, py);
+                return true;
+            }
+            return false;
+        }
+
+        Boss boss = screen.boss;
+        if (boss != null && boss.takeHit(px, py)) {
+            return true;
+        }
+
+        if ((flags[i] & FLAG_PLAYER) != 0) {
+            GameEntity enemy = actors.firstAt(px, py, ActorHash.TEAM_ENEMY);
+            if (enemy != null) {
+                enemy.adjustHitpoints(-damage[i]);
+                enemy.position.x += (vx[i] > 0) ? 5 : -5;
+                screen.particles.blood(enemy.position.x, enemy.position.y);
+                return true;
+            }
+        } else if (player.capturedEnemy != null && actors.firstAt(px, py, ActorHash.TEAM_PLAYER) != null) {
+            player.adjustHitpoints(-damage[i]);
+            screen.particles.blood(player.position.x, player.position.y);
+            player.velocity.add((vx[i] > 0) ? 15 : -15, 5);
+            player.setGrounded(false);
+            return true;
+        }
+        return false;
+    }
+
+    private int add() {
+        if (size == capacity) {
+            resize(capacity * 2);
+        }
+        return size++;
+    }
+
+    private void copy(int from, int to) {
+        flags[to] = flags[from];
+        x[to] = x[from];                 y[to] = y[from];
+        prevX[to] = prevX[from];         prevY[to] = prevY[from];
+        vx[to] = vx[from];               vy[to] = vy[from];
+        radius[to] = radius[from];
+        width[to] = width[from];         height[to] = height[from];
+        scaleX[to] = scaleX[from];
+        rotation[to] = rotation[from];
+        ttl[to] = ttl[from];
+        animTime[to] = animTime[from];
+        damage[to] = damage[from];
+        keyframe[to] = keyframe[from];
+        animation[to] = animation[from];
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void resize(int newCapacity) {
+        flags = copyOf(flags, newCapacity);
+        x = copyOf(x, newCapacity);                 y = copyOf(y, newCapacity);
+        prevX = copyOf(prevX, newCapacity);         prevY = copyOf(prevY, newCapacity);
+        vx = copyOf(vx, newCapacity);               vy = copyOf(vy, newCapacity);
+        radius = copyOf(radius, newCapacity);
+        width = copyOf(width, newCapacity);         height = copyOf(height, newCapacity);
+        scaleX = copyOf(scaleX, newCapacity);
+        rotation = copyOf(rotation, newCapacity);
+        ttl = copyOf(ttl, newCapacity);
+        animTime = copyOf(animTime, newCapacity);
+
+        int[] newDamage = new int[newCapacity];
+        TextureRegion[] newKeyframe = new TextureRegion[newCapacity];
+        Animation<TextureRegion>[] newAnimation = new Animation[newCapacity];
+        if (keyframe != null) {
+            System.arraycopy(damage, 0, newDamage, 0, size);
+            System.arraycopy(keyframe, 0, newKeyframe, 0, size);
+            System.arraycopy(animation, 0, newAnimation, 0, size);
+        }
+        damage = newDamage;
+        keyframe = newKeyframe;
+        animation = newAnimation;
+
+        capacity = newCapacity;
+    }
+
+    private float[] copyOf(float[] array, int newCapacity) {
+        float[] newArray = new float[newCapacity];
+        if (array != null) System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+
+    private byte[] copyOf(byte[] array, int newCapacity) {
+        byte[] newArray = new byte[newCapacity];
+        if (array != null) System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+
+}
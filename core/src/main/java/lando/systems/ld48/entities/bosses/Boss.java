@@ -6,6 +6,8 @@ public abstract class Boss {
     public abstract void update(float dt);
     public abstract void render(SpriteBatch batch);
     public void renderDebug(SpriteBatch batch) {}
+    // a bullet at (x, y), true if it hit and was counted
+    public boolean takeHit(float x, float y) { return false; }
     public abstract void addToScreen();
     public abstract void removeFromScreen();
 }
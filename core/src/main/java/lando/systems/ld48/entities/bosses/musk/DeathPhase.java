@@ -7,7 +7,6 @@ import com.badlogic.gdx.math.MathUtils;
 import lando.systems.ld48.entities.InteractableEntity;
 import lando.systems.ld48.entities.bosses.Boss;
 import lando.systems.ld48.entities.bosses.BossPhase;
-import lando.systems.ld48.levels.SpawnInteractable;
 
 public class DeathPhase extends BossPhase {
 
@@ -42,10 +41,10 @@ public class DeathPhase extends BossPhase {
             muskKrang.screen.particles.smoke(muskKrang.position.x, muskKrang.position.y);
 
             // open door
-            for (InteractableEntity interactable : muskKrang.screen.interactables) {
-                if (interactable.type == SpawnInteractable.Type.door && interactable.disabled) {
-                    interactable.disabled = false;
-                    interactable.interact();
+            for (InteractableEntity door : muskKrang.screen.entities.doors) {
+                if (door.disabled) {
+                    door.disabled = false;
+                    door.interact();
                 }
             }
 
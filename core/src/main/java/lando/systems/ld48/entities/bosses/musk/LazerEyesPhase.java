@@ -7,13 +7,13 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.Vector2;
 import lando.systems.ld48.Audio;
 import lando.systems.ld48.entities.Player;
 import lando.systems.ld48.entities.bosses.Boss;
 import lando.systems.ld48.entities.bosses.BossPhase;
 import lando.systems.ld48.levels.Level;
+import lando.systems.ld48.physics.RaycastHit;
 import lando.systems.ld48.utils.accessors.Vector2Accessor;
 
 public class LazerEyesPhase extends BossPhase {
@@ -26,6 +26,7 @@ public class LazerEyesPhase extends BossPhase {
     private final Vector2 eye2Start;
     private final Vector2 eye2End;
     private float iFramesTimer;
+    private final RaycastHit beamHit = new RaycastHit();
 
     public LazerEyesPhase(Boss boss) {
         super(boss, () -> new IdlePhase(boss)); //new RamPhase(boss));
@@ -77,15 +78,16 @@ public class LazerEyesPhase extends BossPhase {
 
     @Override
     public void update(float dt) {
-        if (iFramesTimer == 0f && blastin) {
-            Player player = muskKrang.screen.player;
+        if (blastin) {
+            // beams stop at the first bit of terrain in the way
             eye1Start.set(muskKrang.position.x - 28, muskKrang.position.y + 43);
             eye2Start.set(muskKrang.position.x - 63, muskKrang.position.y + 33);
-            eye1End.set(target.x, target.y);
-            eye2End.set(target.x, target.y);
-            boolean hitPlayer1 = Intersector.intersectSegmentRectangle(eye1Start, eye1End, player.collisionBounds);
-            boolean hitPlayer2 = Intersector.intersectSegmentRectangle(eye2Start, eye2End, player.collisionBounds);
-            if (hitPlayer1 || hitPlayer2) {
+            Player player = muskKrang.screen.player;
+            boolean hitPlayer1 = muskKrang.screen.physicsSystem.firstHit(eye1Start, target, player.collisionBounds, beamHit);
+            eye1End.set(beamHit.hit ? beamHit.point : target);
+            boolean hitPlayer2 = muskKrang.screen.physicsSystem.firstHit(eye2Start, target, player.collisionBounds, beamHit);
+            eye2End.set(beamHit.hit ? beamHit.point : target);
+            if (iFramesTimer == 0f && (hitPlayer1 || hitPlayer2)) {
                 player.hitPoints -= 2;
                 muskKrang.screen.particles.interact(player.position.x, player.position.y);
                 iFramesTimer = 2f;
@@ -111,17 +113,17 @@ public class LazerEyesPhase extends BossPhase {
             {
                 float width = 2f;
                 shapes.setColor(Color.RED);
-                shapes.rectLine(eye1Start, target, width * 3);
-                shapes.rectLine(eye2Start, target, width * 3);
+                shapes.rectLine(eye1Start, eye1End, width * 3);
+                shapes.rectLine(eye2Start, eye2End, width * 3);
                 shapes.setColor(Color.ORANGE);
-                shapes.rectLine(eye1Start, target, width * 2);
-                shapes.rectLine(eye2Start, target, width * 2);
+                shapes.rectLine(eye1Start, eye1End, width * 2);
+                shapes.rectLine(eye2Start, eye2End, width * 2);
                 shapes.setColor(Color.YELLOW);
-                shapes.rectLine(eye1Start, target, width);
-                shapes.rectLine(eye2Start, target, width);
+                shapes.rectLine(eye1Start, eye1End, width);
+                shapes.rectLine(eye2Start, eye2End, width);
                 shapes.setColor(Color.WHITE);
-                shapes.rectLine(eye1Start, target, 1);
-                shapes.rectLine(eye2Start, target, 1);
+                shapes.rectLine(eye1Start, eye1End, 1);
+                shapes.rectLine(eye2Start, eye2End, 1);
                 shapes.setColor(Color.WHITE);
             }
             shapes.end();
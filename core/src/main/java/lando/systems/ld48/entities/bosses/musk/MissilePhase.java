@@ -38,8 +38,7 @@ public class MissilePhase extends BossPhase {
             float velX = player.position.x - zuckMouthX;
             float velY = player.position.y - zuckMouthY;
 
-            MuskKrang.Missile missile = new MuskKrang.Missile(muskKrang, muskKrang.animations.missileA, velX, velY);
-            muskKrang.missiles.add(missile);
+            muskKrang.screen.projectiles.missile(muskKrang.position.x + 90, muskKrang.position.y + 55, velX, velY, muskKrang.animations.missileA, 5);
             numShots--;
 
             Gdx.app.log("missile phase", "shoot your shot");
@@ -38,8 +38,7 @@ public class MissilePhaseB extends BossPhase {
             float velX = player.position.x - zuckMouthX;
             float velY = player.position.y - zuckMouthY;
 
-            MuskKrang.Missile missile = new MuskKrang.Missile(muskKrang, muskKrang.animations.missileB, velX, velY);
-            muskKrang.missiles.add(missile);
+            muskKrang.screen.projectiles.missile(muskKrang.position.x + 90, muskKrang.position.y + 55, velX, velY, muskKrang.animations.missileB, 5);
             numShots--;
 
             Gdx.app.log("missile phase b", "shoot your shot");
@@ -5,14 +5,9 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.math.Circle;
-import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Array;
 import lando.systems.ld48.Assets;
-import lando.systems.ld48.entities.Bullet;
-import lando.systems.ld48.entities.Player;
 import lando.systems.ld48.entities.bosses.Boss;
 import lando.systems.ld48.entities.bosses.BossPhase;
 import lando.systems.ld48.screens.GameScreen;
@@ -26,8 +21,6 @@ public class MuskKrang extends Boss {
     final Rectangle imageBounds;
     final Rectangle collisionBounds;
 
-    final Array<Missile> missiles;
-
     boolean alive;
     BossPhase currentPhase;
 
@@ -67,7 +60,6 @@ public class MuskKrang extends Boss {
         this.position = new Vector2();
         this.imageBounds = new Rectangle();
         this.collisionBounds = new Rectangle();
-        this.missiles = new Array<>();
 
         setPosition(x, y);
 
@@ -93,32 +85,6 @@ public class MuskKrang extends Boss {
 
         stateTime += dt;
 
-        // check for hits
-        for (Bullet bullet : screen.bullets) {
-            if (collisionBounds.contains(bullet.position)) {
-                numHits++;
-                screen.particles.smoke(bullet.position.x, bullet.position.y);
-                bullet.dead = true;
-                screen.bullets.removeValue(bullet, true);
-                screen.physicsEntities.removeValue(bullet, true);
-            }
-        }
-
-        // check for missiles hitting player or going out of bounds or something?
-        Player player = screen.player;
-        for (int i = missiles.size - 1; i >= 0; i--) {
-            Missile missile = missiles.get(i);
-            missile.update(dt);
-            if (Intersector.overlaps(missile.bounds, player.collisionBounds)) {
-                player.hitPoints -= 5;
-                screen.particles.physics(missile.bounds.x, missile.bounds.y);
-                missiles.removeIndex(i);
-            }
-            if (missile.lifetime <= 0) {
-                missiles.removeIndex(i);
-            }
-        }
-
         if (numHits == numHitsToBeKilled && !(currentPhase instanceof DeathPhase)) {
             currentPhase = new DeathPhase(this);
         }
@@ -136,6 +102,14 @@ public class MuskKrang extends Boss {
         }
     }
 
+    @Override
+    public boolean takeHit(float x, float y) {
+        if (!alive || !collisionBounds.contains(x, y)) return false;
+        numHits++;
+        screen.particles.smoke(x, y);
+        return true;
+    }
+
     @Override
     public void render(SpriteBatch batch) {
         TextureRegion keyframe = animation.getKeyFrame(stateTime);
@@ -150,8 +124,6 @@ public class MuskKrang extends Boss {
         batch.draw(keyframe, imageBounds.x, imageBounds.y, imageBounds.width, imageBounds.height);
         batch.setColor(Color.WHITE);
 
-        missiles.forEach(missile -> missile.draw(batch));
-
         if (currentPhase != null) {
             currentPhase.render(batch);
         }
@@ -178,31 +150,4 @@ public class MuskKrang extends Boss {
         }
     }
 
-    static class Missile {
-        public Circle bounds = new Circle();
-        public Vector2 velocity = new Vector2();
-        public float speed = 300f;
-        public TextureRegion keyframe = null;
-        public Animation<TextureRegion> missileAnim = null;
-        public float stateTime = 0f;
-        public float lifetime = 5f;
-        public Missile(MuskKrang muskKrang, Animation<TextureRegion> missile, float velX, float velY) {
-            bounds.set(muskKrang.position.x + 90, muskKrang.position.y + 55, 22f);
-            velocity.set(velX, velY).nor();
-            missileAnim = missile;
-        }
-        public void update(float dt) {
-            lifetime -= dt;
-            stateTime += dt;
-            keyframe = missileAnim.getKeyFrame(stateTime);
-            float speedX = speed * velocity.x * dt;
-            float speedY = speed * velocity.y * dt;
-            bounds.setPosition(bounds.x + speedX, bounds.y + speedY);
-        }
-        public void draw(SpriteBatch batch) {
-            if (keyframe == null) return;
-            batch.draw(keyframe, bounds.x - keyframe.getRegionWidth() / 2f, bounds.y - keyframe.getRegionHeight() / 2f);
-        }
-    }
-
 }
@@ -8,7 +8,6 @@ import lando.systems.ld48.Audio;
 import lando.systems.ld48.entities.InteractableEntity;
 import lando.systems.ld48.entities.bosses.Boss;
 import lando.systems.ld48.entities.bosses.BossPhase;
-import lando.systems.ld48.levels.SpawnInteractable;
 
 public class DeathPhase extends BossPhase {
 
@@ -45,10 +44,10 @@ public class DeathPhase extends BossPhase {
             zuck.screen.particles.smoke(zuck.position.x, zuck.position.y);
 
             // open door
-            for (InteractableEntity interactable : zuck.screen.interactables) {
-                if (interactable.type == SpawnInteractable.Type.door && interactable.disabled) {
-                    interactable.disabled = false;
-                    interactable.interact();
+            for (InteractableEntity door : zuck.screen.entities.doors) {
+                if (door.disabled) {
+                    door.disabled = false;
+                    door.interact();
                 }
             }
 
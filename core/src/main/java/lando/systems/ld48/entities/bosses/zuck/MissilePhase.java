@@ -37,8 +37,7 @@ public class MissilePhase extends BossPhase {
             float velX = player.position.x - zuckMouthX;
             float velY = player.position.y - zuckMouthY;
 
-            ZuckTank.Missile missile = new ZuckTank.Missile(zuck, velX, velY);
-            zuck.missiles.add(missile);
+            zuck.screen.projectiles.missile(zuck.position.x, zuck.position.y, velX, velY, zuck.animations.missile, 30);
             numShots--;
             zuck.screen.game.audio.playSound(Audio.Sounds.missile);
 
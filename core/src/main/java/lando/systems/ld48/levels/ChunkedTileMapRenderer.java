@@ -0,0 +1,421 @@
+package lando.systems.ld48.levels;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapLayers;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+import static com.badlogic.gdx.graphics.g2d.Batch.*;
+
+/**
+ * Tile layer renderer that bakes each layer in fixed size chunks, each chunk is its own cache in one of a few
+ * SpriteCache pages.
+ *
+ * Only chunks overlapping the camera are drawn, so a frame costs the same however big the map is,
+ * and changing a tile only re-bakes the chunk it's in (see {@link #invalidate(int, int, int)}).
+ * Tiles are emitted exactly like OrthoCachedTiledMapRenderer does, including the half texel inset against bleeding.
+ *
+ * A SpriteCache with indices holds at most 8191 sprites, so the tiles are split over pages of up to that many.
+ * There are only as many pages as the map's (capped) tile count needs. When they're all full, the page that's gone
+ * longest without being drawn is cleared and its chunks get re-baked next time they come into view.
+ */
+public class ChunkedTileMapRenderer implements Disposable {
+
+    public static final int CHUNK_SIZE = 16;
+
+    // most sprites a SpriteCache using indices can hold
+    public static final int MAX_PAGE_SIZE = 8191;
+
+    // extra sprites reserved up front so chunks can grow a little before a page has to be re-baked
+    private static final int SPARE_CHUNKS = 4;
+
+    private static class Chunk {
+        Page page;
+        int cacheId = -1;
+        int capacity;
+        int count;
+        boolean dirty = true;
+    }
+
+    private static class Page {
+        final SpriteCache cache;
+        final int size;
+        int used;
+        // last frame anything on this page was drawn or baked, pages in use this frame are never evicted
+        long lastFrame = -1;
+        final Array<Chunk> chunks = new Array<>(false, 32);
+
+        Page(int size) {
+            this.size = size;
+            this.cache = new SpriteCache(size, true);
+        }
+    }
+
+    private final TiledMap map;
+    private final Array<Page> pages = new Array<>();
+    private final int pageSize;
+    private final int maxPages;
+    private final Matrix4 projection = new Matrix4();
+
+    // [map layer index][chunk x + chunk y * chunk cols], null for layers that aren't tile layers
+    private final Chunk[][] chunks;
+    private final int[] chunkCols;
+    private final int[] chunkRows;
+
+    private final float[] vertices = new float[20];
+    private float viewX, viewY, viewWidth, viewHeight;
+
+    public ChunkedTileMapRenderer(TiledMap map) {
+        this(map, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxCellsPerLayer caps how many tiles per layer the cache holds, when it fills up only what's in view is re-baked
+     */
+    public ChunkedTileMapRenderer(TiledMap map, int maxCellsPerLayer) {
+        this.map = map;
+
+        MapLayers layers = map.getLayers();
+        this.chunks = new Chunk[layers.size()][];
+        this.chunkCols = new int[layers.size()];
+        this.chunkRows = new int[layers.size()];
+        int tiles = 0;
+        for (int i = 0; i < layers.size(); i++) {
+            MapLayer mapLayer = layers.get(i);
+            if (!(mapLayer instanceof TiledMapTileLayer)) continue;
+            TiledMapTileLayer layer = (TiledMapTileLayer) mapLayer;
+            chunkCols[i] = MathUtils.ceil(layer.getWidth() / (float) CHUNK_SIZE);
+            chunkRows[i] = MathUtils.ceil(layer.getHeight() / (float) CHUNK_SIZE);
+            chunks[i] = new Chunk[chunkCols[i] * chunkRows[i]];
+            for (int c = 0; c < chunks[i].length; c++) {
+                chunks[i][c] = new Chunk();
+            }
+            tiles += Math.min(maxCellsPerLayer, countTiles(layer));
+        }
+
+        // every cell holding a tile is the most any layer can ever need, pages get made as they're needed
+        int cacheSize = Math.max(1, tiles + SPARE_CHUNKS * CHUNK_SIZE * CHUNK_SIZE);
+        this.pageSize = Math.min(MAX_PAGE_SIZE, cacheSize);
+        this.maxPages = MathUtils.ceil(cacheSize / (float) pageSize);
+    }
+
+    public int getPageCount() {
+        return pages.size;
+    }
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setView(OrthographicCamera camera) {
+        projection.set(camera.combined);
+        for (int i = 0; i < pages.size; i++) {
+            pages.get(i).cache.setProjectionMatrix(projection);
+        }
+        viewWidth = camera.viewportWidth * camera.zoom;
+        viewHeight = camera.viewportHeight * camera.zoom;
+        viewX = camera.position.x - viewWidth / 2f;
+        viewY = camera.position.y - viewHeight / 2f;
+    }
+
+    public void render(int layerIndex) {
+        Chunk[] layerChunks = chunks[layerIndex];
+        if (layerChunks == null) return;
+        TiledMapTileLayer layer = (TiledMapTileLayer) map.getLayers().get(layerIndex);
+        if (!layer.isVisible()) return;
+
+        // one tile of slack on each side for tiles with offsets or regions bigger than a cell
+        float chunkWidth = CHUNK_SIZE * layer.getTileWidth();
+        float chunkHeight = CHUNK_SIZE * layer.getTileHeight();
+        float left = viewX - layer.getRenderOffsetX() - layer.getTileWidth();
+        float bottom = viewY + layer.getRenderOffsetY() - layer.getTileHeight();
+        int cx0 = Math.max(0, MathUtils.floor(left / chunkWidth));
+        int cy0 = Math.max(0, MathUtils.floor(bottom / chunkHeight));
+        int cx1 = Math.min(chunkCols[layerIndex] - 1, MathUtils.floor((left + viewWidth + 2 * layer.getTileWidth()) / chunkWidth));
+        int cy1 = Math.min(chunkRows[layerIndex] - 1, MathUtils.floor((bottom + viewHeight + 2 * layer.getTileHeight()) / chunkHeight));
+        if (cx0 > cx1 || cy0 > cy1) return;
+
+        // baking has to happen outside of begin / end
+        long frame = Gdx.graphics.getFrameId();
+        int cols = chunkCols[layerIndex];
+        touchBaked(layerChunks, cols, cx0, cy0, cx1, cy1, frame);
+        bakeDirty(layer, layerChunks, cols, cx0, cy0, cx1, cy1, frame);
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        // same order as one big cache would draw them in, switching pages only when the next chunk is on another one
+        SpriteCache current = null;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                Chunk chunk = layerChunks[cx + cy * cols];
+                if (chunk.count == 0) continue;
+                SpriteCache cache = chunk.page.cache;
+                if (cache != current) {
+                    if (current != null) current.end();
+                    current = cache;
+                    current.begin();
+                }
+                current.draw(chunk.cacheId);
+            }
+        }
+        if (current != null) current.end();
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+    }
+
+    /**
+     * Mark the chunk holding a cell for re-baking, call after changing a cell in that layer
+     */
+    public void invalidate(int layerIndex, int col, int row) {
+        Chunk[] layerChunks = chunks[layerIndex];
+        if (layerChunks == null) return;
+        int cx = col / CHUNK_SIZE;
+        int cy = row / CHUNK_SIZE;
+        if (col < 0 || row < 0 || cx >= chunkCols[layerIndex] || cy >= chunkRows[layerIndex]) return;
+        layerChunks[cx + cy * chunkCols[layerIndex]].dirty = true;
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < pages.size; i++) {
+            clear(pages.get(i));
+        }
+        for (Chunk[] layerChunks : chunks) {
+            if (layerChunks == null) continue;
+            for (Chunk chunk : layerChunks) {
+                chunk.count = 0;
+                chunk.dirty = true;
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for (int i = 0; i < pages.size; i++) {
+            pages.get(i).cache.dispose();
+        }
+        pages.clear();
+    }
+
+    private static int countTiles(TiledMapTileLayer layer) {
+        int count = 0;
+        for (int row = 0; row < layer.getHeight(); row++) {
+            for (int col = 0; col < layer.getWidth(); col++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(col, row);
+                if (cell != null && cell.getTile() != null) count++;
+            }
+        }
+        return count;
+    }
+
+    // pages holding chunks that are about to be drawn have to survive whatever the dirty ones need
+    private void touchBaked(Chunk[] layerChunks, int cols, int cx0, int cy0, int cx1, int cy1, long frame) {
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                Chunk chunk = layerChunks[cx + cy * cols];
+                if (!chunk.dirty && chunk.page != null) {
+                    chunk.page.lastFrame = frame;
+                }
+            }
+        }
+    }
+
+    private void bakeDirty(TiledMapTileLayer layer, Chunk[] layerChunks, int cols, int cx0, int cy0, int cx1, int cy1, long frame) {
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                Chunk chunk = layerChunks[cx + cy * cols];
+                if (chunk.dirty) {
+                    bake(layer, cx, cy, chunk, frame);
+                }
+            }
+        }
+    }
+
+    /**
+     * A page with room for count more sprites: one with space left, a new one while under the page budget,
+     * or the least recently drawn one cleared out. Only if every page is in use this frame does it go over budget.
+     */
+    private Page pageFor(int count, long frame) {
+        for (int i = 0; i < pages.size; i++) {
+            Page page = pages.get(i);
+            if (page.used + count <= page.size) return page;
+        }
+        if (pages.size < maxPages) {
+            return addPage();
+        }
+
+        Page oldest = null;
+        for (int i = 0; i < pages.size; i++) {
+            Page page = pages.get(i);
+            if (page.lastFrame == frame) continue;
+            if (oldest == null || page.lastFrame < oldest.lastFrame) oldest = page;
+        }
+        if (oldest != null) {
+            clear(oldest);
+            return oldest;
+        }
+        Gdx.app.log("ChunkedTileMapRenderer", "More tiles in view than the page budget holds, adding page " + (pages.size + 1));
+        return addPage();
+    }
+
+    private Page addPage() {
+        Page page = new Page(pageSize);
+        page.cache.setProjectionMatrix(projection);
+        pages.add(page);
+        return page;
+    }
+
+    // everything baked on the page goes, its chunks bake again (on whatever page has room) next time they're in view
+    private void clear(Page page) {
+        page.cache.clear();
+        page.used = 0;
+        for (int i = 0; i < page.chunks.size; i++) {
+            Chunk chunk = page.chunks.get(i);
+            chunk.page = null;
+            chunk.cacheId = -1;
+            chunk.capacity = 0;
+            chunk.count = 0;
+            chunk.dirty = true;
+        }
+        page.chunks.clear();
+    }
+
+    private void bake(TiledMapTileLayer layer, int cx, int cy, Chunk chunk, long frame) {
+        int col0 = cx * CHUNK_SIZE, col1 = Math.min(layer.getWidth(), col0 + CHUNK_SIZE);
+        int row0 = cy * CHUNK_SIZE, row1 = Math.min(layer.getHeight(), row0 + CHUNK_SIZE);
+
+        int count = 0;
+        for (int row = row0; row < row1; row++) {
+            for (int col = col0; col < col1; col++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(col, row);
+                if (cell != null && cell.getTile() != null) count++;
+            }
+        }
+
+        if (count == 0) {
+            chunk.dirty = false;
+            chunk.count = 0;
+            return;
+        }
+
+        Page page = chunk.page;
+        if (page != null && count <= chunk.capacity) {
+            // a cache can be redefined in place as long as it doesn't grow
+            page.cache.beginCache(chunk.cacheId);
+        } else {
+            // the old copy's sprites stay used until its page is cleared
+            if (page != null) {
+                page.chunks.removeValue(chunk, true);
+            }
+            page = pageFor(count, frame);
+            page.cache.beginCache();
+            page.used += count;
+            page.chunks.add(chunk);
+            chunk.page = page;
+            chunk.capacity = count;
+        }
+        page.lastFrame = frame;
+
+        float color = Color.toFloatBits(1f, 1f, 1f, layer.getOpacity());
+        float tileWidth = layer.getTileWidth();
+        float tileHeight = layer.getTileHeight();
+        float offsetX = layer.getRenderOffsetX();
+        float offsetY = -layer.getRenderOffsetY();
+        for (int row = row0; row < row1; row++) {
+            for (int col = col0; col < col1; col++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(col, row);
+                if (cell == null || cell.getTile() == null) continue;
+                addTile(page.cache, cell, col * tileWidth + offsetX, row * tileHeight + offsetY, color);
+            }
+        }
+        chunk.cacheId = page.cache.endCache();
+        chunk.count = count;
+        chunk.dirty = false;
+    }
+
+    private void addTile(SpriteCache cache, TiledMapTileLayer.Cell cell, float x, float y, float color) {
+        TiledMapTile tile = cell.getTile();
+        TextureRegion region = tile.getTextureRegion();
+        Texture texture = region.getTexture();
+
+        float x1 = x + tile.getOffsetX();
+        float y1 = y + tile.getOffsetY();
+        float x2 = x1 + region.getRegionWidth();
+        float y2 = y1 + region.getRegionHeight();
+
+        float adjustX = 0.5f / texture.getWidth();
+        float adjustY = 0.5f / texture.getHeight();
+        float u1 = region.getU() + adjustX;
+        float v1 = region.getV2() - adjustY;
+        float u2 = region.getU2() - adjustX;
+        float v2 = region.getV() + adjustY;
+
+        vertices[X1] = x1; vertices[Y1] = y1; vertices[C1] = color; vertices[U1] = u1; vertices[V1] = v1;
+        vertices[X2] = x1; vertices[Y2] = y2; vertices[C2] = color; vertices[U2] = u1; vertices[V2] = v2;
+        vertices[X3] = x2; vertices[Y3] = y2; vertices[C3] = color; vertices[U3] = u2; vertices[V3] = v2;
+        vertices[X4] = x2; vertices[Y4] = y1; vertices[C4] = color; vertices[U4] = u2; vertices[V4] = v1;
+
+        if (cell.getFlipHorizontally()) {
+            swap(U1, U3);
+            swap(U2, U4);
+        }
+        if (cell.getFlipVertically()) {
+            swap(V1, V3);
+            swap(V2, V4);
+        }
+        switch (cell.getRotation()) {
+            case TiledMapTileLayer.Cell.ROTATE_90: {
+                float tempV = vertices[V1];
+                vertices[V1] = vertices[V2];
+                vertices[V2] = vertices[V3];
+                vertices[V3] = vertices[V4];
+                vertices[V4] = tempV;
+                float tempU = vertices[U1];
+                vertices[U1] = vertices[U2];
+                vertices[U2] = vertices[U3];
+                vertices[U3] = vertices[U4];
+                vertices[U4] = tempU;
+            } break;
+            case TiledMapTileLayer.Cell.ROTATE_180: {
+                swap(U1, U3);
+                swap(U2, U4);
+                swap(V1, V3);
+                swap(V2, V4);
+            } break;
+            case TiledMapTileLayer.Cell.ROTATE_270: {
+                float tempV = vertices[V1];
+                vertices[V1] = vertices[V4];
+                vertices[V4] = vertices[V3];
+                vertices[V3] = vertices[V2];
+                vertices[V2] = tempV;
+                float tempU = vertices[U1];
+                vertices[U1] = vertices[U4];
+                vertices[U4] = vertices[U3];
+                vertices[U3] = vertices[U2];
+                vertices[U2] = tempU;
+            } break;
+        }
+        cache.add(texture, vertices, 0, vertices.length);
+    }
+
+    private void swap(int a, int b) {
+        float temp = vertices[a];
+        vertices[a] = vertices[b];
+        vertices[b] = temp;
+    }
+
+}
@@ -0,0 +1,117 @@
+package lando.systems.ld48.levels;
+
+import com.badlogic.gdx.utils.Array;
+import lando.systems.ld48.physics.Segment2D;
+import lando.systems.ld48.physics.SegmentStore;
+
+/**
+ * Turns a grid of solid / ramp cells into the level's collision segments.
+ * Nothing in here touches textures or the tiled map, so the same code runs in the game and in the offline level bake.
+ */
+public class CollisionBuilder {
+
+    public final int width;
+    public final int height;
+    public final float tileSize;
+    public final boolean[] solid;
+    public final byte[] rampTypes;
+
+    public CollisionBuilder(int width, int height, float tileSize) {
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.solid = new boolean[width * height];
+        this.rampTypes = new byte[width * height];
+    }
+
+    public void setCell(int x, int y, byte rampType) {
+        solid[x + y * width] = true;
+        rampTypes[x + y * width] = rampType;
+    }
+
+    public boolean isSolid(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        return solid[x + y * width];
+    }
+
+    /**
+     * Which corner of a tile is see-through, from whether the middle of each of its edges is transparent
+     */
+    public static byte classifyRamp(boolean openLeft, boolean openRight, boolean openTop, boolean openBottom) {
+        if      (openLeft  && openTop)    return Level.RAMP_OPEN_TOP_LEFT;
+        else if (openRight && openTop)    return Level.RAMP_OPEN_TOP_RIGHT;
+        else if (openLeft  && openBottom) return Level.RAMP_OPEN_BOTTOM_LEFT;
+        else if (openRight && openBottom) return Level.RAMP_OPEN_BOTTOM_RIGHT;
+        return Level.RAMP_NONE;
+    }
+
+    /**
+     * Outline every solid cell against its empty neighbours, cut ramps diagonally and merge the edges into runs
+     */
+    public Array<Segment2D> build() {
+        return build(0, 0, width, height);
+    }
+
+    /**
+     * Same as {@link #build()} for the cells in [col0, col1) x [row0, row1) only, neighbours outside the window
+     * still decide which edges exist, so windows that share a border don't both put a wall on it
+     */
+    public Array<Segment2D> build(int col0, int row0, int col1, int row1) {
+        Array<Segment2D> segments = outline(col0, row0, col1, row1);
+        SegmentStore.mergeRuns(segments);
+        return segments;
+    }
+
+    /**
+     * One segment per open cell edge and ramp in the window, before any of them are merged into runs
+     */
+    Array<Segment2D> outline(int col0, int row0, int col1, int row1) {
+        Array<Segment2D> segments = new Array<>();
+        float t = tileSize;
+        col0 = Math.max(0, col0);
+        row0 = Math.max(0, row0);
+        col1 = Math.min(width, col1);
+        row1 = Math.min(height, row1);
+        for (int x = col0; x < col1; x++) {
+            for (int y = row0; y < row1; y++) {
+                if (!solid[x + y * width]) continue;
+
+                Segment2D rightSegment  = isSolid(x + 1, y) ? null : new Segment2D((x+1) * t, y     * t, (x+1) * t, (y+1) * t);
+                Segment2D leftSegment   = isSolid(x - 1, y) ? null : new Segment2D((x)   * t, (y+1) * t, (x)   * t, (y)   * t);
+                Segment2D topSegment    = isSolid(x, y + 1) ? null : new Segment2D((x+1) * t, (y+1) * t, (x)   * t, (y+1) * t);
+                Segment2D bottomSegment = isSolid(x, y - 1) ? null : new Segment2D((x)   * t, (y)   * t, (x+1) * t, (y)   * t);
+
+                switch (rampTypes[x + y * width]) {
+                    case Level.RAMP_OPEN_TOP_LEFT:
+                        if (rightSegment  != null) segments.add(rightSegment);
+                        if (bottomSegment != null) segments.add(bottomSegment);
+                        segments.add(new Segment2D((x + 1) * t, (y + 1) * t, (x) * t, (y) * t));
+                        break;
+                    case Level.RAMP_OPEN_TOP_RIGHT:
+                        if (leftSegment   != null) segments.add(leftSegment);
+                        if (bottomSegment != null) segments.add(bottomSegment);
+                        segments.add(new Segment2D((x + 1) * t, (y) * t, (x) * t, (y + 1) * t));
+                        break;
+                    case Level.RAMP_OPEN_BOTTOM_LEFT:
+                        if (rightSegment != null) segments.add(rightSegment);
+                        if (topSegment   != null) segments.add(topSegment);
+                        segments.add(new Segment2D((x) * t, (y + 1) * t, (x + 1) * t, (y) * t));
+                        break;
+                    case Level.RAMP_OPEN_BOTTOM_RIGHT:
+                        if (leftSegment != null) segments.add(leftSegment);
+                        if (topSegment  != null) segments.add(topSegment);
+                        segments.add(new Segment2D((x) * t, (y) * t, (x + 1) * t, (y + 1) * t));
+                        break;
+                    default:
+                        if (topSegment    != null) segments.add(topSegment);
+                        if (rightSegment  != null) segments.add(rightSegment);
+                        if (leftSegment   != null) segments.add(leftSegment);
+                        if (bottomSegment != null) segments.add(bottomSegment);
+                        break;
+                }
+            }
+        }
+        return segments;
+    }
+
+}
@@ -0,0 +1,143 @@
+package lando.systems.ld48.levels;
+
+import com.badlogic.gdx.utils.Array;
+import lando.systems.ld48.physics.Segment2D;
+import lando.systems.ld48.physics.TerrainField;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Baked collision for one level map, written next to the .tmx by the core 'bakeLevels' task.
+ *
+ * Layout (big endian):
+ *  int magic, int version, int tmx length, int tmx hash,
+ *  int width, int height, float tile size,
+ *  byte[width * height] ramp types,
+ *  int segment count, then x1 y1 x2 y2 floats per segment,
+ *  optionally followed by a {@link TerrainField}
+ *
+ * The tmx length and hash are checked against the map being loaded, a sidecar that doesn't match is ignored.
+ * Bump VERSION whenever the layout or {@link CollisionBuilder} output changes.
+ */
+public class CollisionSidecar {
+
+    public static final String EXTENSION = ".collision";
+
+    private static final int MAGIC = 0x4C443438; // LD48
+    private static final int VERSION = 1;
+
+    // false when the map changed since the sidecar was baked, or it couldn't be read at all
+    public boolean current = true;
+    public int tmxLength;
+    public int tmxHash;
+    public int width;
+    public int height;
+    public float tileSize;
+    public byte[] rampTypes;
+    public float[] segments;
+    // baked terrain distance field, null if the sidecar doesn't carry one
+    public TerrainField field;
+
+    public static String pathFor(String mapFileName) {
+        int dot = mapFileName.lastIndexOf('.');
+        return ((dot > 0) ? mapFileName.substring(0, dot) : mapFileName) + EXTENSION;
+    }
+
+    /**
+     * FNV-1a over the map file, enough to notice that the map was edited after it was baked
+     */
+    public static int hash(byte[] bytes) {
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash ^= (b & 0xFF);
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    public static CollisionSidecar of(byte[] tmxBytes, CollisionBuilder builder, Array<Segment2D> built) {
+        CollisionSidecar sidecar = new CollisionSidecar();
+        sidecar.tmxLength = tmxBytes.length;
+        sidecar.tmxHash = hash(tmxBytes);
+        sidecar.width = builder.width;
+        sidecar.height = builder.height;
+        sidecar.tileSize = builder.tileSize;
+        sidecar.rampTypes = builder.rampTypes;
+        sidecar.segments = new float[built.size * 4];
+        for (int i = 0; i < built.size; i++) {
+            Segment2D segment = built.get(i);
+            sidecar.segments[i * 4]     = segment.start.x;
+            sidecar.segments[i * 4 + 1] = segment.start.y;
+            sidecar.segments[i * 4 + 2] = segment.end.x;
+            sidecar.segments[i * 4 + 3] = segment.end.y;
+        }
+        return sidecar;
+    }
+
+    /**
+     * @return the sidecar, or null if the buffer isn't a sidecar this version can read
+     */
+    public static CollisionSidecar read(ByteBuffer buffer) {
+        if (buffer.remaining() < 28) return null;
+        if (buffer.getInt() != MAGIC) return null;
+        if (buffer.getInt() != VERSION) return null;
+
+        CollisionSidecar sidecar = new CollisionSidecar();
+        sidecar.tmxLength = buffer.getInt();
+        sidecar.tmxHash = buffer.getInt();
+        sidecar.width = buffer.getInt();
+        sidecar.height = buffer.getInt();
+        sidecar.tileSize = buffer.getFloat();
+        if (sidecar.width < 0 || sidecar.height < 0 || buffer.remaining() < sidecar.width * sidecar.height + 4) return null;
+
+        sidecar.rampTypes = new byte[sidecar.width * sidecar.height];
+        buffer.get(sidecar.rampTypes);
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() < count * 16) return null;
+        sidecar.segments = new float[count * 4];
+        for (int i = 0; i < sidecar.segments.length; i++) {
+            sidecar.segments[i] = buffer.getFloat();
+        }
+        // optional, only there when the bake was asked for fields
+        sidecar.field = TerrainField.read(buffer, sidecar.width, sidecar.height, sidecar.tileSize);
+        return sidecar;
+    }
+
+    public byte[] write() {
+        int fieldSize = (field != null) ? field.byteSize() : 0;
+        ByteBuffer buffer = ByteBuffer.allocate(32 + rampTypes.length + segments.length * 4 + fieldSize);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(tmxLength);
+        buffer.putInt(tmxHash);
+        buffer.putInt(width);
+        buffer.putInt(height);
+        buffer.putFloat(tileSize);
+        buffer.put(rampTypes);
+        buffer.putInt(segments.length / 4);
+        for (float value : segments) {
+            buffer.putFloat(value);
+        }
+        if (field != null) {
+            field.write(buffer);
+        }
+        return buffer.array();
+    }
+
+    public boolean matchesMap(byte[] tmxBytes) {
+        return tmxLength == tmxBytes.length && tmxHash == hash(tmxBytes);
+    }
+
+    public boolean matchesLayer(int width, int height, float tileSize) {
+        return this.width == width && this.height == height && this.tileSize == tileSize;
+    }
+
+    public Array<Segment2D> createSegments() {
+        Array<Segment2D> out = new Array<>(segments.length / 4);
+        for (int i = 0; i < segments.length; i += 4) {
+            out.add(new Segment2D(segments[i], segments[i + 1], segments[i + 2], segments[i + 3]));
+        }
+        return out;
+    }
+
+}
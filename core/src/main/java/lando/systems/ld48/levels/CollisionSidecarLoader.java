@@ -0,0 +1,55 @@
+package lando.systems.ld48.levels;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import lando.systems.ld48.Platform;
+
+/**
+ * Reads a baked {@link CollisionSidecar} and checks it against its map, all off the render thread.
+ * A sidecar that can't be read or doesn't match the map still loads, with {@link CollisionSidecar#current} false.
+ */
+public class CollisionSidecarLoader extends AsynchronousAssetLoader<CollisionSidecar, CollisionSidecarLoader.Parameters> {
+
+    public static class Parameters extends AssetLoaderParameters<CollisionSidecar> {
+        // the map the sidecar was baked from, to check it against
+        public String mapFileName;
+    }
+
+    private final Platform platform;
+    private CollisionSidecar sidecar;
+
+    public CollisionSidecarLoader(FileHandleResolver resolver, Platform platform) {
+        super(resolver);
+        this.platform = platform;
+    }
+
+    @Override
+    public void loadAsync(AssetManager manager, String fileName, FileHandle file, Parameters parameter) {
+        sidecar = CollisionSidecar.read(platform.mapFile(file));
+        if (sidecar == null) {
+            sidecar = new CollisionSidecar();
+            sidecar.current = false;
+        } else if (parameter != null && parameter.mapFileName != null) {
+            sidecar.current = sidecar.matchesMap(resolve(parameter.mapFileName).readBytes());
+        }
+    }
+
+    @Override
+    public CollisionSidecar loadSync(AssetManager manager, String fileName, FileHandle file, Parameters parameter) {
+        CollisionSidecar loaded = sidecar;
+        sidecar = null;
+        return loaded;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, Parameters parameter) {
+        return null;
+    }
+
+}
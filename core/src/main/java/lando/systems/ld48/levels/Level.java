@@ -3,24 +3,23 @@ package lando.systems.ld48.levels;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.*;
 import com.badlogic.gdx.maps.tiled.TiledMap;
-import com.badlogic.gdx.maps.tiled.TiledMapRenderer;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.maps.tiled.TmxMapLoader;
-import com.badlogic.gdx.maps.tiled.renderers.OrthoCachedTiledMapRenderer;
 import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.Polyline;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.*;
 import lando.systems.ld48.Assets;
+import lando.systems.ld48.Config;
 import lando.systems.ld48.entities.bosses.zuck.ZuckTank;
+import lando.systems.ld48.physics.PhysicsSystem;
 import lando.systems.ld48.physics.Segment2D;
+import lando.systems.ld48.physics.SegmentStore;
+import lando.systems.ld48.physics.TerrainField;
 import lando.systems.ld48.screens.GameScreen;
 import lando.systems.ld48.utils.Utils;
 
@@ -29,6 +28,13 @@ public class Level {
     public static final float TILE_SIZE = 32f;
 
     public enum LayerType { background, collision, foreground }
+
+    // ramp classification for collision cells, named for the corner of the tile that is see-through
+    public static final byte RAMP_NONE = 0;
+    public static final byte RAMP_OPEN_TOP_LEFT = 1;
+    public static final byte RAMP_OPEN_TOP_RIGHT = 2;
+    public static final byte RAMP_OPEN_BOTTOM_LEFT = 3;
+    public static final byte RAMP_OPEN_BOTTOM_RIGHT = 4;
     public static class Layer {
         public final int[] index;
         public final TiledMapTileLayer tileLayer;
@@ -42,16 +48,28 @@ public class Level {
 
     private String name;
     private TiledMap map;
-    private TiledMapRenderer renderer;
+    private ChunkedTileMapRenderer renderer;
     private MapLayer objectsLayer;
     private ObjectMap<LayerType, Layer> layers;
 
-    private Pool<Rectangle> rectPool = Pools.get(Rectangle.class);
     private Array<Rectangle> tileRects = new Array<>();
     private Rectangle tempRect = new Rectangle();
 
     private boolean collisionDirty;
-    private Array<Segment2D> collisionSegments;
+    private SegmentStore collisionSegments;
+    // segment changes since the physics system last looked, so it can patch its indices instead of rebuilding
+    private Array<Segment2D> addedSegments = new Array<>();
+    private Array<Segment2D> removedSegments = new Array<>();
+    private byte[] rampTypes;
+    // large maps can opt in to only keeping the regions near the camera and player resident
+    private boolean streaming;
+    private PhysicsSystem.Engine physicsEngine;
+    private OccupancyGrid occupancy;
+    // null on streaming levels, particles fall back to colliding with segments there
+    private TerrainField terrainField;
+    private LevelStreamer streamer;
+    private final Rectangle streamView = new Rectangle();
+    private Array<Rectangle> collisionRectangles = new Array<>();
 
     public LevelDescriptor currentLevel;
     private LevelDescriptor nextLevel = null;
@@ -72,24 +90,30 @@ public class Level {
         this.assets = gameScreen.game.assets;
         this.currentLevel = levelDescriptor;
 
-        // load map
-        this.map = (new TmxMapLoader()).load(levelDescriptor.mapFileName);
+        // load map, usually already prefetched while the elevator was running
+        this.map = gameScreen.game.levelLoader.getMap(levelDescriptor);
         // note: gwt doesn't like the mipmaps
 //        this.map = (new TmxMapLoader()).load(levelDescriptor.mapFileName, new TmxMapLoader.Parameters() {{
 //            generateMipMaps = true;
 //            textureMinFilter = Texture.TextureFilter.MipMap;
 //            textureMagFilter = Texture.TextureFilter.MipMap;
 //        }});
-        this.renderer = new OrthoCachedTiledMapRenderer(map);
-        ((OrthoCachedTiledMapRenderer) renderer).setBlending(true);
-
         // load map properties
         this.name = map.getProperties().get("name", "[UNNAMED]", String.class);
+        this.streaming = map.getProperties().get("streaming", false, Boolean.class);
+        this.physicsEngine = PhysicsSystem.Engine.valueOf(map.getProperties().get("physics-engine", "segments", String.class));
         String nextLevelName = map.getProperties().get("next-level", null, String.class);
         if (nextLevelName != null) {
             this.nextLevel = LevelDescriptor.valueOf(nextLevelName);
         }
 
+        if (streaming) {
+            int regionCells = Config.streamingRegionSize * Config.streamingRegionSize;
+            this.renderer = new ChunkedTileMapRenderer(map, Config.streamingRegionBudget * regionCells);
+        } else {
+            this.renderer = new ChunkedTileMapRenderer(map);
+        }
+
         // load and validate map layers
         MapLayers mapLayers = map.getLayers();
         this.layers = new ObjectMap<>();
@@ -183,8 +207,18 @@ public class Level {
             throw new GdxRuntimeException("Map missing required object: 'exit'");
         }
 
+        long buildStart = TimeUtils.nanoTime();
         buildCollisionBounds();
         collisionDirty = true;
+        Gdx.app.log("Level", "Collision for " + levelDescriptor + " built in " + TimeUtils.timeSinceNanos(buildStart) / 1000 + "us");
+    }
+
+    /**
+     * Free the map's render cache and hand the map back to the level loader
+     */
+    public void dispose() {
+        renderer.dispose();
+        gameScreen.game.levelLoader.release(currentLevel);
     }
 
     public void update(float dt) {
@@ -193,6 +227,36 @@ public class Level {
         }
     }
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public PhysicsSystem.Engine getPhysicsEngine() {
+        return physicsEngine;
+    }
+
+    /**
+     * Stream regions in and out around the camera and a focus point (the player), does nothing for regular levels
+     */
+    public void updateStreaming(OrthographicCamera camera, float focusX, float focusY) {
+        if (!streaming) return;
+        float width = camera.viewportWidth * camera.zoom;
+        float height = camera.viewportHeight * camera.zoom;
+        streamView.set(camera.position.x - width / 2f, camera.position.y - height / 2f, width, height);
+        streamer.update(streamView, focusX, focusY);
+    }
+
+    /**
+     * Whether the collision around a point is loaded, anything outside it should hold still
+     */
+    public boolean isResident(float x, float y) {
+        return !streaming || streamer.isResident(x, y);
+    }
+
+    public LevelStreamer getStreamer() {
+        return streamer;
+    }
+
     public Exit getExit() {
         return exit;
     }
@@ -222,9 +286,41 @@ public class Level {
     }
 
     public Array<Segment2D> getCollisionSegments() {
+        return collisionSegments.getSegments();
+    }
+
+    public SegmentStore getCollisionStore() {
         return collisionSegments;
     }
 
+    public byte getRampType(int x, int y) {
+        TiledMapTileLayer collisionLayer = layers.get(LayerType.collision).tileLayer;
+        if (x < 0 || y < 0 || x >= collisionLayer.getWidth() || y >= collisionLayer.getHeight()) return RAMP_NONE;
+        return rampTypes[x + y * collisionLayer.getWidth()];
+    }
+
+    /**
+     * Rectangles added at runtime through {@link #addCollisionRectangle(Rectangle)},
+     * these have segments but no cells in the collision layer
+     */
+    public Array<Rectangle> getCollisionRectangles() {
+        return collisionRectangles;
+    }
+
+    /**
+     * Which collision tiles are solid, cheap enough for entities to probe every tick
+     */
+    public OccupancyGrid getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Signed distance to the level's collision, null when the level is streamed
+     */
+    public TerrainField getTerrainField() {
+        return terrainField;
+    }
+
     public boolean isCollisionDirty() {
         return collisionDirty;
     }
@@ -233,6 +329,33 @@ public class Level {
         collisionDirty = dirty;
     }
 
+    public Array<Segment2D> getAddedSegments() {
+        return addedSegments;
+    }
+
+    public Array<Segment2D> getRemovedSegments() {
+        return removedSegments;
+    }
+
+    /**
+     * Swap a tile in one of the decoration layers, only the render chunk holding it gets re-baked.
+     * Collision tiles carry segments, ramp types and the terrain field along with them,
+     * runtime collision changes go through {@link #addCollisionRectangle(Rectangle)} instead.
+     */
+    public void setCell(LayerType layerType, int x, int y, TiledMapTileLayer.Cell cell) {
+        if (layerType == LayerType.collision) {
+            throw new GdxRuntimeException("Can't set cells in the collision layer at runtime, use addCollisionRectangle / removeCollisionRectangle");
+        }
+        Layer layer = layers.get(layerType);
+        layer.tileLayer.setCell(x, y, cell);
+        renderer.invalidate(layer.index[0], x, y);
+    }
+
+    public void clearSegmentChanges() {
+        addedSegments.clear();
+        removedSegments.clear();
+    }
+
     // ------------------------------------------------------------------------
     // Render methods
     // ------------------------------------------------------------------------
@@ -244,7 +367,7 @@ public class Level {
         }
 
         renderer.setView(camera);
-        renderer.render(layer.index);
+        renderer.render(layer.index[0]);
     }
 
     public void renderObjects(SpriteBatch batch) {
@@ -255,7 +378,7 @@ public class Level {
     public void renderDebug(SpriteBatch batch) {
         float width = 2;
         float hue = 0;
-        for (Segment2D segment : collisionSegments) {
+        for (Segment2D segment : collisionSegments.getSegments()) {
             hue += .17;
             batch.setColor(Utils.hsvToRgb(hue, 1f, 1f, segmentColor));
             batch.draw(assets.whitePixel, segment.start.x, segment.start.y - width / 2f, 0, width / 2f, segment.delta.len(), width, 1, 1, segment.getRotation());
@@ -270,11 +393,11 @@ public class Level {
     // ------------------------------------------------------------------------
 
     public void addCollisionRectangle(Rectangle rect) {
-        collisionSegments.add(new Segment2D(new Vector2(rect.x, rect.y), new Vector2(rect.x + rect.width, rect.y)));
-        collisionSegments.add(new Segment2D(new Vector2(rect.x+rect.width, rect.y), new Vector2(rect.x + rect.width, rect.y + rect.height)));
-        collisionSegments.add(new Segment2D(new Vector2(rect.x + rect.width, rect.y + rect.height), new Vector2(rect.x, rect.y + rect.height)));
-        collisionSegments.add(new Segment2D(new Vector2(rect.x, rect.y + rect.height), new Vector2(rect.x, rect.y)));
-        collisionDirty = true;
+        addSegment(new Segment2D(new Vector2(rect.x, rect.y), new Vector2(rect.x + rect.width, rect.y)));
+        addSegment(new Segment2D(new Vector2(rect.x+rect.width, rect.y), new Vector2(rect.x + rect.width, rect.y + rect.height)));
+        addSegment(new Segment2D(new Vector2(rect.x + rect.width, rect.y + rect.height), new Vector2(rect.x, rect.y + rect.height)));
+        addSegment(new Segment2D(new Vector2(rect.x, rect.y + rect.height), new Vector2(rect.x, rect.y)));
+        collisionRectangles.add(new Rectangle(rect));
     }
 
     public void removeCollisionRectangle(Rectangle rect) {
@@ -287,158 +410,165 @@ public class Level {
         removeSegment(right);
         removeSegment(top);
         removeSegment(left);
-        collisionDirty = true;
+        collisionRectangles.removeValue(rect, false);
     }
 
+    private void addSegment(Segment2D segment) {
+        collisionSegments.add(segment);
+        addedSegments.add(segment);
+    }
+
+    /**
+     * Remove the collision covering this segment's span, if it was merged into a longer run
+     * the run gets split and the rest of it stays
+     */
     private void removeSegment(Segment2D segment){
-        if (!collisionSegments.removeValue(segment, false)){
-            Gdx.app.log("Collision", "need to write this to handle consolidated physics.");
+        if (!collisionSegments.removePiece(segment.start.x, segment.start.y, segment.end.x, segment.end.y, removedSegments, addedSegments)) {
+            Gdx.app.log("Collision", "No collision segment covers " + segment.start + " -> " + segment.end);
+        }
+    }
+
+    private final LevelStreamer.Listener streamListener = new LevelStreamer.Listener() {
+        @Override
+        public void regionLoaded(LevelStreamer.Region region) {
+            for (Segment2D segment : region.segments) {
+                addSegment(segment);
+            }
+            // spawners fire the first time their region comes in, whatever they spawned sticks around after that
+            if (!region.visited) {
+                spawnIn(region.bounds);
+            }
+        }
+
+        @Override
+        public void regionEvicted(LevelStreamer.Region region) {
+            for (Segment2D segment : region.segments) {
+                if (collisionSegments.remove(segment)) {
+                    removedSegments.add(segment);
+                }
+            }
+        }
+    };
+
+    private void spawnIn(Rectangle bounds) {
+        for (SpawnBoss spawner : bossSpawns) {
+            if (inRegion(bounds, spawner.pos)) spawner.spawn(gameScreen);
+        }
+        for (SpawnEnemy spawner : enemySpawns) {
+            if (inRegion(bounds, spawner.pos)) spawner.spawn(gameScreen);
+        }
+        for (SpawnPickup spawner : pickupSpawns) {
+            if (inRegion(bounds, spawner.pos)) spawner.spawn(gameScreen);
         }
+        for (SpawnInteractable spawner : interactableSpawns) {
+            if (inRegion(bounds, spawner.pos)) spawner.spawn(gameScreen);
+        }
+    }
+
+    // half open so a spawner sitting on a region border only belongs to one of them
+    private boolean inRegion(Rectangle bounds, Vector2 pos) {
+        return pos.x >= bounds.x && pos.x < bounds.x + bounds.width
+            && pos.y >= bounds.y && pos.y < bounds.y + bounds.height;
     }
 
     private void buildCollisionBounds() {
-        collisionSegments = new Array<>();
         TiledMapTileLayer collisionLayer = layers.get(LayerType.collision).tileLayer;
         float tileWidth = collisionLayer.getTileWidth();
+        this.collisionSegments = new SegmentStore(tileWidth);
 
-        // toggle this to allow for 45 degree ramps;
-        // but if it's on the parser gets confused about stylistic tiles with transparency that aren't actual ramps
-        boolean pixelPrecision = true;
-        Pixmap pixmap = null;
-
-        // Build Edges
+        this.occupancy = new OccupancyGrid(collisionLayer.getWidth(), collisionLayer.getHeight(), tileWidth);
         for (int x = 0; x < collisionLayer.getWidth(); x++) {
-            for (int y =0; y < collisionLayer.getHeight(); y++) {
-                TiledMapTileLayer.Cell cell = collisionLayer.getCell(x, y);
-                if (cell == null) continue;
-
-                TiledMapTileLayer.Cell cellRight  = collisionLayer.getCell(x + 1, y);
-                TiledMapTileLayer.Cell cellLeft   = collisionLayer.getCell(x - 1, y);
-                TiledMapTileLayer.Cell cellTop    = collisionLayer.getCell(x, y + 1);
-                TiledMapTileLayer.Cell cellBottom = collisionLayer.getCell(x, y - 1);
-
-                Segment2D topSegment    = null;
-                Segment2D leftSegment   = null;
-                Segment2D bottomSegment = null;
-                Segment2D rightSegment  = null;
-                if (cellRight  == null) rightSegment  = new Segment2D((x+1) * tileWidth, y     * tileWidth, (x+1) * tileWidth, (y+1) * tileWidth);
-                if (cellLeft   == null) leftSegment   = new Segment2D((x)   * tileWidth, (y+1) * tileWidth, (x)   * tileWidth, (y)   * tileWidth);
-                if (cellTop    == null) topSegment    = new Segment2D((x+1) * tileWidth, (y+1) * tileWidth, (x)   * tileWidth, (y+1) * tileWidth);
-                if (cellBottom == null) bottomSegment = new Segment2D((x)   * tileWidth, (y)   * tileWidth, (x+1) * tileWidth, (y)   * tileWidth);
-                if (!pixelPrecision) {
-                    if (topSegment    != null) collisionSegments.add(topSegment);
-                    if (rightSegment  != null) collisionSegments.add(rightSegment);
-                    if (leftSegment   != null) collisionSegments.add(leftSegment);
-                    if (bottomSegment != null) collisionSegments.add(bottomSegment);
-                }
-
-                // NOTE - needed for ramps, but we don't care at the moment and it misreads the prototype tileset
-                if (pixelPrecision) {
-                    if (pixmap == null) {
-                        Texture texture = cell.getTile().getTextureRegion().getTexture();
-                        if (!texture.getTextureData().isPrepared()) {
-                            texture.getTextureData().prepare();
-                        }
-                        pixmap = texture.getTextureData().consumePixmap();
-                    }
-
-                    // look for transparent pixels on the edges of a tile to indicate a ramp
-                    TextureRegion region = cell.getTile().getTextureRegion();
-                    int valueL = pixmap.getPixel(region.getRegionX(), region.getRegionY() + region.getRegionHeight() / 2);
-                    int valueR = pixmap.getPixel(region.getRegionX() + region.getRegionWidth() - 1, region.getRegionY() + region.getRegionHeight() / 2);
-                    int valueU = pixmap.getPixel(region.getRegionX() + region.getRegionWidth() / 2, region.getRegionY());
-                    int valueD = pixmap.getPixel(region.getRegionX() + region.getRegionWidth() / 2, region.getRegionY() + region.getRegionHeight() - 1);
-                    Color colorL = new Color(valueL);
-                    Color colorR = new Color(valueR);
-                    Color colorU = new Color(valueU);
-                    Color colorD = new Color(valueD);
-
-                    if (colorL.a == 0f && colorU.a == 0f) {
-                        if (rightSegment  != null) collisionSegments.add(rightSegment);
-                        if (bottomSegment != null) collisionSegments.add(bottomSegment);
-                        collisionSegments.add(new Segment2D((x + 1) * tileWidth, (y + 1) * tileWidth, (x) * tileWidth, (y) * tileWidth));
-                    } else if (colorR.a == 0f && colorU.a == 0f) {
-                        if (leftSegment   != null) collisionSegments.add(leftSegment);
-                        if (bottomSegment != null) collisionSegments.add(bottomSegment);
-                        collisionSegments.add(new Segment2D((x + 1) * tileWidth, (y) * tileWidth, (x) * tileWidth, (y + 1) * tileWidth));
-                    } else if (colorL.a == 0f && colorD.a == 0f) {
-                        if (rightSegment != null) collisionSegments.add(rightSegment);
-                        if (topSegment   != null) collisionSegments.add(topSegment);
-                        collisionSegments.add(new Segment2D((x) * tileWidth, (y + 1) * tileWidth, (x + 1) * tileWidth, (y) * tileWidth));
-                    } else if (colorR.a == 0f && colorD.a == 0f) {
-                        if (leftSegment != null) collisionSegments.add(leftSegment);
-                        if (topSegment  != null) collisionSegments.add(topSegment);
-                        collisionSegments.add(new Segment2D((x) * tileWidth, (y) * tileWidth, (x + 1) * tileWidth, (y + 1) * tileWidth));
-                    } else {
-                        if (topSegment    != null) collisionSegments.add(topSegment);
-                        if (rightSegment  != null) collisionSegments.add(rightSegment);
-                        if (leftSegment   != null) collisionSegments.add(leftSegment);
-                        if (bottomSegment != null) collisionSegments.add(bottomSegment);
-                    }
+            for (int y = 0; y < collisionLayer.getHeight(); y++) {
+                if (collisionLayer.getCell(x, y) != null) {
+                    occupancy.set(x, y, true);
                 }
             }
         }
 
-        consolidateSegments();
-    }
-
-    private void consolidateSegments(){
-        // consolidate segments
-        boolean fixed = true;
-        while (fixed){
-            fixed = false;
-            for (int i = 0; i < collisionSegments.size; i++) {
-                Segment2D seg = collisionSegments.get(i);
-                for (int j = collisionSegments.size - 1; j > i; j--) {
-                    Segment2D next = collisionSegments.get(j);
-                    if (seg.getRotation() != next.getRotation()) continue;
-                    if (seg.end.epsilonEquals(next.start)) {
-                        seg.setEnd(next.end);
-                        collisionSegments.removeIndex(j);
-                        fixed = true;
-                    } else if (seg.start.epsilonEquals(next.end)){
-                        seg.setStart(next.start);
-                        collisionSegments.removeIndex(j);
-                        fixed = true;
-                    }
-                }
-            }
+        CollisionSidecar sidecar = loadCollisionSidecar(collisionLayer);
+        if (streaming) {
+            // segments get built region by region as the streamer asks for them
+            CollisionBuilder grid = buildCollisionGrid(collisionLayer, sidecar);
+            rampTypes = grid.rampTypes;
+            streamer = new LevelStreamer(grid, Config.streamingRegionSize, Config.streamingRegionBudget, streamListener);
+            return;
+        }
+
+        Array<Segment2D> collisionSegments;
+        if (sidecar != null) {
+            rampTypes = sidecar.rampTypes;
+            collisionSegments = sidecar.createSegments();
+        } else {
+            CollisionBuilder builder = buildCollisionGrid(collisionLayer, null);
+            long mergeStart = TimeUtils.nanoTime();
+            collisionSegments = builder.build();
+            Gdx.app.log("Level", "Built " + collisionSegments.size + " collision segments in " + TimeUtils.timeSinceNanos(mergeStart) / 1000 + "us");
+            rampTypes = builder.rampTypes;
+        }
+
+        for (Segment2D segment : collisionSegments) {
+            this.collisionSegments.add(segment);
         }
+
+        buildTerrainField(collisionLayer, sidecar);
     }
 
-    public void getTiles(float startX, float startY, float endX, float endY, Array<Rectangle> tiles) {
-        if (startX > endX) {
-            float t = startX;
-            startX = endX;
-            endX = t;
+    private void buildTerrainField(TiledMapTileLayer collisionLayer, CollisionSidecar sidecar) {
+        terrainField = new TerrainField(collisionLayer.getWidth(), collisionLayer.getHeight(), collisionLayer.getTileWidth(), Config.terrainFieldResolution);
+        terrainField.setSolids(occupancy, rampTypes, collisionRectangles);
+        if (sidecar != null && sidecar.field != null && sidecar.field.resolution == Config.terrainFieldResolution) {
+            // the sidecar is shared with the asset manager, runtime collision changes go into our own copy
+            System.arraycopy(sidecar.field.distances, 0, terrainField.distances, 0, terrainField.distances.length);
+            return;
         }
-        if (startY > endY) {
-            float t = startY;
-            startY = endY;
-            endY = t;
+
+        long fieldStart = TimeUtils.nanoTime();
+        terrainField.bake(0, 0, collisionLayer.getWidth() * collisionLayer.getTileWidth(), collisionLayer.getHeight() * collisionLayer.getTileHeight(), getCollisionSegments());
+        Gdx.app.log("Level", "Baked terrain field in " + TimeUtils.timeSinceNanos(fieldStart) / 1000 + "us");
+    }
+
+    /**
+     * The baked collision next to the map if there is one and it was baked from this version of the map
+     */
+    private CollisionSidecar loadCollisionSidecar(TiledMapTileLayer collisionLayer) {
+        CollisionSidecar sidecar = gameScreen.game.levelLoader.getCollision(currentLevel);
+        if (sidecar == null) return null;
+        if (!sidecar.matchesLayer(collisionLayer.getWidth(), collisionLayer.getHeight(), collisionLayer.getTileWidth())) {
+            Gdx.app.log("Level", "Collision sidecar for " + currentLevel + " doesn't match the collision layer, building collision from the map");
+            return null;
         }
+        return sidecar;
+    }
 
-        rectPool.freeAll(tiles);
-        tiles.clear();
+    /**
+     * Solid cells from the collision layer, ramps from the sidecar when there is one or from the tileset pixels if not
+     */
+    private CollisionBuilder buildCollisionGrid(TiledMapTileLayer collisionLayer, CollisionSidecar sidecar) {
+        CollisionBuilder builder = new CollisionBuilder(collisionLayer.getWidth(), collisionLayer.getHeight(), collisionLayer.getTileWidth());
+        if (sidecar != null) {
+            for (int x = 0; x < collisionLayer.getWidth(); x++) {
+                for (int y = 0; y < collisionLayer.getHeight(); y++) {
+                    if (collisionLayer.getCell(x, y) == null) continue;
+                    builder.setCell(x, y, sidecar.rampTypes[x + y * collisionLayer.getWidth()]);
+                }
+            }
+            return builder;
+        }
 
-        TiledMapTileLayer collisionLayer = layers.get(LayerType.collision).tileLayer;
-        int iStartX = (int) (startX / collisionLayer.getTileWidth());
-        int iStartY = (int) (startY / collisionLayer.getTileHeight());
-        int iEndX   = (int) (endX   / collisionLayer.getTileWidth());
-        int iEndY   = (int) (endY   / collisionLayer.getTileHeight());
-        for (int y = iStartY; y <= iEndY; y++) {
-            for (int x = iStartX; x <= iEndX; x++) {
+        // toggle this to allow for 45 degree ramps;
+        // but if it's on the parser gets confused about stylistic tiles with transparency that aren't actual ramps
+        boolean pixelPrecision = true;
+        TileRampCache rampCache = new TileRampCache(map);
+
+        for (int x = 0; x < collisionLayer.getWidth(); x++) {
+            for (int y = 0; y < collisionLayer.getHeight(); y++) {
                 TiledMapTileLayer.Cell cell = collisionLayer.getCell(x, y);
-                if (cell != null) {
-                    Rectangle rect = rectPool.obtain();
-                    rect.set(x * collisionLayer.getTileWidth(),
-                            y * collisionLayer.getTileHeight(),
-                            collisionLayer.getTileWidth(),
-                            collisionLayer.getTileHeight());
-                    tiles.add(rect);
-                }
+                if (cell == null) continue;
+                builder.setCell(x, y, pixelPrecision ? rampCache.get(cell.getTile()) : RAMP_NONE);
             }
         }
+        rampCache.releasePixmaps();
+        return builder;
     }
 
 }
@@ -0,0 +1,95 @@
+package lando.systems.ld48.levels;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import lando.systems.ld48.Platform;
+
+/**
+ * Loads level maps and their baked collision through the asset manager, so a level can be prefetched while
+ * something else is on screen (the elevator between levels).
+ *
+ * Parsing the tmx, decoding tileset images and reading the collision sidecar happen on the asset manager's
+ * worker thread, only the texture uploads land on the render thread and {@link #update()} spreads those over frames.
+ * Anything that wasn't prefetched, or hasn't finished yet, is loaded on the spot when the level asks for it.
+ */
+public class LevelLoader {
+
+    // how long update() may spend on the render thread each frame
+    public static final int UPDATE_BUDGET_MILLIS = 4;
+
+    private final AssetManager mgr;
+
+    public LevelLoader(AssetManager mgr, Platform platform) {
+        this.mgr = mgr;
+        FileHandleResolver resolver = new InternalFileHandleResolver();
+        mgr.setLoader(TiledMap.class, new TmxMapLoader(resolver));
+        mgr.setLoader(CollisionSidecar.class, new CollisionSidecarLoader(resolver, platform));
+    }
+
+    /**
+     * Start loading a level's map in the background, each prefetch needs a matching {@link #release(LevelDescriptor)}
+     */
+    public void prefetch(LevelDescriptor descriptor) {
+        if (descriptor.mapFileName.isEmpty()) return;
+
+        mgr.load(descriptor.mapFileName, TiledMap.class);
+        String sidecarFileName = CollisionSidecar.pathFor(descriptor.mapFileName);
+        if (Gdx.files.internal(sidecarFileName).exists()) {
+            CollisionSidecarLoader.Parameters params = new CollisionSidecarLoader.Parameters();
+            params.mapFileName = descriptor.mapFileName;
+            mgr.load(sidecarFileName, CollisionSidecar.class, params);
+        }
+    }
+
+    /**
+     * Push queued loads along a little, call once a frame while something is prefetching
+     */
+    public boolean update() {
+        return mgr.update(UPDATE_BUDGET_MILLIS);
+    }
+
+    public boolean isLoaded(LevelDescriptor descriptor) {
+        return mgr.isLoaded(descriptor.mapFileName, TiledMap.class);
+    }
+
+    public TiledMap getMap(LevelDescriptor descriptor) {
+        if (!mgr.isLoaded(descriptor.mapFileName, TiledMap.class)) {
+            if (!mgr.contains(descriptor.mapFileName, TiledMap.class)) {
+                prefetch(descriptor);
+            }
+            Gdx.app.log("LevelLoader", descriptor + " wasn't prefetched in time, finishing it now");
+            mgr.finishLoadingAsset(descriptor.mapFileName);
+        }
+        return mgr.get(descriptor.mapFileName, TiledMap.class);
+    }
+
+    /**
+     * The level's baked collision, or null if it has none or it's out of date with the map
+     */
+    public CollisionSidecar getCollision(LevelDescriptor descriptor) {
+        String sidecarFileName = CollisionSidecar.pathFor(descriptor.mapFileName);
+        if (!mgr.contains(sidecarFileName, CollisionSidecar.class)) return null;
+
+        CollisionSidecar sidecar = mgr.finishLoadingAsset(sidecarFileName);
+        if (!sidecar.current) {
+            Gdx.app.log("LevelLoader", "Collision sidecar " + sidecarFileName + " is stale, building collision from the map (run 'gradlew core:bakeLevels')");
+            return null;
+        }
+        return sidecar;
+    }
+
+    public void release(LevelDescriptor descriptor) {
+        if (mgr.contains(descriptor.mapFileName, TiledMap.class)) {
+            mgr.unload(descriptor.mapFileName);
+        }
+        String sidecarFileName = CollisionSidecar.pathFor(descriptor.mapFileName);
+        if (mgr.contains(sidecarFileName, CollisionSidecar.class)) {
+            mgr.unload(sidecarFileName);
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+package lando.systems.ld48.levels;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import lando.systems.ld48.physics.Segment2D;
+
+/**
+ * Keeps only the part of a big level near the camera and player resident.
+ *
+ * The level is cut into square regions of tiles. Regions the view or the player are in (plus a margin) get their
+ * collision segments built when they're needed, regions well outside that get evicted again, and no more than
+ * 'budget' regions stay resident at once (the farthest from the player go first). What a region load or eviction
+ * means for the level is up to the {@link Listener}.
+ */
+public class LevelStreamer {
+
+    public interface Listener {
+        void regionLoaded(Region region);
+        void regionEvicted(Region region);
+    }
+
+    public static class Region {
+        public final int col;
+        public final int row;
+        public final Rectangle bounds = new Rectangle();
+        public final Array<Segment2D> segments = new Array<>();
+        public boolean resident;
+        // true once the region has been loaded at least once
+        public boolean visited;
+        boolean wanted;
+
+        Region(int col, int row) {
+            this.col = col;
+            this.row = row;
+        }
+    }
+
+    private final CollisionBuilder grid;
+    private final int regionSize;
+    private final int budget;
+    private final Listener listener;
+    private final float regionWorldSize;
+    // regions within this much of the view or player get loaded, ones farther than twice it get evicted
+    private final float margin;
+
+    private final int cols;
+    private final int rows;
+    private final Region[] regions;
+    private final Array<Region> resident = new Array<>();
+    private final Array<Region> wanted = new Array<>();
+    private final Rectangle area = new Rectangle();
+    private boolean warnedOverBudget;
+
+    public LevelStreamer(CollisionBuilder grid, int regionSize, int budget, Listener listener) {
+        this.grid = grid;
+        this.regionSize = regionSize;
+        this.budget = budget;
+        this.listener = listener;
+        this.regionWorldSize = regionSize * grid.tileSize;
+        this.margin = regionWorldSize / 2f;
+        this.cols = MathUtils.ceil(grid.width / (float) regionSize);
+        this.rows = MathUtils.ceil(grid.height / (float) regionSize);
+        this.regions = new Region[cols * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                Region region = new Region(col, row);
+                region.bounds.set(col * regionWorldSize, row * regionWorldSize, regionWorldSize, regionWorldSize);
+                regions[col + row * cols] = region;
+            }
+        }
+    }
+
+    /**
+     * Load what the view and focus point need, then evict what's far away or over budget
+     */
+    public void update(Rectangle view, float focusX, float focusY) {
+        for (int i = 0; i < wanted.size; i++) {
+            wanted.get(i).wanted = false;
+        }
+        wanted.clear();
+        want(view.x - margin, view.y - margin, view.width + 2 * margin, view.height + 2 * margin);
+        want(focusX - margin, focusY - margin, 2 * margin, 2 * margin);
+
+        for (int i = 0; i < wanted.size; i++) {
+            Region region = wanted.get(i);
+            if (!region.resident) {
+                load(region);
+            }
+        }
+
+        float keep = 2 * margin;
+        for (int i = resident.size - 1; i >= 0; i--) {
+            Region region = resident.get(i);
+            if (region.wanted) continue;
+            boolean nearView = overlaps(region.bounds, view.x - keep, view.y - keep, view.width + 2 * keep, view.height + 2 * keep);
+            boolean nearFocus = overlaps(region.bounds, focusX - keep, focusY - keep, 2 * keep, 2 * keep);
+            if (!nearView && !nearFocus) {
+                evict(i);
+            }
+        }
+
+        while (resident.size > budget) {
+            int farthest = -1;
+            float farthestDist2 = -1;
+            for (int i = 0; i < resident.size; i++) {
+                Region region = resident.get(i);
+                if (region.wanted) continue;
+                float dx = region.bounds.x + regionWorldSize / 2f - focusX;
+                float dy = region.bounds.y + regionWorldSize / 2f - focusY;
+                float dist2 = dx * dx + dy * dy;
+                if (dist2 > farthestDist2) {
+                    farthestDist2 = dist2;
+                    farthest = i;
+                }
+            }
+            if (farthest == -1) {
+                // everything resident is needed right now, the budget is smaller than the view
+                if (!warnedOverBudget) {
+                    Gdx.app.log("LevelStreamer", "Region budget of " + budget + " is smaller than the " + resident.size + " regions in view");
+                    warnedOverBudget = true;
+                }
+                break;
+            }
+            evict(farthest);
+        }
+    }
+
+    public boolean isResident(float x, float y) {
+        Region region = regionAt(x, y);
+        return region != null && region.resident;
+    }
+
+    public Region regionAt(float x, float y) {
+        int col = MathUtils.floor(x / regionWorldSize);
+        int row = MathUtils.floor(y / regionWorldSize);
+        if (col < 0 || row < 0 || col >= cols || row >= rows) return null;
+        return regions[col + row * cols];
+    }
+
+    public Array<Region> getResident() {
+        return resident;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    private void want(float x, float y, float width, float height) {
+        int col0 = Math.max(0, MathUtils.floor(x / regionWorldSize));
+        int row0 = Math.max(0, MathUtils.floor(y / regionWorldSize));
+        int col1 = Math.min(cols - 1, MathUtils.floor((x + width) / regionWorldSize));
+        int row1 = Math.min(rows - 1, MathUtils.floor((y + height) / regionWorldSize));
+        for (int row = row0; row <= row1; row++) {
+            for (int col = col0; col <= col1; col++) {
+                Region region = regions[col + row * cols];
+                if (region.wanted) continue;
+                region.wanted = true;
+                wanted.add(region);
+            }
+        }
+    }
+
+    private void load(Region region) {
+        int col0 = region.col * regionSize;
+        int row0 = region.row * regionSize;
+        region.segments.addAll(grid.build(col0, row0, col0 + regionSize, row0 + regionSize));
+        region.resident = true;
+        resident.add(region);
+        listener.regionLoaded(region);
+        region.visited = true;
+    }
+
+    private void evict(int residentIndex) {
+        Region region = resident.removeIndex(residentIndex);
+        listener.regionEvicted(region);
+        region.resident = false;
+        region.segments.clear();
+    }
+
+    private static boolean overlaps(Rectangle r, float x, float y, float width, float height) {
+        return r.x < x + width && r.x + r.width > x && r.y < y + height && r.y + r.height > y;
+    }
+
+}
@@ -52,6 +52,8 @@ public class LevelTransition {
     public LevelTransition(Exit exit, GameScreen screen) {
         this.type = exit.levelTransitionType;
         this.targetLevel = exit.targetLevel;
+        // get the next level loading while the elevator plays
+        screen.game.levelLoader.prefetch(targetLevel);
         switch (type) {
             default:
             //TODO: update transition text to fit the lore, update transitionText as necessary. May need to move transitionText to more appropriate place
@@ -118,6 +120,8 @@ public class LevelTransition {
     }
 
     public void update(float dt) {
+        screen.game.levelLoader.update();
+
         scroll -= dt * scrollSpeed;
         stateTime += dt;
 
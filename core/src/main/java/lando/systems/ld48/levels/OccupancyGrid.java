@@ -0,0 +1,117 @@
+package lando.systems.ld48.levels;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+
+/**
+ * Which collision tiles are solid, one bit per tile packed 64 to a long, row by row.
+ *
+ * Queries take world coordinates the same way Level.getTiles used to: the tiles under both end points are included,
+ * and the end points can come in either order. Nothing here allocates, so entities can poll it every tick.
+ */
+public class OccupancyGrid {
+
+    public final int width;
+    public final int height;
+    public final float tileSize;
+
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    public OccupancyGrid(int width, int height, float tileSize) {
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.bits = new long[wordsPerRow * height];
+    }
+
+    public void set(int tx, int ty, boolean solid) {
+        if (tx < 0 || ty < 0 || tx >= width || ty >= height) return;
+        int word = ty * wordsPerRow + (tx >>> 6);
+        if (solid) bits[word] |=  (1L << tx);
+        else       bits[word] &= ~(1L << tx);
+    }
+
+    public boolean isSolid(int tx, int ty) {
+        if (tx < 0 || ty < 0 || tx >= width || ty >= height) return false;
+        return (bits[ty * wordsPerRow + (tx >>> 6)] & (1L << tx)) != 0;
+    }
+
+    public boolean anySolid(Rectangle rect) {
+        return anySolid(rect.x, rect.y, rect.x + rect.width, rect.y + rect.height);
+    }
+
+    public boolean anySolid(float startX, float startY, float endX, float endY) {
+        int tx0 = toTile(Math.min(startX, endX));
+        int tx1 = toTile(Math.max(startX, endX));
+        int ty0 = Math.max(0, toTile(Math.min(startY, endY)));
+        int ty1 = Math.min(height - 1, toTile(Math.max(startY, endY)));
+        for (int ty = ty0; ty <= ty1; ty++) {
+            if (firstSolidInRow(ty, tx0, tx1) != -1) return true;
+        }
+        return false;
+    }
+
+    public int countSolid(Rectangle rect) {
+        return countSolid(rect.x, rect.y, rect.x + rect.width, rect.y + rect.height);
+    }
+
+    public int countSolid(float startX, float startY, float endX, float endY) {
+        int tx0 = Math.max(0, toTile(Math.min(startX, endX)));
+        int tx1 = Math.min(width - 1, toTile(Math.max(startX, endX)));
+        int ty0 = Math.max(0, toTile(Math.min(startY, endY)));
+        int ty1 = Math.min(height - 1, toTile(Math.max(startY, endY)));
+        if (tx0 > tx1) return 0;
+
+        int count = 0;
+        for (int ty = ty0; ty <= ty1; ty++) {
+            int row = ty * wordsPerRow;
+            for (int w = tx0 >>> 6; w <= tx1 >>> 6; w++) {
+                count += Long.bitCount(bits[row + w] & mask(w, tx0, tx1));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * First solid tile in row ty between columns tx0 and tx1 (inclusive), or -1, used for ledge and wall checks
+     */
+    public int firstSolidInRow(int ty, int tx0, int tx1) {
+        if (ty < 0 || ty >= height) return -1;
+        tx0 = Math.max(0, tx0);
+        tx1 = Math.min(width - 1, tx1);
+        if (tx0 > tx1) return -1;
+
+        int row = ty * wordsPerRow;
+        for (int w = tx0 >>> 6; w <= tx1 >>> 6; w++) {
+            long word = bits[row + w] & mask(w, tx0, tx1);
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Row just above the unbroken stack of solid tiles that starts at the bottom of column tx, 0 if the bottom is open
+     */
+    public int groundHeight(int tx) {
+        int ty = 0;
+        while (isSolid(tx, ty)) ty++;
+        return ty;
+    }
+
+    public int toTile(float world) {
+        return MathUtils.floor(world / tileSize);
+    }
+
+    // bits of word w that fall inside columns [tx0, tx1]
+    private static long mask(int w, int tx0, int tx1) {
+        long mask = -1L;
+        if (w == tx0 >>> 6) mask &= -1L << tx0;
+        if (w == tx1 >>> 6) mask &= -1L >>> (63 - (tx1 & 63));
+        return mask;
+    }
+
+}
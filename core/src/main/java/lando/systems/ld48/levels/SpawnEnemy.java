@@ -31,7 +31,8 @@ public class SpawnEnemy {
     }
 
     public void update(float dt, GameScreen screen) {
-        if (enemy.dead){
+        // streamed levels don't spawn until the spawner's region has been loaded
+        if (enemy != null && enemy.dead){
             spawnTimer -= dt;
 
             if (spawnTimer <= 0) {
@@ -0,0 +1,119 @@
+package lando.systems.ld48.levels;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Ramp classification per tile instead of per cell.
+ *
+ * A tile always classifies the same way, so its pixels are sampled the first time it shows up and the answer is kept
+ * by tileset image and local tile id for the rest of the session, levels that share a tileset share the work.
+ * Tileset pixmaps are only pulled off the textures on a miss and are released by {@link #releasePixmaps()}.
+ */
+public class TileRampCache {
+
+    private static final int UNKNOWN = -1;
+
+    // tileset image -> local tile id -> ramp type, survives across levels
+    private static final ObjectMap<String, IntIntMap> classified = new ObjectMap<>();
+
+    private final TiledMap map;
+    // this map's global tile id -> ramp type
+    private final IntIntMap byGid = new IntIntMap();
+    private final ObjectMap<Texture, Pixmap> pixmaps = new ObjectMap<>();
+
+    public TileRampCache(TiledMap map) {
+        this.map = map;
+    }
+
+    public byte get(TiledMapTile tile) {
+        int ramp = byGid.get(tile.getId(), UNKNOWN);
+        if (ramp == UNKNOWN) {
+            ramp = lookup(tile);
+            byGid.put(tile.getId(), ramp);
+        }
+        return (byte) ramp;
+    }
+
+    /**
+     * Hand back any tileset pixmaps that were read, call once the level's cells have all been classified
+     */
+    public void releasePixmaps() {
+        for (ObjectMap.Entry<Texture, Pixmap> entry : pixmaps) {
+            // some texture data hands out a pixmap it still owns, only free the ones that are ours
+            if (entry.key.getTextureData().disposePixmap()) {
+                entry.value.dispose();
+            }
+        }
+        pixmaps.clear();
+    }
+
+    private int lookup(TiledMapTile tile) {
+        TiledMapTileSet tileset = findTileset(tile.getId());
+        String image = (tileset != null) ? tileset.getProperties().get("imagesource", null, String.class) : null;
+        if (image == null) {
+            // nothing to share it by, just classify it for this map
+            return classify(tile.getTextureRegion());
+        }
+
+        IntIntMap tiles = classified.get(image);
+        if (tiles == null) {
+            tiles = new IntIntMap();
+            classified.put(image, tiles);
+        }
+        int localId = tile.getId() - tileset.getProperties().get("firstgid", 1, Integer.class);
+        int ramp = tiles.get(localId, UNKNOWN);
+        if (ramp == UNKNOWN) {
+            ramp = classify(tile.getTextureRegion());
+            tiles.put(localId, ramp);
+        }
+        return ramp;
+    }
+
+    private TiledMapTileSet findTileset(int gid) {
+        for (TiledMapTileSet tileset : map.getTileSets()) {
+            if (tileset.getTile(gid) != null) return tileset;
+        }
+        return null;
+    }
+
+    // look for transparent pixels on the edges of a tile to indicate a ramp
+    private byte classify(TextureRegion region) {
+        Pixmap pixmap = pixmapFor(region.getTexture());
+        int x = region.getRegionX();
+        int y = region.getRegionY();
+        int w = region.getRegionWidth();
+        int h = region.getRegionHeight();
+        return CollisionBuilder.classifyRamp(
+                isClear(pixmap, x,         y + h / 2),
+                isClear(pixmap, x + w - 1, y + h / 2),
+                isClear(pixmap, x + w / 2, y),
+                isClear(pixmap, x + w / 2, y + h - 1));
+    }
+
+    private Pixmap pixmapFor(Texture texture) {
+        Pixmap pixmap = pixmaps.get(texture);
+        if (pixmap == null) {
+            TextureData data = texture.getTextureData();
+            if (!data.isPrepared()) {
+                data.prepare();
+            }
+            pixmap = data.consumePixmap();
+            pixmaps.put(texture, pixmap);
+        }
+        return pixmap;
+    }
+
+    // getPixel hands back RGBA8888 whatever the pixmap's format, alpha is the low byte
+    private static boolean isClear(Pixmap pixmap, int x, int y) {
+        return (pixmap.getPixel(x, y) & 0xFF) == 0;
+    }
+
+}
@@ -0,0 +1,609 @@
+package lando.systems.ld48.particles;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Interpolation;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import lando.systems.ld48.utils.SimplePath;
+
+/**
+ * All the particles for one layer, stored as parallel arrays indexed 0..size-1.
+ * Dead particles are swap-removed so the live range stays packed, which means draw order isn't stable.
+ *
+ * Interpolated properties (size, rotation, color) aren't stored, they're derived from the progress value
+ * whenever they're needed.
+ */
+public class ParticleBuffer {
+
+    // TODO: add additional interpolators so that some properties can be interpolated independent of others (alpha vs anim for exaample)
+    // TODO: add a 'drop shadow' flag to particle and initializer to improve readability for things like text particles
+    // TODO: add optional [x|y]Jitter so several can be spawned at once with the same params but have a little variation in position
+    // TODO: add optional arrays of sizes / rotations so that multiple values can be interpolated across throughout the lifetime of the particle
+    // eg. sizes[{10,10}, {20, 20}, {10, 10}] would interpolate to twice the size by halfway through its lifetime, then back down to initial size by the end, scale this across an arbitrary number of values
+
+    public static final byte FLAG_TIMED      = 1;
+    public static final byte FLAG_PERSISTENT = 1 << 1;
+    public static final byte FLAG_TARGETED   = 1 << 2;
+    public static final byte FLAG_PHYSICS    = 1 << 3;
+    // physics particle that settled, collision skips it until something wakes it
+    public static final byte FLAG_ASLEEP     = 1 << 4;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    public int size;
+    private int capacity;
+
+    public byte[] flags;
+
+    public float[] x, y;
+    public float[] vx, vy;
+    public float[] ax, ay;
+    public float[] accDamp;
+    public float[] bounceScale;
+    // ticks a physics particle has spent bouncing slower than the sleep velocity
+    public byte[] restTicks;
+
+    public float[] xStart, yStart;
+    public float[] xTarget, yTarget;
+
+    public float[] widthStart, widthEnd;
+    public float[] heightStart, heightEnd;
+    public float[] rotationStart, rotationEnd;
+    public float[] rStart, gStart, bStart, aStart;
+    public float[] rEnd, gEnd, bEnd, aEnd;
+
+    public float[] ttl, ttlMax;
+    public float[] progress;
+    public float[] animTime;
+
+    public TextureRegion[] keyframe;
+    public Animation<TextureRegion>[] animation;
+    public Interpolation[] interpolation;
+    public SimplePath[] path;
+
+    private final Vector2 pathPos = new Vector2();
+
+    public ParticleBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ParticleBuffer(int capacity) {
+        this.size = 0;
+        resize(Math.max(1, capacity));
+    }
+
+    public void clear() {
+        // drop object references so dead slots don't hold onto anything
+        for (int i = 0; i < size; i++) {
+            keyframe[i] = null;
+            animation[i] = null;
+            interpolation[i] = null;
+            path[i] = null;
+        }
+        size = 0;
+    }
+
+    public boolean hasFlag(int i, byte flag) {
+        return (flags[i] & flag) != 0;
+    }
+
+    public float width(int i) {
+        return MathUtils.lerp(widthStart[i], widthEnd[i], progress[i]);
+    }
+
+    public float height(int i) {
+        return MathUtils.lerp(heightStart[i], heightEnd[i], progress[i]);
+    }
+
+    public void update(float dt) {
+        for (int i = size - 1; i >= 0; --i) {
+            byte flag = flags[i];
+            boolean timed = (flag & FLAG_TIMED) != 0;
+            boolean persistent = (flag & FLAG_PERSISTENT) != 0;
+
+            float lifetime;
+            boolean dead = false;
+            if (timed) {
+                ttl[i] -= dt;
+                if (ttl[i] <= 0f && !persistent) {
+                    dead = true;
+                }
+                lifetime = MathUtils.clamp(ttl[i] / ttlMax[i], 0f, 1f);
+            } else {
+                ttl[i] += dt;
+                lifetime = MathUtils.clamp(ttl[i], 0f, 1f);
+            }
+            float t = interpolation[i].apply(0f, 1f, MathUtils.clamp(1f - lifetime, 0f, 1f));
+            progress[i] = t;
+
+            Animation<TextureRegion> anim = animation[i];
+            if (anim != null) {
+                if (!persistent && timed) animTime[i] = t * anim.getAnimationDuration();
+                else                      animTime[i] += dt;
+                keyframe[i] = anim.getKeyFrame(animTime[i]);
+            }
+
+            SimplePath p = path[i];
+            if (p != null) {
+                // https://github.com/libgdx/libgdx/wiki/Path-interface-and-Splines#make-the-sprite-traverse-at-constant-speed
+                p.derivativeAt(pathPos, t);
+                float arcLengthProgress = t + (dt * ttl[i] / p.spanCount()) / pathPos.len();
+                p.valueAt(pathPos, arcLengthProgress);
+                x[i] = pathPos.x;
+                y[i] = pathPos.y;
+            } else if ((flag & FLAG_TARGETED) != 0) {
+                x[i] = MathUtils.lerp(xStart[i], xTarget[i], t);
+                y[i] = MathUtils.lerp(yStart[i], yTarget[i], t);
+            } else if ((flag & FLAG_PHYSICS) == 0) {
+                float accX = ax[i] * accDamp[i];
+                float accY = ay[i] * accDamp[i];
+                if (MathUtils.isEqual(accX, 0f, 0.01f)) accX = 0f;
+                if (MathUtils.isEqual(accY, 0f, 0.01f)) accY = 0f;
+                ax[i] = accX;
+                ay[i] = accY;
+
+                vx[i] += accX * dt;
+                vy[i] += accY * dt;
+
+                x[i] += vx[i] * dt;
+                y[i] += vy[i] * dt;
+            }
+
+            if (dead) {
+                remove(i);
+            }
+        }
+    }
+
+    public void draw(SpriteBatch batch) {
+        for (int i = 0; i < size; i++) {
+            TextureRegion region = keyframe[i];
+            if (region == null) continue;
+
+            float t = progress[i];
+            float w = MathUtils.lerp(widthStart[i], widthEnd[i], t);
+            float h = MathUtils.lerp(heightStart[i], heightEnd[i], t);
+            batch.setColor(
+                    MathUtils.lerp(rStart[i], rEnd[i], t),
+                    MathUtils.lerp(gStart[i], gEnd[i], t),
+                    MathUtils.lerp(bStart[i], bEnd[i], t),
+                    MathUtils.lerp(aStart[i], aEnd[i], t));
+            batch.draw(region,
+                    x[i] - w / 2f, y[i] - h / 2f,
+                    w / 2f, h / 2f,
+                    w, h, 1f, 1f,
+                    MathUtils.lerp(rotationStart[i], rotationEnd[i], t));
+        }
+        batch.setColor(1f, 1f, 1f, 1f);
+    }
+
+    /**
+     * Move the last particle into slot i, callers iterating should walk backwards
+     */
+    public void remove(int i) {
+        int last = --size;
+        if (i != last) {
+            copy(last, i);
+        }
+        keyframe[last] = null;
+        animation[last] = null;
+        interpolation[last] = null;
+        path[last] = null;
+    }
+
+    private int add() {
+        if (size == capacity) {
+            resize(capacity * 2);
+        }
+        return size++;
+    }
+
+    private void copy(int from, int to) {
+        flags[to] = flags[from];
+        x[to] = x[from];                         y[to] = y[from];
+        vx[to] = vx[from];                       vy[to] = vy[from];
+        ax[to] = ax[from];                       ay[to] = ay[from];
+        accDamp[to] = accDamp[from];
+        bounceScale[to] = bounceScale[from];
+        restTicks[to] = restTicks[from];
+        xStart[to] = xStart[from];               yStart[to] = yStart[from];
+        xTarget[to] = xTarget[from];             yTarget[to] = yTarget[from];
+        widthStart[to] = widthStart[from];       widthEnd[to] = widthEnd[from];
+        heightStart[to] = heightStart[from];     heightEnd[to] = heightEnd[from];
+        rotationStart[to] = rotationStart[from]; rotationEnd[to] = rotationEnd[from];
+        rStart[to] = rStart[from]; gStart[to] = gStart[from]; bStart[to] = bStart[from]; aStart[to] = aStart[from];
+        rEnd[to] = rEnd[from];     gEnd[to] = gEnd[from];     bEnd[to] = bEnd[from];     aEnd[to] = aEnd[from];
+        ttl[to] = ttl[from];                     ttlMax[to] = ttlMax[from];
+        progress[to] = progress[from];
+        animTime[to] = animTime[from];
+        keyframe[to] = keyframe[from];
+        animation[to] = animation[from];
+        interpolation[to] = interpolation[from];
+        path[to] = path[from];
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void resize(int newCapacity) {
+        flags = copyOf(flags, newCapacity);
+        x = copyOf(x, newCapacity);                         y = copyOf(y, newCapacity);
+        vx = copyOf(vx, newCapacity);                       vy = copyOf(vy, newCapacity);
+        ax = copyOf(ax, newCapacity);                       ay = copyOf(ay, newCapacity);
+        accDamp = copyOf(accDamp, newCapacity);
+        bounceScale = copyOf(bounceScale, newCapacity);
+        restTicks = copyOf(restTicks, newCapacity);
+        xStart = copyOf(xStart, newCapacity);               yStart = copyOf(yStart, newCapacity);
+        xTarget = copyOf(xTarget, newCapacity);             yTarget = copyOf(yTarget, newCapacity);
+        widthStart = copyOf(widthStart, newCapacity);       widthEnd = copyOf(widthEnd, newCapacity);
+        heightStart = copyOf(heightStart, newCapacity);     heightEnd = copyOf(heightEnd, newCapacity);
+        rotationStart = copyOf(rotationStart, newCapacity); rotationEnd = copyOf(rotationEnd, newCapacity);
+        rStart = copyOf(rStart, newCapacity); gStart = copyOf(gStart, newCapacity);
+        bStart = copyOf(bStart, newCapacity); aStart = copyOf(aStart, newCapacity);
+        rEnd = copyOf(rEnd, newCapacity);     gEnd = copyOf(gEnd, newCapacity);
+        bEnd = copyOf(bEnd, newCapacity);     aEnd = copyOf(aEnd, newCapacity);
+        ttl = copyOf(ttl, newCapacity);                     ttlMax = copyOf(ttlMax, newCapacity);
+        progress = copyOf(progress, newCapacity);
+        animTime = copyOf(animTime, newCapacity);
+
+        TextureRegion[] newKeyframe = new TextureRegion[newCapacity];
+        Animation<TextureRegion>[] newAnimation = new Animation[newCapacity];
+        Interpolation[] newInterpolation = new Interpolation[newCapacity];
+        SimplePath[] newPath = new SimplePath[newCapacity];
+        if (keyframe != null) {
+            System.arraycopy(keyframe, 0, newKeyframe, 0, size);
+            System.arraycopy(animation, 0, newAnimation, 0, size);
+            System.arraycopy(interpolation, 0, newInterpolation, 0, size);
+            System.arraycopy(path, 0, newPath, 0, size);
+        }
+        keyframe = newKeyframe;
+        animation = newAnimation;
+        interpolation = newInterpolation;
+        path = newPath;
+
+        capacity = newCapacity;
+    }
+
+    private float[] copyOf(float[] array, int newCapacity) {
+        float[] newArray = new float[newCapacity];
+        if (array != null) System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+
+    private byte[] copyOf(byte[] array, int newCapacity) {
+        byte[] newArray = new byte[newCapacity];
+        if (array != null) System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * Reusable builder, Particles hands out a reset one per spawn and {@link #init()} appends the particle
+     */
+    public static class Initializer {
+
+        private ParticleBuffer buffer;
+
+        private SimplePath path;
+        private TextureRegion keyframe;
+        private Animation<TextureRegion> animation;
+        private Interpolation interpolation;
+
+        private float xStart;
+        private float yStart;
+
+        private boolean targeted;
+        private float xTarget;
+        private float yTarget;
+
+        private float xVel;
+        private float yVel;
+
+        private float bounceScale;
+
+        private float xAcc;
+        private float yAcc;
+        private float accDamp;
+
+        private float widthStart;
+        private float widthEnd;
+        private boolean setWidthEnd;
+
+        private float heightStart;
+        private float heightEnd;
+        private boolean setHeightEnd;
+
+        private float rotationStart;
+        private float rotationEnd;
+        private boolean setRotationEnd;
+
+        private float rStart, gStart, bStart, aStart;
+        private float rEnd, gEnd, bEnd, aEnd;
+        private boolean setColorEnd;
+        private boolean setAlphaEnd;
+
+        private boolean persistent;
+        private boolean timed;
+        private boolean isPhysics;
+        private float ttlMax;
+
+        Initializer reset(ParticleBuffer buffer) {
+            this.buffer = buffer;
+            path = null;
+            keyframe = null;
+            animation = null;
+            interpolation = Interpolation.linear;
+            xStart = 0f;
+            yStart = 0f;
+            targeted = false;
+            xTarget = 0f;
+            yTarget = 0f;
+            xVel = 0f;
+            yVel = 0f;
+            bounceScale = .8f;
+            xAcc = 0f;
+            yAcc = 0f;
+            accDamp = 0f;
+            widthStart = 0f;
+            widthEnd = 0f;
+            setWidthEnd = false;
+            heightStart = 0f;
+            heightEnd = 0f;
+            setHeightEnd = false;
+            rotationStart = 0f;
+            rotationEnd = 0f;
+            setRotationEnd = false;
+            rStart = 1f; gStart = 1f; bStart = 1f; aStart = 1f;
+            rEnd = 1f;   gEnd = 1f;   bEnd = 1f;   aEnd = 1f;
+            setColorEnd = false;
+            setAlphaEnd = false;
+            persistent = false;
+            timed = false;
+            isPhysics = false;
+            ttlMax = 0f;
+            return this;
+        }
+
+        Initializer interpolation(Interpolation interpolation) {
+            this.interpolation = interpolation;
+            return this;
+        }
+
+        Initializer path(SimplePath path) {
+            this.path = path;
+            return this;
+        }
+
+        Initializer keyframe(TextureRegion keyframe) {
+            this.keyframe = keyframe;
+            return this;
+        }
+
+        Initializer animation(Animation<TextureRegion> animation) {
+            this.animation = animation;
+            return this;
+        }
+
+        Initializer startPos(float x, float y) {
+            this.xStart = x;
+            this.yStart = y;
+            return this;
+        }
+
+        Initializer targetPos(float x, float y) {
+            this.xTarget = x;
+            this.yTarget = y;
+            this.targeted = true;
+            return this;
+        }
+
+        Initializer velocity(float x, float y) {
+            this.xVel = x;
+            this.yVel = y;
+            return this;
+        }
+
+        Initializer velocityDirection(float angle, float magnitude) {
+            this.xVel = MathUtils.cosDeg(angle) * magnitude;
+            this.yVel = MathUtils.sinDeg(angle) * magnitude;
+            return this;
+        }
+
+        Initializer acceleration(float x, float y) {
+            this.xAcc = x;
+            this.yAcc = y;
+            return this;
+        }
+
+        Initializer accelerationDamping(float damp) {
+            this.accDamp = damp;
+            return this;
+        }
+
+        Initializer startSize(float width, float height) {
+            this.widthStart = width;
+            this.heightStart = height;
+            return this;
+        }
+
+        Initializer startSize(float size) {
+            this.widthStart = size;
+            this.heightStart = size;
+            return this;
+        }
+
+        Initializer endSize(float width, float height) {
+            this.widthEnd = width;
+            this.heightEnd = height;
+            this.setWidthEnd = true;
+            this.setHeightEnd = true;
+            return this;
+        }
+
+        Initializer endSize(float size) {
+            this.widthEnd = size;
+            this.heightEnd = size;
+            this.setWidthEnd = true;
+            this.setHeightEnd = true;
+            return this;
+        }
+
+        Initializer startRotation(float rotation) {
+            this.rotationStart = rotation;
+            return this;
+        }
+
+        Initializer endRotation(float rotation) {
+            this.rotationEnd = rotation;
+            this.setRotationEnd = true;
+            return this;
+        }
+
+        Initializer startColor(float r, float g, float b, float a) {
+            this.rStart = r;
+            this.gStart = g;
+            this.bStart = b;
+            this.aStart = a;
+            return this;
+        }
+
+        Initializer startColor(Color color) {
+            this.rStart = color.r;
+            this.gStart = color.g;
+            this.bStart = color.b;
+            this.aStart = color.a;
+            return this;
+        }
+
+        Initializer endColor(float r, float g, float b, float a) {
+            this.rEnd = r;
+            this.gEnd = g;
+            this.bEnd = b;
+            this.aEnd = a;
+            this.setColorEnd = true;
+            return this;
+        }
+
+        Initializer endColor(Color color) {
+            this.rEnd = color.r;
+            this.gEnd = color.g;
+            this.bEnd = color.b;
+            this.aEnd = color.a;
+            this.setColorEnd = true;
+            return this;
+        }
+
+        Initializer startAlpha(float a) {
+            this.aStart = a;
+            return this;
+        }
+
+        Initializer endAlpha(float a) {
+            this.aEnd = a;
+            this.setAlphaEnd = true;
+            return this;
+        }
+
+        Initializer timeToLive(float ttl) {
+            this.ttlMax = ttl;
+            this.timed = true;
+            return this;
+        }
+
+        Initializer persist() {
+            this.persistent = true;
+            return this;
+        }
+
+        Initializer makePhysics() {
+            this.isPhysics = true;
+            this.bounceScale = .8f;
+            return this;
+        }
+
+        Initializer makePhysicsWithCustomBounceScale(float customBounceScale) {
+            this.isPhysics = true;
+            this.bounceScale = customBounceScale;
+            return this;
+        }
+
+        int init() {
+            if (path != null && !timed) {
+                throw new GdxRuntimeException("Particles with a path must also have a time to live, is your ParticleBuffer.Initializer missing a call to timeToLive()?");
+            }
+            if (targeted && !timed) {
+                throw new GdxRuntimeException("Particles with a target must also have a time to live, is your ParticleBuffer.Initializer missing a call to timeToLive()?");
+            }
+
+            ParticleBuffer b = buffer;
+            int i = b.add();
+
+            b.keyframe[i] = keyframe;
+            b.animation[i] = animation;
+            b.animTime[i] = 0f;
+            b.path[i] = path;
+            b.interpolation[i] = (interpolation != null) ? interpolation : Interpolation.linear;
+
+            b.xStart[i] = xStart;
+            b.yStart[i] = yStart;
+            b.x[i] = xStart;
+            b.y[i] = yStart;
+            b.xTarget[i] = xTarget;
+            b.yTarget[i] = yTarget;
+
+            b.vx[i] = xVel;
+            b.vy[i] = yVel;
+            b.bounceScale[i] = bounceScale;
+
+            b.ax[i] = xAcc;
+            b.ay[i] = yAcc;
+            b.accDamp[i] = accDamp;
+
+            b.widthStart[i] = widthStart;
+            b.widthEnd[i] = (setWidthEnd) ? widthEnd : widthStart;
+            b.heightStart[i] = heightStart;
+            b.heightEnd[i] = (setHeightEnd) ? heightEnd : heightStart;
+
+            if ((b.widthStart[i]  == 0f && b.widthEnd[i]  == 0f)
+             || (b.heightStart[i] == 0f && b.heightEnd[i] == 0f)) {
+                Gdx.app.log("WARN", "A particle has been created with degenerate size (starting and ending width or height both equal zero), you probably didn't mean to do this as this means the particle won't be visible");
+            }
+
+            b.rotationStart[i] = rotationStart;
+            b.rotationEnd[i] = (setRotationEnd) ? rotationEnd : rotationStart;
+
+            b.rStart[i] = rStart;
+            b.gStart[i] = gStart;
+            b.bStart[i] = bStart;
+            b.aStart[i] = aStart;
+            b.rEnd[i] = (setColorEnd) ? rEnd : rStart;
+            b.gEnd[i] = (setColorEnd) ? gEnd : gStart;
+            b.bEnd[i] = (setColorEnd) ? bEnd : bStart;
+            b.aEnd[i] = (setColorEnd || setAlphaEnd) ? aEnd : aStart;
+
+            if (b.aStart[i] == 0f && b.aEnd[i] == 0f) {
+                Gdx.app.log("WARN", "A particle has been created with degenerate alpha (starting and ending alpha both equal zero), you probably didn't mean to do this as this means the particle won't be visible");
+            }
+
+            b.ttlMax[i] = ttlMax;
+            b.ttl[i] = ttlMax;
+            b.progress[i] = 0f;
+
+            byte flag = 0;
+            if (timed)      flag |= FLAG_TIMED;
+            if (persistent) flag |= FLAG_PERSISTENT;
+            if (targeted)   flag |= FLAG_TARGETED;
+            if (isPhysics)  flag |= FLAG_PHYSICS;
+            b.flags[i] = flag;
+            b.restTicks[i] = 0;
+
+            return i;
+        }
+
+    }
+
+}
@@ -7,66 +7,46 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.*;
+import com.badlogic.gdx.utils.Disposable;
 import lando.systems.ld48.Assets;
 import lando.systems.ld48.levels.SpawnPickup;
-import lando.systems.ld48.physics.PhysicsComponent;
 import lando.systems.ld48.utils.Utils;
 
 public class Particles implements Disposable {
 
     public enum Layer { background, middle, foreground }
 
-    private static final int MAX_PARTICLES = 4000;
-
     private final Assets assets;
-    private final ObjectMap<Layer, Array<Particle>> activeParticles;
-    private final Pool<Particle> particlePool = Pools.get(Particle.class, MAX_PARTICLES);
-    private Array<PhysicsComponent> physicsParticles;
+    private final ParticleBuffer[] buffers;
+    private final ParticleBuffer.Initializer initializer;
 
     public Particles(Assets assets) {
         this.assets = assets;
-        physicsParticles = new Array<>();
-        this.activeParticles = new ObjectMap<>();
-        int particlesPerLayer = MAX_PARTICLES / Layer.values().length;
-        this.activeParticles.put(Layer.background, new Array<>(false, particlesPerLayer));
-        this.activeParticles.put(Layer.middle,     new Array<>(false, particlesPerLayer));
-        this.activeParticles.put(Layer.foreground, new Array<>(false, particlesPerLayer));
+        this.buffers = new ParticleBuffer[Layer.values().length];
+        for (Layer layer : Layer.values()) {
+            buffers[layer.ordinal()] = new ParticleBuffer();
+        }
+        this.initializer = new ParticleBuffer.Initializer();
     }
 
     public void clear() {
-        for (Layer layer : Layer.values()) {
-            particlePool.freeAll(activeParticles.get(layer));
-            activeParticles.get(layer).clear();
+        for (ParticleBuffer buffer : buffers) {
+            buffer.clear();
         }
     }
 
     public void update(float dt) {
-        for (Layer layer : Layer.values()) {
-            for (int i = activeParticles.get(layer).size - 1; i >= 0; --i) {
-                Particle particle = activeParticles.get(layer).get(i);
-                particle.update(dt);
-                if (particle.isDead()) {
-                    activeParticles.get(layer).removeIndex(i);
-                    particlePool.free(particle);
-                }
-            }
+        for (ParticleBuffer buffer : buffers) {
+            buffer.update(dt);
         }
     }
 
-    public Array<PhysicsComponent> getPhysicalParticles() {
-        physicsParticles.clear();
-        for (Layer layer : Layer.values()) {
-            for (int i = activeParticles.get(layer).size -1; i >= 0; i--) {
-                Particle particle = activeParticles.get(layer).get(i);
-                if (particle.hasPhysics()) physicsParticles.add(particle);
-            }
-        }
-        return physicsParticles;
+    public ParticleBuffer getBuffer(Layer layer) {
+        return buffers[layer.ordinal()];
     }
 
     public void draw(SpriteBatch batch, Layer layer) {
-        activeParticles.get(layer).forEach(particle -> particle.render(batch));
+        buffers[layer.ordinal()].draw(batch);
     }
 
     @Override
@@ -74,6 +54,10 @@ public class Particles implements Disposable {
         clear();
     }
 
+    private ParticleBuffer.Initializer spawn(Layer layer) {
+        return initializer.reset(buffers[layer.ordinal()]);
+    }
+
     // ------------------------------------------------------------------------
     // Helper fields for particle spawner methods
     // ------------------------------------------------------------------------
@@ -96,7 +80,7 @@ public class Particles implements Disposable {
         float increment = 36f;
         float ttl = 1f;
         for (int i = 0; i < numParticles; ++i) {
-            activeParticles.get(Layer.foreground).add(Particle.initializer(particlePool.obtain())
+            spawn(Layer.foreground)
                     .animation(animation)
                     .startPos(x, y)
                     .velocityDirection(angle, speed)
@@ -105,7 +89,7 @@ public class Particles implements Disposable {
                     .startAlpha(1f)
                     .endAlpha(0f)
                     .timeToLive(ttl)
-                    .init());
+                    .init();
             angle += increment;
             speed += 5f;
 //            ttl += 0.1f;
@@ -118,7 +102,7 @@ public class Particles implements Disposable {
         testColor.set(Color.GOLD);
         int numParticles = 50;
         for (int i = 0; i < numParticles; ++i) {
-            activeParticles.get(Layer.foreground).add(Particle.initializer(particlePool.obtain())
+            spawn(Layer.foreground)
                     .keyframe(keyframe)
                     .startPos(x, y)
                     .velocityDirection(MathUtils.random(0f, 180f), MathUtils.random(100f, 300f))
@@ -129,7 +113,7 @@ public class Particles implements Disposable {
                     .timeToLive(2f)
                     .startColor(testColor)
                     .makePhysics()
-                    .init());
+                    .init();
         }
     }
 
@@ -140,7 +124,7 @@ public class Particles implements Disposable {
         int numParticles = 200;
         for (int i = 0; i < numParticles; ++i) {
             Utils.hsvToRgb(MathUtils.random(0.0f, 0.5f), 1f, .9f, testColor);
-            activeParticles.get(Layer.foreground).add(Particle.initializer(particlePool.obtain())
+            spawn(Layer.foreground)
                     .keyframe(keyframe)
                     .startPos(x, y)
                     .velocityDirection(MathUtils.random(360f), MathUtils.random(30f, 1000f))
@@ -152,7 +136,7 @@ public class Particles implements Disposable {
                     .startColor(testColor)
                     .makePhysics()
                     .interpolation(Interpolation.fastSlow)
-                    .init());
+                    .init();
         }
     }
 
@@ -160,7 +144,7 @@ public class Particles implements Disposable {
         int numParticles = 100;
         for (int i = 0; i < numParticles; i++){
             float g = MathUtils.random(.7f) + .3f;
-            activeParticles.get(Layer.foreground).add(Particle.initializer(particlePool.obtain())
+            spawn(Layer.foreground)
                     .keyframe(assets.particles.smoke)
                     .startPos(x + MathUtils.random(-30f, 30f), y + MathUtils.random(-30f, 30f))
                     .velocityDirection(MathUtils.random(360f), MathUtils.random(10f))
@@ -172,7 +156,7 @@ public class Particles implements Disposable {
                     .endRotation(MathUtils.random(-40, 80))
                     .timeToLive(MathUtils.random(1f, 3f))
                     .startColor(g, g, g, 1)
-                    .init());
+                    .init();
 
         }
     }
@@ -183,7 +167,7 @@ public class Particles implements Disposable {
         int numParticles = 150;
         for (int i = 0; i < numParticles; ++i) {
             Utils.hsvToRgb(MathUtils.random(0.0f, 0.05f), MathUtils.random(0.8f, 1f), MathUtils.random(0.5f, 0.9f), testColor);
-            activeParticles.get(Layer.foreground).add(Particle.initializer(particlePool.obtain())
+            spawn(Layer.foreground)
                     .keyframe(keyframe)
                     .startPos(x, y)
                     .velocityDirection(MathUtils.random(70, 110), MathUtils.random(90f, 200f))
@@ -195,7 +179,7 @@ public class Particles implements Disposable {
                     .startColor(testColor)
                     .makePhysics()
                     .interpolation(Interpolation.fastSlow)
-                    .init());
+                    .init();
         }
     }
 
@@ -0,0 +1,151 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Closed form swept rectangle vs segment narrowphase.
+ *
+ * The polygon narrowphase builds the parallelogram the segment traces when swept backwards along the move,
+ * sorts its corners and runs a separating axis test against the rectangle. Both shapes are known up front,
+ * so here the same four axes (segment normal, sweep perpendicular, x and y) are tested directly on the
+ * corner points and the result is written into the collision's own contact record.
+ */
+public class AnalyticSweep {
+
+    private static final float EPSILON = 0.000001f;
+
+    // parallelogram corners: segment start / end, and both pushed back along the move
+    private float px0, py0, px1, py1, px2, py2, px3, py3;
+    // rectangle corners
+    private float rx0, ry0, rx1, ry1;
+
+    private float depth;
+    private float normalX;
+    private float normalY;
+
+    public boolean sweep(Rectangle rect, Segment2D segment, Vector2 v, Collision collision) {
+        return sweep(rect, segment.start.x, segment.start.y, segment.end.x, segment.end.y, v.x, v.y)
+            && fill(collision, rect, segment, v);
+    }
+
+    /**
+     * Raw form used for validation, the contact is left in {@link #getDepth()}, {@link #getNormalX()} and {@link #getNormalY()}
+     */
+    public boolean sweep(Rectangle rect, float x1, float y1, float x2, float y2, float vx, float vy) {
+        px0 = x1;      py0 = y1;
+        px1 = x1 - vx; py1 = y1 - vy;
+        px2 = x2;      py2 = y2;
+        px3 = x2 - vx; py3 = y2 - vy;
+
+        rx0 = rect.x;              ry0 = rect.y;
+        rx1 = rect.x + rect.width; ry1 = rect.y + rect.height;
+
+        depth = Float.MAX_VALUE;
+        normalX = 0;
+        normalY = 0;
+
+        // swept shape axes first, then the rectangle's, matching the order the polygon test visits them
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        if (!testAxis(dy, -dx, true)) return fail();
+        if (!testAxis(vy, -vx, true)) return fail();
+        if (!testAxis(-1, 0, false)) return fail();
+        if (!testAxis(0, 1, false))  return fail();
+        return true;
+    }
+
+    public float getDepth() {
+        return depth;
+    }
+
+    public float getNormalX() {
+        return normalX;
+    }
+
+    public float getNormalY() {
+        return normalY;
+    }
+
+    private boolean fill(Collision collision, Rectangle rect, Segment2D segment, Vector2 v) {
+        collision.contact.depth = depth;
+        collision.contact.normal.set(normalX, normalY);
+        collision.init(segment, collision.contact);
+        collision.rect.set(rect);
+        collision.t = depth / v.len();
+        collision.velocity.set(v);
+        return true;
+    }
+
+    private boolean fail() {
+        depth = 0;
+        normalX = 0;
+        normalY = 0;
+        return false;
+    }
+
+    /**
+     * Project both shapes onto the axis and keep it if it's the shallowest overlap so far.
+     * 'sweptFirst' mirrors which shape the axis came from, that decides which way the normal points.
+     */
+    private boolean testAxis(float axisX, float axisY, boolean sweptFirst) {
+        float len = (float) Math.sqrt(axisX * axisX + axisY * axisY);
+        // a move parallel to the segment collapses the parallelogram, that axis can't separate anything
+        if (len < EPSILON) return true;
+        axisX /= len;
+        axisY /= len;
+
+        float p0 = px0 * axisX + py0 * axisY;
+        float p1 = px1 * axisX + py1 * axisY;
+        float p2 = px2 * axisX + py2 * axisY;
+        float p3 = px3 * axisX + py3 * axisY;
+        float sweptMin = Math.min(Math.min(p0, p1), Math.min(p2, p3));
+        float sweptMax = Math.max(Math.max(p0, p1), Math.max(p2, p3));
+
+        float r0 = rx0 * axisX + ry0 * axisY;
+        float r1 = rx0 * axisX + ry1 * axisY;
+        float r2 = rx1 * axisX + ry1 * axisY;
+        float r3 = rx1 * axisX + ry0 * axisY;
+        float rectMin = Math.min(Math.min(r0, r1), Math.min(r2, r3));
+        float rectMax = Math.max(Math.max(r0, r1), Math.max(r2, r3));
+
+        float minA, maxA, minB, maxB;
+        if (sweptFirst) {
+            minA = sweptMin; maxA = sweptMax;
+            minB = rectMin;  maxB = rectMax;
+        } else {
+            minA = rectMin;  maxA = rectMax;
+            minB = sweptMin; maxB = sweptMax;
+        }
+
+        if (maxA < minB || maxB < minA) return false;
+
+        float overlap = Math.min(maxA, maxB) - Math.max(minA, minB);
+        boolean aContainsB = minA < minB && maxA > maxB;
+        boolean bContainsA = minB < minA && maxB > maxA;
+        float mins = 0f;
+        float maxs = 0f;
+        if (aContainsB || bContainsA) {
+            mins = Math.abs(minA - minB);
+            maxs = Math.abs(maxA - maxB);
+            overlap += Math.min(mins, maxs);
+        }
+
+        if (depth > overlap) {
+            depth = overlap;
+            boolean keep = sweptFirst ? (minA < minB) : (minA > minB);
+            if (!keep) {
+                axisX = -axisX;
+                axisY = -axisY;
+            }
+            if ((aContainsB || bContainsA) && !(mins > maxs)) {
+                axisX = -axisX;
+                axisY = -axisY;
+            }
+            normalX = axisX;
+            normalY = axisY;
+        }
+        return true;
+    }
+
+}
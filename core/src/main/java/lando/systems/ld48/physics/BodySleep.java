@@ -0,0 +1,99 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Puts bodies that sit still on the ground to sleep and wakes them when something disturbs them.
+ * A sleeping body skips integration and collision in {@link PhysicsSystem} until it's woken.
+ *
+ * Waking by touch only looks at a sleeping body's neighbours, found through whatever spatial index the
+ * {@link Neighbours} it's handed uses, so a big settled pile costs about one small query per body.
+ */
+public class BodySleep {
+
+    public interface Neighbours {
+        /**
+         * Bodies whose bounds overlap the area, into out
+         */
+        void overlapping(Rectangle area, Array<PhysicsComponent> out);
+    }
+
+    // bodies asleep / awake as of the last wakeTouched
+    public int sleepingBodies;
+    public int awakeBodies;
+
+    private final Array<PhysicsComponent> touching = new Array<>();
+    private final Array<PhysicsComponent> woken = new Array<>();
+
+    /**
+     * A sleeping body stays asleep until it gets an impulse, starts moving or is moved
+     */
+    public boolean isSleeping(PhysicsComponent obj) {
+        SleepState sleep = obj.getSleepState();
+        if (!sleep.asleep) return false;
+
+        Vector2 pos = obj.getPosition();
+        boolean disturbed = !PhysicsSystem.sleeping
+                || obj.getImpulse().z > 0
+                || !obj.getAcceleration().isZero()
+                || obj.getVelocity().len2() >= PhysicsSystem.SLEEP_VELOCITY * PhysicsSystem.SLEEP_VELOCITY
+                || pos.x != sleep.x || pos.y != sleep.y;
+        if (disturbed) {
+            sleep.wake();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Count a tick the body spent grounded and slow, enough of them in a row and it goes to sleep where it is
+     */
+    public void settle(PhysicsComponent obj) {
+        SleepState sleep = obj.getSleepState();
+        Vector2 vel = obj.getVelocity();
+        if (!PhysicsSystem.sleeping || !obj.isGrounded() || obj.getImpulse().z > 0
+         || vel.len2() >= PhysicsSystem.SLEEP_VELOCITY * PhysicsSystem.SLEEP_VELOCITY) {
+            sleep.restTicks = 0;
+            return;
+        }
+        if (++sleep.restTicks >= PhysicsSystem.SLEEP_TICKS) {
+            vel.setZero();
+            sleep.sleep(obj.getPosition().x, obj.getPosition().y);
+        }
+    }
+
+    /**
+     * Anything awake touching a sleeping body wakes it for the next tick. Only bodies that were awake before this
+     * pass wake others, so a bump travels through a pile one body per tick.
+     */
+    public void wakeTouched(Array<PhysicsComponent> bodies, Neighbours neighbours) {
+        woken.clear();
+        for (int i = 0; i < bodies.size; i++) {
+            PhysicsComponent obj = bodies.get(i);
+            if (!obj.getSleepState().asleep) continue;
+
+            neighbours.overlapping((Rectangle) obj.getCollisionBounds(), touching);
+            for (int j = 0; j < touching.size; j++) {
+                PhysicsComponent other = touching.get(j);
+                if (other != obj && !other.getSleepState().asleep) {
+                    woken.add(obj);
+                    break;
+                }
+            }
+        }
+        touching.clear();
+        for (int i = 0; i < woken.size; i++) {
+            woken.get(i).getSleepState().wake();
+        }
+        woken.clear();
+
+        sleepingBodies = 0;
+        for (int i = 0; i < bodies.size; i++) {
+            if (bodies.get(i).getSleepState().asleep) sleepingBodies++;
+        }
+        awakeBodies = bodies.size - sleepingBodies;
+    }
+
+}
@@ -8,6 +8,8 @@ import com.badlogic.gdx.utils.Pool;
 
 public class Collision implements Comparable, Pool.Poolable {
     public Intersector.MinimumTranslationVector distance;
+    // owned contact record, the analytic narrowphase writes here instead of sharing one translation vector
+    public final Intersector.MinimumTranslationVector contact = new Intersector.MinimumTranslationVector();
     public Polygon polygon;
     public Segment2D segment;
     public Rectangle rect;
@@ -43,12 +45,28 @@ public class Collision implements Comparable, Pool.Poolable {
             return -1;
         } else if (other.dotProduct > this.dotProduct) {
             return 1;
-        } else {
+        } else if (other.dotProduct < this.dotProduct) {
             return -1;
         }
+        // exact ties go to the older segment, so which contact comes first doesn't depend on the order they were found in
+        return Integer.compare(segment.order, other.segment.order);
 //        return (int)(Math.abs(other.distance.normal.dot(other.segment.normal)) - Math.abs(this.distance.normal.dot(this.segment.normal)));
     }
 
+    /**
+     * Copy another contact's result into this one, the translation ends up in this collision's own contact record
+     */
+    public void set(Collision other) {
+        segment = other.segment;
+        contact.normal.set(other.distance.normal);
+        contact.depth = other.distance.depth;
+        distance = contact;
+        dotProduct = other.dotProduct;
+        t = other.t;
+        rect.set(other.rect);
+        velocity.set(other.velocity);
+    }
+
     @Override
     public void reset() {
 
@@ -0,0 +1,76 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Per entity memory of the segments around it, kept across ticks.
+ *
+ * A refresh asks the segment grid for everything in a region a little bigger than the entity's swept bounds.
+ * Every sweep after that, this tick or later ones, reuses those candidates for as long as the swept bounds stay
+ * inside the region and the grid hasn't changed. An entity resting on the floor or pushing into a wall never
+ * leaves its region, so it stops paying for broadphase queries altogether.
+ *
+ * The cached list is a superset of what a fresh query would return, in the same order, so contacts come out
+ * exactly the same.
+ *
+ * It also remembers which segments the entity's sweeps actually resolved against last tick, the floor it stands on
+ * or the wall it pushes into. Those get the narrowphase before the rest of the candidates, see
+ * {@link ContactFinder#firstContact}.
+ */
+public class ContactCache {
+
+    // how far past the swept bounds a refresh reaches
+    public static final float MARGIN = 16f;
+
+    public final Rectangle region = new Rectangle();
+    public final Array<Segment2D> candidates = new Array<>();
+    // segments resolved against last tick, and so far this tick
+    public final Array<Segment2D> active = new Array<>(false, 4);
+    private final Array<Segment2D> touched = new Array<>(false, 4);
+    private int gridVersion = -1;
+
+    // lifetime counters, for the debug overlay
+    public int hits;
+    public int misses;
+
+    public boolean covers(Rectangle sweepBounds, SegmentGrid grid) {
+        return gridVersion == grid.getVersion() && region.contains(sweepBounds);
+    }
+
+    public void refresh(Rectangle sweepBounds, SegmentGrid grid) {
+        region.set(sweepBounds.x - MARGIN, sweepBounds.y - MARGIN,
+                   sweepBounds.width + 2 * MARGIN, sweepBounds.height + 2 * MARGIN);
+        grid.query(region, candidates);
+        if (gridVersion != grid.getVersion()) {
+            // what it was touching might not be in the level anymore
+            active.clear();
+            touched.clear();
+        }
+        gridVersion = grid.getVersion();
+    }
+
+    /**
+     * A sweep resolved against this segment, it gets tried first next tick
+     */
+    public void touch(Segment2D segment) {
+        if (!touched.contains(segment, true)) {
+            touched.add(segment);
+        }
+    }
+
+    /**
+     * The entity's sweeps are done for the tick, what they touched becomes what's tried first next tick
+     */
+    public void endTick() {
+        active.clear();
+        active.addAll(touched);
+        touched.clear();
+    }
+
+    public float getHitRate() {
+        int total = hits + misses;
+        return (total == 0) ? 0f : hits / (float) total;
+    }
+
+}
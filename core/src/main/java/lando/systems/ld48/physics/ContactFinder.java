@@ -0,0 +1,278 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.Pools;
+import lando.systems.ld48.utils.PointComparator;
+
+import java.util.Comparator;
+
+/**
+ * The narrowphase for entity sweeps, turns broadphase candidates into contacts for a rectangle moving by some vector.
+ *
+ * Which solver runs is {@link PhysicsSystem#narrowphase}. With {@link PhysicsSystem#validateBroadphase} or
+ * {@link PhysicsSystem#validateNarrowphase} set, answers are also checked against the slow paths (every segment in
+ * the level, the polygon solver) and each difference is logged and counted.
+ */
+public class ContactFinder {
+
+    // how far past separated the batched pre-test still hands a segment to the narrowphase, covers float differences
+    private static final float NARROWPHASE_SLOP = 0.001f;
+
+    private final Pool<Collision> collisionPool = Pools.get(Collision.class, 100);
+    private final SegmentStore store;
+    private final IntArray candidateSlots = new IntArray();
+    private final AnalyticSweep analyticSweep = new AnalyticSweep();
+
+    // differences the validation switches have found, since this was made
+    public int broadphaseMismatches;
+    public int narrowphaseMismatches;
+
+    public ContactFinder(SegmentStore store) {
+        this.store = store;
+        for (int i = 0; i < 4; i++){
+            projPoints.add(new Vector2());
+        }
+    }
+
+    /**
+     * Every candidate the rect touches moving by move, added to out, free them with {@link #free(Array)}
+     */
+    public void findCollisions(Rectangle bounds, Vector2 move, Array<Segment2D> segments, Array<Collision> out) {
+        // throw out everything the sweep is clear of in one pass over the packed segments, most candidates go here
+        SegmentStore.gather(segments, candidateSlots);
+        int count = store.overlapSwept(bounds.x, bounds.y, bounds.width, bounds.height, move.x, move.y,
+                                       NARROWPHASE_SLOP, candidateSlots.items, candidateSlots.size);
+        for (int i = 0; i < count; i++) {
+            Segment2D segment = store.get(candidateSlots.items[i]);
+            Collision c = collisionPool.obtain();
+            try {
+                if (sweep(bounds, segment, move, c)) {
+                    out.add(c);
+                } else {
+                    collisionPool.free(c);
+                }
+            } catch (Exception e){
+                // Had a polygon error here once, so if they go one frame inside so be it.
+            }
+        }
+    }
+
+    /**
+     * The contact a sweep loop resolves first: of the candidates the move runs into rather than away from, the one
+     * that sorts first. Segments in tryFirst, last tick's contacts, get the narrowphase before the rest of the
+     * candidates. Collisions sort in a total order, so the answer is the same whichever order they're tested in.
+     *
+     * @return true if anything was hit, the contact is copied into out
+     */
+    public boolean firstContact(Rectangle bounds, Vector2 move, Array<Segment2D> candidates, Array<Segment2D> tryFirst, Collision out) {
+        boolean found = false;
+        for (int i = 0; i < tryFirst.size; i++) {
+            Segment2D segment = tryFirst.get(i);
+            // gone from the level since it was touched
+            if (segment.storeIndex < 0) continue;
+            found |= consider(bounds, move, segment, found, out);
+        }
+
+        SegmentStore.gather(candidates, candidateSlots);
+        int count = store.overlapSwept(bounds.x, bounds.y, bounds.width, bounds.height, move.x, move.y,
+                                       NARROWPHASE_SLOP, candidateSlots.items, candidateSlots.size);
+        for (int i = 0; i < count; i++) {
+            Segment2D segment = store.get(candidateSlots.items[i]);
+            if (tryFirst.contains(segment, true)) continue;
+            found |= consider(bounds, move, segment, found, out);
+        }
+        return found;
+    }
+
+    // sweep against one segment, true if the contact beats (or is the first after) what's in best and replaced it
+    private boolean consider(Rectangle bounds, Vector2 move, Segment2D segment, boolean found, Collision best) {
+        // moving away from a one sided segment never resolves against it
+        if (segment.normal.dot(move) > 0) return false;
+        try {
+            if (!sweep(bounds, segment, move, firstCandidate)) return false;
+        } catch (Exception e) {
+            // same as findCollisions, a polygon error just means no contact this time
+            return false;
+        }
+        if (found && firstCandidate.compareTo(best) >= 0) return false;
+        best.set(firstCandidate);
+        return true;
+    }
+
+    public void free(Array<Collision> collisions) {
+        collisionPool.freeAll(collisions);
+        collisions.clear();
+    }
+
+    private Array<Collision> validationCollisions = new Array<>();
+    private Array<Collision> validationCandidates = new Array<>();
+    private static final Comparator<Collision> byOrder = (a, b) -> Integer.compare(a.segment.order, b.segment.order);
+
+    /**
+     * Check the contacts from a broadphase's candidates against the contacts from every segment, true if they match
+     */
+    public boolean validateCandidates(Rectangle bounds, Vector2 move, Array<Segment2D> allSegments, Array<Segment2D> candidates) {
+        findCollisions(bounds, move, allSegments, validationCollisions);
+        findCollisions(bounds, move, candidates, validationCandidates);
+        // the level list isn't kept in order once segments get removed, the grid hands them back by order
+        validationCollisions.sort(byOrder);
+        boolean same = validationCollisions.size == validationCandidates.size;
+        for (int i = 0; same && i < validationCollisions.size; i++) {
+            same = validationCollisions.get(i).segment == validationCandidates.get(i).segment;
+        }
+        if (!same) {
+            broadphaseMismatches++;
+            Gdx.app.error("PhysicsSystem", "broadphase mismatch: " + validationCollisions.size + " contacts from all segments, "
+                    + validationCandidates.size + " from the grid for bounds " + bounds + " moving " + move);
+        }
+        free(validationCollisions);
+        free(validationCandidates);
+        return same;
+    }
+
+    private Vector2 centroid = new Vector2();
+    private Array<Vector2> projPoints = new Array<>();
+    private PointComparator sorter = new PointComparator();
+    private float[] rectVerts = new float[8];
+    private float[] velVerts = new float[8];
+    private Polygon rectPoly = new Polygon();
+    private Polygon velPoly = new Polygon();
+    private Polygon overlapPoly = new Polygon();
+    private Intersector.MinimumTranslationVector transVector = new Intersector.MinimumTranslationVector();
+    private Collision validationCollision = new Collision();
+    private Collision firstCandidate = new Collision();
+    // whether the last polygon sweep's corners sorted into a proper quad, see sweepPolygon
+    public boolean polygonConvex;
+
+    /**
+     * Sweep the rect by v against one segment with whichever narrowphase is selected, filling in collision on a hit
+     */
+    public boolean sweep(Rectangle rect, Segment2D segment, Vector2 v, Collision collision) {
+        if (PhysicsSystem.narrowphase == PhysicsSystem.Narrowphase.polygon) {
+            return sweepPolygon(rect, segment, v, collision);
+        }
+
+        boolean hit = analyticSweep.sweep(rect, segment, v, collision);
+        if (PhysicsSystem.validateNarrowphase) {
+            validateContact(rect, segment, v, hit, collision);
+        }
+        return hit;
+    }
+
+    private void validateContact(Rectangle rect, Segment2D segment, Vector2 v, boolean hit, Collision collision) {
+        boolean polygonHit;
+        try {
+            polygonHit = sweepPolygon(rect, segment, v, validationCollision);
+        } catch (Exception e) {
+            return;
+        }
+        if (!polygonConvex) return;
+        boolean same = hit == polygonHit;
+        if (same && hit) {
+            same = sameContact(collision, validationCollision);
+        }
+        if (!same) {
+            narrowphaseMismatches++;
+            Gdx.app.error("PhysicsSystem", "narrowphase mismatch for bounds " + rect + " moving " + v
+                    + " against " + segment.start + " -> " + segment.end + ": analytic "
+                    + (hit ? collision.distance.depth + " " + collision.distance.normal : "miss") + ", polygon "
+                    + (polygonHit ? validationCollision.distance.depth + " " + validationCollision.distance.normal : "miss"));
+        }
+    }
+
+    /**
+     * Whether two hits against the same segment push the rect out the same way. The sweep flips the normal to the
+     * segment's side before using it, so normals that only differ in sign are the same contact.
+     */
+    public static boolean sameContact(Collision a, Collision b) {
+        Vector2 segmentNormal = a.segment.normal;
+        float signA = Math.signum(a.distance.normal.dot(segmentNormal));
+        float signB = Math.signum(b.distance.normal.dot(segmentNormal));
+        return MathUtils.isEqual(a.distance.depth, b.distance.depth, 0.001f)
+            && MathUtils.isEqual(a.distance.normal.x * signA, b.distance.normal.x * signB, 0.001f)
+            && MathUtils.isEqual(a.distance.normal.y * signA, b.distance.normal.y * signB, 0.001f);
+    }
+
+    /**
+     * The original solver, overlaps the rect with the quad the segment sweeps backwards along v
+     */
+    public boolean sweepPolygon(Rectangle rect, Segment2D segment, Vector2 v, Collision collision) {
+        rectVerts[0] = rect.x; rectVerts[1] = rect.y;
+        rectVerts[2] = rect.x; rectVerts[3] = rect.y + rect.height;
+        rectVerts[4] = rect.x + rect.width; rectVerts[5] = rect.y + rect.height;
+        rectVerts[6] = rect.x + rect.width; rectVerts[7] = rect.y;
+
+
+        projPoints.get(0).set(segment.start);
+        projPoints.get(1).set(segment.start.x - v.x, segment.start.y - v.y);
+        projPoints.get(2).set(segment.end);
+        projPoints.get(3).set(segment.end.x - v.x, segment.end.y - v.y);
+
+        sorter.center = findCentroid(projPoints);
+        projPoints.sort(sorter);
+        for (int i = 0; i < 4; i ++){
+            velVerts[i*2] = projPoints.get(i).x;
+            velVerts[i*2 +1] = projPoints.get(i).y;
+        }
+        // a move within a few degrees of the segment leaves the corners almost in a line, sorting them around their
+        // middle can then cross two edges into a bow tie and the separating axis test gives a wrong contact
+        polygonConvex = isConvex(velVerts);
+        if (Intersector.overlapConvexPolygons(rectVerts, velVerts, transVector)) {
+            rectPoly.setVertices(rectVerts);
+            velPoly.setVertices(velVerts);
+            collision.init(segment, transVector);
+            collision.rect.set(rect);
+            collision.t = transVector.depth / v.len();
+            collision.velocity.set(v);
+            if (Intersector.intersectPolygons(rectPoly, velPoly, overlapPoly)) {
+                collision.polygon.setVertices(overlapPoly.getVertices());
+                collision.polygon.setOrigin(overlapPoly.getOriginX(), overlapPoly.getOriginY());
+                collision.polygon.setPosition(overlapPoly.getX(), overlapPoly.getY());
+                collision.polygon.setRotation(overlapPoly.getRotation());
+                collision.polygon.setScale(overlapPoly.getScaleX(), overlapPoly.getScaleY());
+            } else {
+                velVerts[0] = 0;
+                velVerts[1] = 0;
+                velVerts[2] = transVector.depth;
+                velVerts[3] = 0;
+                velVerts[4] = transVector.depth;
+                velVerts[5] = transVector.depth;
+
+                collision.polygon.setVertices(velVerts);
+            }
+            return true;
+
+        }
+        return false;
+    }
+
+    private static boolean isConvex(float[] quad) {
+        int turns = 0;
+        for (int i = 0; i < 4; i++) {
+            int a = i * 2, b = ((i + 1) % 4) * 2, c = ((i + 2) % 4) * 2;
+            float cross = (quad[b] - quad[a]) * (quad[c + 1] - quad[b + 1]) - (quad[b + 1] - quad[a + 1]) * (quad[c] - quad[b]);
+            turns += (cross > 0) ? 1 : (cross < 0) ? -1 : 0;
+        }
+        return Math.abs(turns) == 4;
+    }
+
+    private Vector2 findCentroid(Array<Vector2> points) {
+        float x = 0;
+        float y = 0;
+        for (Vector2 v : points) {
+            x += v.x;
+            y += v.y;
+        }
+        centroid.set(x / points.size, y / points.size);
+        return centroid;
+    }
+
+}
@@ -0,0 +1,185 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import lando.systems.ld48.levels.Level;
+
+/**
+ * Answers "is there ground under this" straight from the collision tile layer.
+ * A short vertical ray only ever crosses the tile edges and ramps in its own column,
+ * so instead of intersecting it with every segment in the level we look at the couple of cells it passes through.
+ */
+public class GroundProbe {
+
+    // same sampling the old per-segment testGround loop used
+    public static final float SAMPLE_SPACING = 16f;
+    public static final float PROBE_ABOVE = 2f;
+    public static final float PROBE_BELOW = 8f;
+
+    private static final float INV_SQRT2 = 0.70710677f;
+
+    public static class Hit {
+        public boolean grounded;
+        public float height;
+        public final Vector2 normal = new Vector2();
+
+        public void reset() {
+            grounded = false;
+            height = -Float.MAX_VALUE;
+            normal.set(0, 1);
+        }
+    }
+
+    private final Level level;
+    private final TiledMapTileLayer layer;
+    private final float tileSize;
+    private final SegmentGrid segmentGrid;
+
+    private final Hit sampleHit = new Hit();
+    private final Array<Segment2D> candidates = new Array<>();
+    private final IntArray slots = new IntArray();
+    private final FloatArray crossings = new FloatArray();
+
+    public GroundProbe(Level level, SegmentGrid segmentGrid) {
+        this.level = level;
+        this.layer = level.getLayer(Level.LayerType.collision).tileLayer;
+        this.tileSize = layer.getTileWidth();
+        this.segmentGrid = segmentGrid;
+    }
+
+    /**
+     * Probe along the bottom of a rectangle, every {@link #SAMPLE_SPACING} pixels plus the right edge.
+     * The hit reports the highest surface found and its normal.
+     */
+    public boolean probe(Rectangle bounds, Hit hit) {
+        hit.reset();
+        for (float x = 0; x < bounds.width; x += SAMPLE_SPACING) {
+            sample(bounds.x + x, bounds.y, hit);
+        }
+        sample(bounds.x + bounds.width, bounds.y, hit);
+        return hit.grounded;
+    }
+
+    private void sample(float x, float y, Hit hit) {
+        if (castDown(x, y + PROBE_ABOVE, y - PROBE_BELOW, sampleHit) && sampleHit.height > hit.height) {
+            hit.grounded = true;
+            hit.height = sampleHit.height;
+            hit.normal.set(sampleHit.normal);
+        }
+    }
+
+    /**
+     * Vertical ray from yTop down to yBottom, the hit holds the highest collision edge the ray touches.
+     */
+    public boolean castDown(float x, float yTop, float yBottom, Hit hit) {
+        hit.reset();
+        if (yTop < yBottom) {
+            float t = yTop;
+            yTop = yBottom;
+            yBottom = t;
+        }
+
+        // a ray sitting exactly on a column boundary touches the end points of edges on both sides of it
+        int colRight = MathUtils.floor(x / tileSize);
+        int colLeft = (colRight * tileSize == x) ? colRight - 1 : colRight;
+
+        int rowBottom = MathUtils.floor(yBottom / tileSize);
+        int rowTop = MathUtils.floor(yTop / tileSize);
+        for (int col = colLeft; col <= colRight; col++) {
+            for (int row = rowBottom; row <= rowTop; row++) {
+                // horizontal edge along the bottom of this row, between (col, row - 1) and (col, row)
+                float edgeY = row * tileSize;
+                if (edgeY >= yBottom && edgeY <= yTop) {
+                    testEdge(col, row, edgeY, hit);
+                }
+                testRamp(col, row, x, yTop, yBottom, hit);
+            }
+        }
+
+        Array<Rectangle> rects = level.getCollisionRectangles();
+        for (int i = 0; i < rects.size; i++) {
+            Rectangle rect = rects.get(i);
+            if (x < rect.x || x > rect.x + rect.width) continue;
+            float top = rect.y + rect.height;
+            if (top >= yBottom && top <= yTop) record(hit, top, 0, 1);
+            if (rect.y >= yBottom && rect.y <= yTop) record(hit, rect.y, 0, -1);
+        }
+
+        return hit.grounded;
+    }
+
+    public boolean isAboveGround(float x, float y, float distanceToCheck) {
+        return castDown(x, y, y - distanceToCheck, sampleHit);
+    }
+
+    /**
+     * Arbitrary segments don't line up with a tile column, these go through the segment grid instead.
+     */
+    public boolean intersectsAny(Segment2D segment) {
+        segmentGrid.query(segment.collisionRect, candidates);
+        SegmentStore store = level.getCollisionStore();
+        SegmentStore.gather(candidates, slots);
+        float[] fractions = crossings.ensureCapacity(slots.size);
+        store.rayFractions(segment.start.x, segment.start.y, segment.delta.x, segment.delta.y, slots.items, slots.size, fractions);
+        for (int i = 0; i < slots.size; i++) {
+            if (fractions[i] != Float.MAX_VALUE) return true;
+        }
+        return false;
+    }
+
+    private void testEdge(int col, int row, float edgeY, Hit hit) {
+        boolean below = isSolid(col, row - 1);
+        boolean above = isSolid(col, row);
+        if (below && !above) {
+            byte ramp = level.getRampType(col, row - 1);
+            if (ramp == Level.RAMP_NONE || ramp == Level.RAMP_OPEN_BOTTOM_LEFT || ramp == Level.RAMP_OPEN_BOTTOM_RIGHT) {
+                record(hit, edgeY, 0, 1);
+            }
+        } else if (above && !below) {
+            byte ramp = level.getRampType(col, row);
+            if (ramp == Level.RAMP_NONE || ramp == Level.RAMP_OPEN_TOP_LEFT || ramp == Level.RAMP_OPEN_TOP_RIGHT) {
+                record(hit, edgeY, 0, -1);
+            }
+        }
+    }
+
+    private void testRamp(int col, int row, float x, float yTop, float yBottom, Hit hit) {
+        byte ramp = level.getRampType(col, row);
+        if (ramp == Level.RAMP_NONE) return;
+
+        float u = (x - col * tileSize) / tileSize;
+        if (u < 0f || u > 1f) return;
+
+        float height;
+        float nx, ny;
+        switch (ramp) {
+            default:
+            case Level.RAMP_OPEN_TOP_LEFT:     height = u;      nx = -INV_SQRT2; ny =  INV_SQRT2; break;
+            case Level.RAMP_OPEN_TOP_RIGHT:    height = 1f - u; nx =  INV_SQRT2; ny =  INV_SQRT2; break;
+            case Level.RAMP_OPEN_BOTTOM_LEFT:  height = 1f - u; nx = -INV_SQRT2; ny = -INV_SQRT2; break;
+            case Level.RAMP_OPEN_BOTTOM_RIGHT: height = u;      nx =  INV_SQRT2; ny = -INV_SQRT2; break;
+        }
+        float y = (row + height) * tileSize;
+        if (y >= yBottom && y <= yTop) {
+            record(hit, y, nx, ny);
+        }
+    }
+
+    private boolean isSolid(int col, int row) {
+        return layer.getCell(col, row) != null;
+    }
+
+    private void record(Hit hit, float y, float nx, float ny) {
+        if (!hit.grounded || y > hit.height) {
+            hit.grounded = true;
+            hit.height = y;
+            hit.normal.set(nx, ny);
+        }
+    }
+
+}
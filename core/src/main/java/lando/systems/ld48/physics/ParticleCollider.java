@@ -0,0 +1,235 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import lando.systems.ld48.particles.ParticleBuffer;
+
+/**
+ * Moves physics particles and bounces them off the level.
+ * With a terrain field a particle marches along its move by the sampled distance and bounces off the field's
+ * gradient, without one it tests the move against nearby segments.
+ * Everything it writes is either its own scratch or the particle slot it was handed, and the segment grid
+ * and field are only read, so one collider per worker can step disjoint ranges of a buffer at the same time.
+ */
+public class ParticleCollider {
+
+    // most distance samples one particle takes per step, a march that runs out just jumps to the end of the move
+    private static final int MAX_MARCH_STEPS = 8;
+
+    private final SegmentGrid segmentGrid;
+    private final TerrainField field;
+    public boolean useField = true;
+    // physics particles skipped because they're asleep, since the last reset
+    public int asleep;
+
+    private final Array<Segment2D> candidates = new Array<>();
+    private final Vector2 start = new Vector2();
+    private final Vector2 end = new Vector2();
+    private final Vector2 frameEndPos = new Vector2();
+    private final Vector2 vel = new Vector2();
+    private final Vector2 nearest1 = new Vector2();
+    private final Vector2 nearest2 = new Vector2();
+    private final Vector2 d1 = new Vector2();
+    private final Vector2 d2 = new Vector2();
+    private final Vector2 r = new Vector2();
+
+    private final Vector2 normal = new Vector2();
+
+    public ParticleCollider(SegmentGrid segmentGrid, TerrainField field) {
+        this.segmentGrid = segmentGrid;
+        this.field = field;
+    }
+
+    /**
+     * Step the physics particles in slots [from, to) of the buffer
+     */
+    public void update(ParticleBuffer particles, int from, int to, float dt, float damping, float gravity) {
+        for (int i = from; i < to; i++) {
+            if (!particles.hasFlag(i, ParticleBuffer.FLAG_PHYSICS)) continue;
+            if (particles.hasFlag(i, ParticleBuffer.FLAG_ASLEEP)) {
+                asleep++;
+                continue;
+            }
+            updateParticle(particles, i, dt, damping, gravity);
+        }
+    }
+
+    private void updateParticle(ParticleBuffer particles, int i, float dt, float damping, float gravity) {
+        float radius = particles.height(i);
+        vel.set(particles.vx[i], particles.vy[i]);
+
+        vel.scl(damping);
+
+        vel.x += particles.ax[i] * dt;
+        vel.y += (particles.ay[i] + gravity) * dt;
+
+        float nextX = particles.x[i] + vel.x * dt;
+        float nextY = particles.y[i] + vel.y * dt;
+        if (useField && field != null) {
+            march(particles, i, nextX, nextY, radius, dt);
+            return;
+        }
+
+        start.set(particles.x[i], particles.y[i]);
+        end.set(nextX, nextY);
+        frameEndPos.set(end);
+
+        float reach = radius + 1f;
+        segmentGrid.query(Math.min(start.x, nextX) - reach, Math.min(start.y, nextY) - reach,
+                          Math.max(start.x, nextX) + reach, Math.max(start.y, nextY) + reach, candidates);
+
+        boolean contact = false;
+        for (int j = 0; j < candidates.size; j++) {
+            Segment2D segment = candidates.get(j);
+            if (nearestPoints(start, end, segment.start, segment.end) && nearest1.dst2(nearest2) < reach * reach) {
+                frameEndPos.set(nearest1);
+                float backupDist = (radius + 1.1f) - nearest1.dst(nearest2);
+                float x = frameEndPos.x + backupDist * (segment.normal.x);
+                float y = frameEndPos.y + backupDist * (segment.normal.y);
+                frameEndPos.set(x, y);
+
+                vel.scl(particles.bounceScale[i]);
+                reflect(vel, segment.normal);
+                contact = true;
+            }
+        }
+        settle(particles, i, contact, frameEndPos.x - particles.x[i], frameEndPos.y - particles.y[i], dt);
+
+        particles.x[i] = frameEndPos.x;
+        particles.y[i] = frameEndPos.y;
+        particles.vx[i] = vel.x;
+        particles.vy[i] = vel.y;
+    }
+
+    private void march(ParticleBuffer particles, int i, float nextX, float nextY, float radius, float dt) {
+        float reach = radius + 1f;
+        float x = particles.x[i];
+        float y = particles.y[i];
+        float dx = nextX - x;
+        float dy = nextY - y;
+        float remaining = (float) Math.sqrt(dx * dx + dy * dy);
+        if (remaining > 0) {
+            dx /= remaining;
+            dy /= remaining;
+        }
+
+        // step by however much open space the field says there is, never by less than half a sample.
+        // something already touching a surface (resting, sliding) takes its whole move and gets resolved at the end
+        float minStep = field.cellSize / 2f;
+        float distance = field.sample(x, y);
+        if (distance < reach) {
+            x = nextX;
+            y = nextY;
+            remaining = 0;
+            distance = field.sample(x, y);
+        }
+        for (int step = 0; step < MAX_MARCH_STEPS && distance >= reach && remaining > 0; step++) {
+            float advance = Math.min(remaining, Math.max(distance - reach, minStep));
+            x += dx * advance;
+            y += dy * advance;
+            remaining -= advance;
+            distance = field.sample(x, y);
+        }
+        if (distance >= reach && remaining > 0) {
+            x += dx * remaining;
+            y += dy * remaining;
+            distance = field.sample(x, y);
+        }
+
+        boolean contact = distance < reach;
+        if (contact) {
+            field.gradient(x, y, normal);
+            if (normal.isZero()) {
+                normal.set(0, 1);
+            } else {
+                normal.nor();
+            }
+            float backupDist = (radius + 1.1f) - distance;
+            x += backupDist * normal.x;
+            y += backupDist * normal.y;
+
+            // only bounce what's heading into the surface, a particle resting on it just gets held up
+            if (vel.dot(normal) < 0) {
+                vel.scl(particles.bounceScale[i]);
+                reflect(vel, normal);
+            }
+        }
+        settle(particles, i, contact, x - particles.x[i], y - particles.y[i], dt);
+
+        particles.x[i] = x;
+        particles.y[i] = y;
+        particles.vx[i] = vel.x;
+        particles.vy[i] = vel.y;
+    }
+
+    /**
+     * A particle that keeps touching terrain without going anywhere falls asleep, it's done bouncing.
+     * Goes by how far it actually moved, a resting particle still picks up and bounces off a tick's worth of gravity.
+     */
+    private void settle(ParticleBuffer particles, int i, boolean contact, float movedX, float movedY, float dt) {
+        float maxMove = PhysicsSystem.PARTICLE_SLEEP_VELOCITY * dt;
+        if (!PhysicsSystem.sleeping || !contact || movedX * movedX + movedY * movedY >= maxMove * maxMove) {
+            particles.restTicks[i] = 0;
+            return;
+        }
+        if (++particles.restTicks[i] >= PhysicsSystem.PARTICLE_SLEEP_TICKS) {
+            particles.flags[i] |= ParticleBuffer.FLAG_ASLEEP;
+            vel.setZero();
+        }
+    }
+
+    /**
+     * Same as Utils.reflectVector, except the segment normal is already unit length and is shared
+     * between workers, so it's only read here.
+     */
+    private void reflect(Vector2 incoming, Vector2 normal) {
+        float initialSize = incoming.len();
+        incoming.nor();
+        float iDotN = incoming.dot(normal);
+        incoming.set(incoming.x - 2f * normal.x * iDotN,
+                     incoming.y - 2f * normal.y * iDotN)
+                .nor().scl(initialSize);
+    }
+
+    /**
+     * Closest points between two segments, left in nearest1 / nearest2. False if the segments are parallel.
+     */
+    private boolean nearestPoints(Vector2 seg1Start, Vector2 seg1End, Vector2 seg2Start, Vector2 seg2End) {
+        d1.set(seg1End).sub(seg1Start);
+        d2.set(seg2End).sub(seg2Start);
+        r.set(seg1Start).sub(seg2Start);
+
+        float a = d1.dot(d1);
+        float e = d2.dot(d2);
+        float f = d2.dot(r);
+
+        float b = d1.dot(d2);
+        float c = d1.dot(r);
+
+        float s;
+        float t;
+
+        float denom = a*e-b*b;
+        if (denom != 0){
+            s = MathUtils.clamp((b*f - c*e)/denom, 0f, 1f);
+        } else {
+            // Parallel
+            return false;
+        }
+
+        t = (b*s + f) /e;
+        if (t < 0) {
+            t = 0;
+            s = MathUtils.clamp(-c /a, 0, 1);
+        } else if (t > 1) {
+            t = 1;
+            s = MathUtils.clamp((b-c)/a, 0, 1);
+        }
+
+        nearest1.set(seg1Start).add(d1.scl(s));
+        nearest2.set(seg2Start).add(d2.scl(t));
+        return true;
+    }
+
+}
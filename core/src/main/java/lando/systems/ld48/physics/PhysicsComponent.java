@@ -16,7 +16,12 @@ public interface PhysicsComponent {
     boolean isGrounded();
     void setGrounded(boolean grounded);
     void onCollision();
+    ContactCache getContactCache();
+    SleepState getSleepState();
+    // sub-pixel movement carried between ticks by the pixel engine
+    Vector2 getMoveRemainder();
 
     void update(float dt);
     void render(SpriteBatch batch);
+    void render(SpriteBatch batch, float alpha);
 }
@@ -4,65 +4,127 @@ import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
 import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.Pools;
+import lando.systems.ld48.Platform;
+import lando.systems.ld48.entities.EntityStore;
+import lando.systems.ld48.entities.GameEntity;
 import lando.systems.ld48.levels.Level;
-import lando.systems.ld48.particles.Particle;
+import lando.systems.ld48.particles.ParticleBuffer;
+import lando.systems.ld48.particles.Particles;
 import lando.systems.ld48.screens.GameScreen;
-import lando.systems.ld48.utils.PointComparator;
-import lando.systems.ld48.utils.QuadTree;
-import lando.systems.ld48.utils.QuadTreeable;
-import lando.systems.ld48.utils.Utils;
 
 public class PhysicsSystem {
 
-    private final Pool<Collision> collisionPool = Pools.get(Collision.class, 100);
-
     static final float GRAVITY = -800;
 
+    // when set, every entity sweep also runs the old all-segments path and logs any contact list that differs
+    public static boolean validateBroadphase = false;
+
+    // how bodies move through a level, picked per level with the map's 'physics-engine' property
+    //  segments - continuous sweeps against the collision segments
+    //  pixels   - whole pixel steps against the collision tiles, see PixelMover
+    public enum Engine { segments, pixels }
+
+    public enum Narrowphase { polygon, analytic }
+    public static Narrowphase narrowphase = Narrowphase.analytic;
+    // when set, every analytic contact is checked against the polygon solver and differences are logged
+    public static boolean validateNarrowphase = false;
+
+    // reuse each entity's broadphase candidates across sweeps while it stays inside the area they were queried for
+    public static boolean contactCache = true;
+    // bodies that sit still on the ground long enough stop being simulated until something disturbs them
+    public static boolean sleeping = true;
+    static final float SLEEP_VELOCITY = 2f;
+    static final int SLEEP_TICKS = 30;
+    static final float PARTICLE_SLEEP_VELOCITY = 6f;
+    static final int PARTICLE_SLEEP_TICKS = 10;
+    // collision edits wake anything within this much of the changed segments
+    private static final float WAKE_MARGIN = 16f;
+    // bounce particles off the level's terrain field when it has one, otherwise off nearby segments
+    public static boolean particleField = true;
+    // split particle collision across the platform's workers, the single threaded path gives identical results
+    public static boolean parallelParticles = true;
+    // below this many slots per task handing work to another thread costs more than it saves
+    private static final int MIN_PARTICLES_PER_TASK = 512;
+
     private GameScreen screen;
     private Vector2 normal;
     Vector2 tempStart1 = new Vector2();
     Vector2 tempEnd1 = new Vector2();
-    Vector2 frameEndPos = new Vector2();
-    Vector2 tempStart2 = new Vector2();
-    Vector2 tempEnd2 = new Vector2();
-    Vector2 nearest1 = new Vector2();
-    Vector2 nearest2 = new Vector2();
-    Vector2 incomingVector = new Vector2();
-    Vector2 nearestRight1 = new Vector2();
-    Vector2 nearestRight2 = new Vector2();
-    Vector2 collisionResult = new Vector2();
     Vector2 moveVector = new Vector2();
     Vector2 oldPos = new Vector2();
-    Array<Vector2> projPoints = new Array<>();
 
-    Array<Collision> collisions = new Array<>();
-    public QuadTree collisionTree;
-    Array<QuadTreeable> quadEntities = new Array<>();
-    PointComparator sorter;
-    float storeDT;
+    Collision contact = new Collision();
+    public SegmentGrid segmentGrid;
+    public GroundProbe groundProbe;
+    public TerrainQuery terrainQuery;
+    public PixelMover pixelMover;
+    public final Engine engine;
+    TerrainField terrainField;
+    Array<Segment2D> fieldSegments = new Array<>();
+    GroundProbe.Hit groundHit = new GroundProbe.Hit();
+    Array<Segment2D> candidateSegments = new Array<>();
+    final Array<Segment2D> noSegments = new Array<>(0);
+    // last update's sweep loop iterations and contact cache use, for the debug overlay
+    public int sweepIterations;
+    public int cacheHits;
+    public int cacheMisses;
+    // resolved contacts against a segment the entity was already touching last tick
+    public int warmStarts;
+    // bodies and physics particles asleep / awake as of the last update
+    public int sleepingBodies;
+    public int awakeBodies;
+    public int sleepingParticles;
+    Rectangle wakeBounds = new Rectangle();
+    BodySleep bodySleep = new BodySleep();
+    Array<GameEntity> touchingEntities = new Array<>();
+    // physics bodies near an area, through the entity store's spatial index
+    BodySleep.Neighbours neighbours = (area, out) -> {
+        screen.entities.overlapping(area, EntityStore.Group.physics, touchingEntities);
+        out.clear();
+        out.addAll(touchingEntities);
+        touchingEntities.clear();
+    };
+    Rectangle sweepBounds = new Rectangle();
+    int nextSegmentOrder;
+    public ContactFinder contacts;
+    ParticleCollider[] particleColliders;
+    ParticleBuffer particleBuffer;
+    int particleChunk;
+    float particleDt;
+    float particleDamping;
+    Platform.Task particleTask = index -> {
+        int from = index * particleChunk;
+        int to = Math.min(from + particleChunk, particleBuffer.size);
+        particleColliders[index].update(particleBuffer, from, to, particleDt, particleDamping, GRAVITY);
+    };
 
 
 
     public PhysicsSystem(GameScreen screen) {
         this.screen = screen;
         this.normal = new Vector2();
-        for (int i = 0; i < 4; i++){
-            projPoints.add(new Vector2());
-        }
         TiledMapTileLayer collisionLayer = screen.level.getLayer(Level.LayerType.collision).tileLayer;
         float width = collisionLayer.getWidth() * collisionLayer.getTileWidth();
         float height = collisionLayer.getHeight() * collisionLayer.getTileHeight();
-        collisionTree = new QuadTree(screen.game.assets, 0, new Rectangle(0,0, width, height));
-        rebuildTree();
-        sorter = new PointComparator();
-        storeDT = 0;
+        segmentGrid = new SegmentGrid(width, height, SegmentGrid.DEFAULT_CELL_SIZE);
+        groundProbe = new GroundProbe(screen.level, segmentGrid);
+        terrainQuery = new TerrainQuery(screen.level, segmentGrid);
+        pixelMover = new PixelMover(screen.level, terrainQuery);
+        contacts = new ContactFinder(screen.level.getCollisionStore());
+        engine = screen.level.getPhysicsEngine();
+        terrainField = screen.level.getTerrainField();
+        particleColliders = new ParticleCollider[Math.max(1, screen.game.platform.getParallelism())];
+        for (int i = 0; i < particleColliders.length; i++) {
+            particleColliders[i] = new ParticleCollider(segmentGrid, terrainField);
+        }
+        rebuildIndex();
     }
 
     public void update(float dt) {
         if (screen.level.isCollisionDirty()) {
-            rebuildTree();
+            rebuildIndex();
+        } else {
+            applySegmentChanges();
         }
         //update particles
         updateParticles(dt);
@@ -70,45 +132,170 @@ public class PhysicsSystem {
     }
 
     public void renderDebug(SpriteBatch batch) {
-        collisionTree.renderDebug(batch);
+        segmentGrid.renderDebug(batch, screen.game.assets);
     }
 
-    private void rebuildTree() {
-        collisionTree.clear();
-        for (Segment2D segment : screen.level.getCollisionSegments()){
-            collisionTree.insert(segment);
+    private void rebuildIndex() {
+        segmentGrid.clear();
+        Array<Segment2D> segments = screen.level.getCollisionSegments();
+        for (int i = 0; i < segments.size; i++) {
+            Segment2D segment = segments.get(i);
+            segment.order = i;
+            segmentGrid.insert(segment);
         }
+        nextSegmentOrder = segments.size;
+        // the field was built along with the level, only what changed since then needs another pass
+        rebakeField(screen.level.getAddedSegments());
+        rebakeField(screen.level.getRemovedSegments());
+        wakeNear(screen.level.getAddedSegments());
+        wakeNear(screen.level.getRemovedSegments());
+        screen.level.clearSegmentChanges();
         screen.level.setCollisionDirty(false);
     }
 
+    private void applySegmentChanges() {
+        Array<Segment2D> added = screen.level.getAddedSegments();
+        Array<Segment2D> removed = screen.level.getRemovedSegments();
+        if (added.size == 0 && removed.size == 0) return;
+
+        for (int i = 0; i < added.size; i++) {
+            insertSegment(added.get(i));
+        }
+        for (int i = 0; i < removed.size; i++) {
+            removeSegment(removed.get(i));
+        }
+        rebakeField(added);
+        rebakeField(removed);
+        wakeNear(added);
+        wakeNear(removed);
+        screen.level.clearSegmentChanges();
+    }
+
+    public void insertSegment(Segment2D segment) {
+        // new segments sort after everything already in the level, same as appending to the segment list
+        segment.order = nextSegmentOrder++;
+        segmentGrid.insert(segment);
+    }
+
+    public void removeSegment(Segment2D segment) {
+        segmentGrid.remove(segment);
+    }
+
+    /**
+     * Re-bake the terrain field around segments that were added or removed, with whatever is in the segment grid now
+     */
+    private void rebakeField(Array<Segment2D> changed) {
+        for (int i = 0; i < changed.size; i++) {
+            rebakeField(changed.get(i).collisionRect);
+        }
+    }
+
+    private void rebakeField(Rectangle bounds) {
+        if (terrainField == null) return;
+        float reach = terrainField.maxDistance;
+        float minX = bounds.x - reach;
+        float minY = bounds.y - reach;
+        float maxX = bounds.x + bounds.width + reach;
+        float maxY = bounds.y + bounds.height + reach;
+        segmentGrid.query(minX - reach, minY - reach, maxX + reach, maxY + reach, fieldSegments);
+        terrainField.bake(minX, minY, maxX, maxY, fieldSegments);
+    }
+
+    private void wakeNear(Array<Segment2D> changed) {
+        for (int i = 0; i < changed.size; i++) {
+            wakeNear(changed.get(i).collisionRect);
+        }
+    }
+
+    /**
+     * Wake every body and particle close to a collision change, whatever they were resting on might be gone
+     */
+    private void wakeNear(Rectangle bounds) {
+        wakeBounds.set(bounds.x - WAKE_MARGIN, bounds.y - WAKE_MARGIN, bounds.width + 2 * WAKE_MARGIN, bounds.height + 2 * WAKE_MARGIN);
+        Array<PhysicsComponent> entities = screen.entities.physics;
+        for (int i = 0; i < entities.size; i++) {
+            PhysicsComponent obj = entities.get(i);
+            if (obj.getSleepState().asleep && wakeBounds.overlaps((Rectangle) obj.getCollisionBounds())) {
+                obj.getSleepState().wake();
+            }
+        }
+        for (Particles.Layer layer : Particles.Layer.values()) {
+            ParticleBuffer particles = screen.particles.getBuffer(layer);
+            for (int i = 0; i < particles.size; i++) {
+                if (particles.hasFlag(i, ParticleBuffer.FLAG_ASLEEP) && wakeBounds.contains(particles.x[i], particles.y[i])) {
+                    particles.flags[i] &= ~ParticleBuffer.FLAG_ASLEEP;
+                    particles.restTicks[i] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-index a segment whose end points changed, previousBounds is its collision rect before the change
+     */
+    public void updateSegment(Segment2D segment, Rectangle previousBounds) {
+        screen.level.getCollisionStore().repack(segment);
+        segmentGrid.update(segment, previousBounds);
+        rebakeField(previousBounds);
+        rebakeField(segment.collisionRect);
+        wakeNear(previousBounds);
+        wakeNear(segment.collisionRect);
+    }
+
     public boolean isPositionAboveGround(Vector2 pos) {
         return isPositionAboveGround(pos, 10);
     }
     public boolean isPositionAboveGround(Vector2 pos, float distanceToCheck) { return isPositionAboveGround(pos.x, pos.y, distanceToCheck);}
     public boolean isPositionAboveGround(float x, float y, float distanceToCheck) {
-        tempStart1.set(x, y);
-        tempEnd1.set(x, y - distanceToCheck);
-//        collisionResult = checkSegmentCollision(tempStart1, tempEnd1, segment.start, segment.end, nearest1, nearest2, collisionResult);
-        for (Segment2D segment : screen.level.getCollisionSegments()) {
-            if (intersectSegments(tempStart1, tempEnd1, segment.start, segment.end, collisionResult)) {
-                return true;
-            }
-        }
-        return false;
+        return groundProbe.isAboveGround(x, y, distanceToCheck);
     }
 
     public boolean isPositionAboveGround(Segment2D segment) {
-        for (Segment2D colSegment : screen.level.getCollisionSegments()) {
-            if (intersectSegments(segment.start, segment.end, colSegment.start, colSegment.end, collisionResult)){
-                return true;
-            }
-        }
-        return false;
+        return groundProbe.intersectsAny(segment);
+    }
+
+    // ------------------------------------------------------------------------
+    // Queries, see TerrainQuery
+    // ------------------------------------------------------------------------
+
+    public boolean raycast(Vector2 start, Vector2 end, RaycastHit hit) {
+        return terrainQuery.raycast(start.x, start.y, end.x, end.y, hit);
+    }
+
+    public boolean raycast(float x1, float y1, float x2, float y2, RaycastHit hit) {
+        return terrainQuery.raycast(x1, y1, x2, y2, hit);
+    }
+
+    /**
+     * Line of sight check, true when the ray reaches the target before any terrain
+     */
+    public boolean firstHit(Vector2 start, Vector2 end, Rectangle target, RaycastHit hit) {
+        return terrainQuery.firstHit(start.x, start.y, end.x, end.y, target, hit);
+    }
+
+    public boolean overlapRect(Rectangle rect) {
+        return terrainQuery.overlapRect(rect);
+    }
+
+    public boolean sweepRect(Rectangle rect, Vector2 move, RaycastHit hit) {
+        return terrainQuery.sweepRect(rect, move.x, move.y, hit);
+    }
+
+    public float getCacheHitRate() {
+        int total = cacheHits + cacheMisses;
+        return (total == 0) ? 0f : cacheHits / (float) total;
     }
 
     private void updateGameEntities(float dt) {
-        Array<PhysicsComponent> entities = screen.physicsEntities;
+        sweepIterations = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+        warmStarts = 0;
+        pixelMover.steps = 0;
+        Array<PhysicsComponent> entities = screen.entities.physics;
         for (PhysicsComponent obj : entities) {
+            if (!screen.level.isResident(obj.getPosition().x, obj.getPosition().y)) continue;
+            if (bodySleep.isSleeping(obj)) continue;
             Vector2 accel = obj.getAcceleration();
             Vector2 vel = obj.getVelocity();
             Vector2 pos = obj.getPosition();
@@ -128,6 +315,12 @@ public class PhysicsSystem {
                 impulse.z -= dt;
             }
 
+            if (engine == Engine.pixels) {
+                pixelMover.move(obj, dt);
+                bodySleep.settle(obj);
+                continue;
+            }
+
             float dtLeft = dt;
             moveVector.set(vel.x, vel.y);
 
@@ -137,274 +330,113 @@ public class PhysicsSystem {
                 if (moveVector.len2() < .01) break;
                 hadCollision = false;
                 i++;
+                sweepIterations++;
                 moveVector.scl(dtLeft);
-                checkCollisions(obj);
+                // one query per pass, made for the move that's left after the last pass's slide
                 float dtUsed = 0;
-                for(Collision c : collisions) {
-//                    if (c.distance.normal.dot(c.segment.normal) == 0) continue;
-                    if (c.segment.normal.dot(moveVector) > 0) continue;
-
-                    bounds = (Rectangle) obj.getCollisionBounds();
-                    if (sweepRectSegment(bounds, c.segment, moveVector, c)) {
-                        float s = Math.signum(c.distance.normal.dot(c.segment.normal));
-                        pos.add(moveVector);
-                        pos.add((c.distance.depth+.01f) * c.distance.normal.x * s, (c.distance.depth+.01f) * c.distance.normal.y * s);
-                        tempStart1.set(c.segment.end).sub(c.segment.start);
-                        float dot = tempEnd1.set(moveVector).dot(tempStart1);
-                        moveVector.set(tempStart1.scl(dot / tempStart1.len2()));
-
-                        dtUsed = dtLeft * MathUtils.clamp(1f - c.t, 0, 1f);
-//                        moveVector.scl(MathUtils.clamp(1f - c.t, 0, 1f));
-                        hadCollision = true;
-                        obj.onCollision();
-                        break;
-                    }
+                if (findContact(obj)) {
+                    Collision c = contact;
+                    float s = Math.signum(c.distance.normal.dot(c.segment.normal));
+                    pos.add(moveVector);
+                    pos.add((c.distance.depth+.01f) * c.distance.normal.x * s, (c.distance.depth+.01f) * c.distance.normal.y * s);
+                    tempStart1.set(c.segment.end).sub(c.segment.start);
+                    float dot = tempEnd1.set(moveVector).dot(tempStart1);
+                    moveVector.set(tempStart1.scl(dot / tempStart1.len2()));
+
+                    dtUsed = dtLeft * MathUtils.clamp(1f - c.t, 0, 1f);
+                    hadCollision = true;
+                    obj.onCollision();
                 }
                 moveVector.scl(1/dtLeft);
                 dtLeft -= dtUsed;
-                if (hadCollision) checkCollisions(obj);
-//                handleCollision(c.startPos, c.segment, moveVector, tempEnd2);
             }
-
-            boolean groundThisFrame = false;
-            for (Segment2D segment : screen.level.getCollisionSegments()){
-                for (int x = 0; x < bounds.width; x+= 16) {
-                    tempStart1.set(bounds.x + x, bounds.y);
-                    if (testGround(tempStart1, segment)) groundThisFrame = true;
-                }
-                tempStart1.set(bounds.x + bounds.width, bounds.y);
-                if (testGround(tempStart1, segment)) groundThisFrame = true;
+            if (contactCache) {
+                obj.getContactCache().endTick();
             }
 
-            obj.setGrounded(groundThisFrame);
+            // probe from where the last contact left it, not from where the tick started
+            bounds = (Rectangle) obj.getCollisionBounds();
+            obj.setGrounded(groundProbe.probe(bounds, groundHit));
 //            if (moveVector.len2() < .01f) moveVector.set(0,0);
             pos.add(moveVector.x * dtLeft, moveVector.y * dtLeft);
-            float origLength = vel.len();
-//            vel.set(moveVector).nor().scl(origLength);
             vel.set(moveVector);
+            bodySleep.settle(obj);
         }
+        bodySleep.wakeTouched(entities, neighbours);
+        sleepingBodies = bodySleep.sleepingBodies;
+        awakeBodies = bodySleep.awakeBodies;
     }
 
-    private void checkCollisions(PhysicsComponent obj){
+    /**
+     * The first contact the body's current move runs into, into {@link #contact}. Candidates come from the body's
+     * contact cache when it's on, and what the body touched last tick is tested first.
+     */
+    private boolean findContact(PhysicsComponent obj){
         Rectangle bounds = (Rectangle) obj.getCollisionBounds();
-        collisionPool.freeAll(collisions);
-        collisions.clear();
-        for (Segment2D segment : screen.level.getCollisionSegments()) {
-            Collision c = collisionPool.obtain();
-            try {
-                if (sweepRectSegment(bounds, segment, moveVector, c)) {
-                    collisions.add(c);
-                } else {
-                    collisionPool.free(c);
-                }
-            } catch (Exception e){
-                // Had a polygon error here once, so if they go one frame inside so be it.
-            }
-        }
-        collisions.sort();
-    }
 
-    private float dtAmount = .03f;
-    private void updateParticles(float dt){
-        storeDT += dt;
-        if (storeDT > dtAmount){
-            storeDT -= dtAmount;
-            dt = dtAmount;
+        // only segments whose bounds touch the area swept by this move can produce a contact
+        float minX = Math.min(bounds.x, bounds.x + moveVector.x);
+        float minY = Math.min(bounds.y, bounds.y + moveVector.y);
+        float maxX = Math.max(bounds.x + bounds.width, bounds.x + bounds.width + moveVector.x);
+        float maxY = Math.max(bounds.y + bounds.height, bounds.y + bounds.height + moveVector.y);
+        sweepBounds.set(minX, minY, maxX - minX, maxY - minY);
+        Array<Segment2D> candidates = candidateSegments;
+        Array<Segment2D> tryFirst = noSegments;
+        ContactCache cache = obj.getContactCache();
+        if (contactCache) {
+            if (cache.covers(sweepBounds, segmentGrid)) {
+                cache.hits++;
+                cacheHits++;
+            } else {
+                cache.refresh(sweepBounds, segmentGrid);
+                cache.misses++;
+                cacheMisses++;
+            }
+            candidates = cache.candidates;
+            tryFirst = cache.active;
         } else {
-            return;
+            segmentGrid.query(sweepBounds, candidateSegments);
         }
-        Array<PhysicsComponent> particles = screen.particles.getPhysicalParticles();
-        for(PhysicsComponent obj : particles){
-            Vector2 accel = obj.getAcceleration();
-            Vector2 vel = obj.getVelocity();
-            Vector2 pos = obj.getPosition();
-            float scale = obj.getBounceScale();
-            Circle bounds = (Circle) obj.getCollisionBounds();
 
-            vel.scl((float)Math.pow(.4f, dt));
+        if (validateBroadphase) {
+            contacts.validateCandidates(bounds, moveVector, screen.level.getCollisionSegments(), candidates);
+        }
 
-            vel.x += accel.x * dt;
-            vel.y += (accel.y + GRAVITY) * dt;
-
-
-            float nextX = pos.x + vel.x * dt;
-            float nextY = pos.y + vel.y * dt;
-            tempStart1.set(pos);
-            tempEnd1.set(nextX, nextY);
-            frameEndPos.set(tempEnd1);
-
-            quadEntities.clear();
-            collisionTree.retrieve(quadEntities, (Particle) obj);
-
-            for (QuadTreeable entity : quadEntities) {
-                Segment2D segment = (Segment2D)entity;
-                collisionResult = checkSegmentCollision(tempStart1, tempEnd1, segment.start, segment.end, nearest1, nearest2, collisionResult);
-                if (collisionResult.x != Float.MAX_VALUE && nearest1.dst2(nearest2) < (bounds.radius + 1f) * (bounds.radius + 1f)){
-                    frameEndPos.set(nearest1);
-                    float backupDist = (bounds.radius + 1.1f) - nearest1.dst(nearest2);
-                    float x = frameEndPos.x + backupDist * (segment.normal.x);
-                    float y = frameEndPos.y + backupDist * (segment.normal.y);
-                    frameEndPos.set(x, y);
-
-                    vel.scl(scale);
-                    vel.set(Utils.reflectVector(incomingVector.set(vel), segment.normal));
-
-//                    if (vel.epsilonEquals(0, 0, 6f)) {
-//                        ((Particle)obj).setPhysics(false);
-//                        vel.set(0,0);
-//                    }
-                }
-            }
-            pos.set(frameEndPos);
+        if (!contacts.firstContact(bounds, moveVector, candidates, tryFirst, contact)) return false;
+        if (contactCache) {
+            if (cache.active.contains(contact.segment, true)) warmStarts++;
+            cache.touch(contact.segment);
         }
+        return true;
     }
 
-//    private void handleCollision(Vector2 startPos, Segment2D segment, Vector2 movement, Vector2 end) {
-//        tempStart1.set(startPos.x, startPos.y);
-//        tempEnd1.set(startPos.x + movement.x, startPos.y + movement.y);
-////        collisionResult = checkSegmentCollision(tempStart1, tempEnd1, segment.start, segment.end, nearest1, nearest2, collisionResult);
-//        if (intersectSegments(tempStart1, tempEnd1, segment.start, segment.end, collisionResult)){
-//            tempStart1.set(segment.end).sub(segment.start);
-//            float dot = tempEnd1.set(movement).dot(tempStart1);
-//            movement.set(tempStart1.scl(dot/ tempStart1.len2()));
-//        }
-//    }
-
-    private Array<Vector2> touchPoints = new Array<>();
-    private Vector2 intersectionPoint = new Vector2();
-    private float[] rectVerts = new float[8];
-    private float[] velVerts = new float[8];
-    private Polygon rectPoly = new Polygon();
-    private Polygon velPoly = new Polygon();
-    private Polygon overlapPoly = new Polygon();
-    private Intersector.MinimumTranslationVector transVector = new Intersector.MinimumTranslationVector();
-    private boolean sweepRectSegment(Rectangle rect, Segment2D segment, Vector2 v, Collision collision) {
-        rectVerts[0] = rect.x; rectVerts[1] = rect.y;
-        rectVerts[2] = rect.x; rectVerts[3] = rect.y + rect.height;
-        rectVerts[4] = rect.x + rect.width; rectVerts[5] = rect.y + rect.height;
-        rectVerts[6] = rect.x + rect.width; rectVerts[7] = rect.y;
-
-
-        projPoints.get(0).set(segment.start);
-        projPoints.get(1).set(segment.start.x - v.x, segment.start.y - v.y);
-        projPoints.get(2).set(segment.end);
-        projPoints.get(3).set(segment.end.x - v.x, segment.end.y - v.y);
-
-        sorter.center = findCentroid(projPoints);
-        projPoints.sort(sorter);
-        for (int i = 0; i < 4; i ++){
-            velVerts[i*2] = projPoints.get(i).x;
-            velVerts[i*2 +1] = projPoints.get(i).y;
+    private void updateParticles(float dt){
+        particleDt = dt;
+        particleDamping = (float)Math.pow(.4f, dt);
+        for (int i = 0; i < particleColliders.length; i++) {
+            particleColliders[i].useField = particleField;
+            particleColliders[i].asleep = 0;
         }
-        if (Intersector.overlapConvexPolygons(rectVerts, velVerts, transVector)) {
-            rectPoly.setVertices(rectVerts);
-            velPoly.setVertices(velVerts);
-            collision.init(segment, transVector);
-            collision.rect.set(rect);
-            collision.t = transVector.depth / v.len();
-            collision.velocity.set(v);
-            if (Intersector.intersectPolygons(rectPoly, velPoly, overlapPoly)) {
-                collision.polygon.setVertices(overlapPoly.getVertices());
-                collision.polygon.setOrigin(overlapPoly.getOriginX(), overlapPoly.getOriginY());
-                collision.polygon.setPosition(overlapPoly.getX(), overlapPoly.getY());
-                collision.polygon.setRotation(overlapPoly.getRotation());
-                collision.polygon.setScale(overlapPoly.getScaleX(), overlapPoly.getScaleY());
+        for (Particles.Layer layer : Particles.Layer.values()) {
+            ParticleBuffer particles = screen.particles.getBuffer(layer);
+            int tasks = 1;
+            if (parallelParticles) {
+                tasks = MathUtils.clamp(MathUtils.ceil(particles.size / (float) MIN_PARTICLES_PER_TASK), 1, particleColliders.length);
+            }
+            if (tasks == 1) {
+                particleColliders[0].update(particles, 0, particles.size, dt, particleDamping, GRAVITY);
             } else {
-                velVerts[0] = 0;
-                velVerts[1] = 0;
-                velVerts[2] = transVector.depth;
-                velVerts[3] = 0;
-                velVerts[4] = transVector.depth;
-                velVerts[5] = transVector.depth;
-
-                collision.polygon.setVertices(velVerts);
+                // each slot only depends on itself and the static segments, so any split gives the same result
+                particleBuffer = particles;
+                particleChunk = MathUtils.ceil(particles.size / (float) tasks);
+                screen.game.platform.runAll(tasks, particleTask);
+                particleBuffer = null;
             }
-            return true;
-
-        }
-        return false;
-    }
-
-    private boolean testGround(Vector2 startPos, Segment2D segment){
-        tempStart1.set(startPos.x, startPos.y + 2);
-        tempEnd1.set(startPos.x, startPos.y - 8);
-//        collisionResult = checkSegmentCollision(tempStart1, tempEnd1, segment.start, segment.end, nearest1, nearest2, collisionResult);
-        if (intersectSegments(tempStart1, tempEnd1, segment.start, segment.end, collisionResult)){
-            return true;
         }
-        return false;
-    }
-
-    private Vector2 findCentroid(Array<Vector2> points) {
-        float x = 0;
-        float y = 0;
-        for (Vector2 v : points) {
-            x += v.x;
-            y += v.y;
+        sleepingParticles = 0;
+        for (int i = 0; i < particleColliders.length; i++) {
+            sleepingParticles += particleColliders[i].asleep;
         }
-        tempStart1.set(x / points.size, y / points.size);
-        return tempStart1;
-    }
-//    private void testDownRay(Vector2 start, )
-
-    private Vector2 d1 = new Vector2();
-    private Vector2 d2 = new Vector2();
-    private Vector2 r = new Vector2();
-    private Vector2 checkSegmentCollision(Vector2 seg1Start, Vector2 seg1End, Vector2 seg2Start, Vector2 seg2End, Vector2 nearestSeg1, Vector2 nearestSeg2, Vector2 results){
-        d1.set(seg1End).sub(seg1Start);
-        d2.set(seg2End).sub(seg2Start);
-        r.set(seg1Start).sub(seg2Start);
-
-        float a = d1.dot(d1);
-        float e = d2.dot(d2);
-        float f = d2.dot(r);
-
-        float b = d1.dot(d2);
-        float c = d1.dot(r);
-
-        float s = 0;
-        float t = 0;
-
-        float denom = a*e-b*b;
-        if (denom != 0){
-            s = MathUtils.clamp((b*f - c*e)/denom, 0f, 1f);
-        } else {
-            // Parallel
-            return results.set(Float.MAX_VALUE, Float.MAX_VALUE);
-        }
-
-        t = (b*s + f) /e;
-        if (t < 0) {
-            t = 0;
-            s = MathUtils.clamp(-c /a, 0, 1);
-        } else if (t > 1) {
-            t = 1;
-            s = MathUtils.clamp((b-c)/a, 0, 1);
-        }
-
-        nearestSeg1.set(seg1Start).add(d1.scl(s));
-        nearestSeg2.set(seg2Start).add(d2.scl(t));
-        return results.set(s, t);
-    }
-
-    private Vector2 b = new Vector2();
-    private Vector2 d = new Vector2();
-    private Vector2 c = new Vector2();
-    private boolean intersectSegments(Vector2 start1, Vector2 end1, Vector2 start2, Vector2 end2, Vector2 intersection) {
-        intersection.set(0,0);
-        b.set(end1).sub(start1);
-        d.set(end2).sub(start2);
-
-        float dot = b.x * d.y - b.y * d.x;
-        if (dot == 0) return false;
-
-        c.set(start2).sub(start1);
-        float t = (c.x * d.y - c.y * d.x) / dot;
-        float u = (c.x * b.y - c.y * b.x) / dot;
-        if (t < 0 || t > 1 || u < 0 || u > 1) return false;
-
-        intersection.set(start1).add(b.scl(t));
-        return true;
     }
 
 }
@@ -0,0 +1,137 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import lando.systems.ld48.levels.Level;
+
+/**
+ * Moves bodies in whole pixels against the collision tiles, the other engine {@link PhysicsSystem} can run a level on.
+ *
+ * Velocity is added to a per body remainder every tick, the whole pixels of it get moved and the fraction carries
+ * over to the next tick. Each axis moves on its own one pixel at a time, and a pixel that would overlap a solid tile,
+ * the solid half of a ramp or a collision rectangle isn't taken. Sideways moves step up or down a pixel to follow
+ * ramps. There are no sweeps and no contact solving, a body is never inside anything so it never needs pushing out.
+ */
+public class PixelMover {
+
+    private final Level level;
+    private final TerrainQuery terrainQuery;
+
+    // collision rectangles that were already overlapping the body when it started moving, it's let back out of them
+    private final Array<Rectangle> ignored = new Array<>();
+    private final Rectangle body = new Rectangle();
+
+    // pixel steps taken last update, for the debug overlay
+    public int steps;
+
+    public PixelMover(Level level, TerrainQuery terrainQuery) {
+        this.level = level;
+        this.terrainQuery = terrainQuery;
+    }
+
+    /**
+     * Move a body by its velocity for one tick, velocity has already been integrated
+     */
+    public void move(PhysicsComponent obj, float dt) {
+        Vector2 vel = obj.getVelocity();
+        Vector2 remainder = obj.getMoveRemainder();
+        Rectangle bounds = (Rectangle) obj.getCollisionBounds();
+        body.set(bounds);
+        collectIgnored();
+        snap(remainder);
+
+        boolean wasGrounded = obj.isGrounded();
+        remainder.add(vel.x * dt, vel.y * dt);
+        int moveX = MathUtils.round(remainder.x);
+        int moveY = MathUtils.round(remainder.y);
+        remainder.sub(moveX, moveY);
+
+        if (moveX != 0 && !moveX(moveX, wasGrounded)) {
+            vel.x = 0;
+            remainder.x = 0;
+            obj.onCollision();
+        }
+        if (moveY != 0 && !moveY(moveY)) {
+            vel.y = 0;
+            remainder.y = 0;
+            obj.onCollision();
+        }
+
+        obj.setGrounded(blocked(body.x, body.y - 1));
+        obj.getPosition().add(body.x - bounds.x, body.y - bounds.y);
+    }
+
+    /**
+     * Anything can set a position, put the body back on whole pixels unless that would put it inside something
+     */
+    private void snap(Vector2 remainder) {
+        float dx = MathUtils.round(body.x) - body.x;
+        float dy = MathUtils.round(body.y) - body.y;
+        if (dx == 0 && dy == 0) return;
+        if (blocked(body.x + dx, body.y + dy) && !blocked(body.x, body.y)) return;
+
+        body.x += dx;
+        body.y += dy;
+        remainder.sub(dx, dy);
+    }
+
+    private boolean moveX(int amount, boolean grounded) {
+        int sign = (amount > 0) ? 1 : -1;
+        while (amount != 0) {
+            if (!blocked(body.x + sign, body.y)) {
+                body.x += sign;
+                // walking down a ramp, stay on it instead of stepping off into the air
+                if (grounded && !blocked(body.x, body.y - 1) && blocked(body.x, body.y - 2)) {
+                    body.y -= 1;
+                }
+            } else if (!blocked(body.x + sign, body.y + 1)) {
+                // walking up a ramp, anything steeper than a pixel up per pixel across is a wall
+                body.x += sign;
+                body.y += 1;
+            } else {
+                return false;
+            }
+            amount -= sign;
+            steps++;
+        }
+        return true;
+    }
+
+    private boolean moveY(int amount) {
+        int sign = (amount > 0) ? 1 : -1;
+        while (amount != 0) {
+            if (blocked(body.x, body.y + sign)) return false;
+            body.y += sign;
+            amount -= sign;
+            steps++;
+        }
+        return true;
+    }
+
+    private boolean blocked(float x, float y) {
+        if (terrainQuery.overlapTiles(x, y, body.width, body.height)) return true;
+
+        Array<Rectangle> rects = level.getCollisionRectangles();
+        for (int i = 0; i < rects.size; i++) {
+            Rectangle rect = rects.get(i);
+            if (ignored.contains(rect, true)) continue;
+            if (x < rect.x + rect.width && x + body.width > rect.x && y < rect.y + rect.height && y + body.height > rect.y) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void collectIgnored() {
+        ignored.clear();
+        Array<Rectangle> rects = level.getCollisionRectangles();
+        for (int i = 0; i < rects.size; i++) {
+            if (rects.get(i).overlaps(body)) {
+                ignored.add(rects.get(i));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Result of a {@link PhysicsSystem} query, keep one around per caller and reuse it.
+ */
+public class RaycastHit {
+
+    public boolean hit;
+    public final Vector2 point = new Vector2();
+    // points back out of whatever was hit
+    public final Vector2 normal = new Vector2();
+    // world units from the start of the ray, or how far the rect moved before touching
+    public float distance;
+    // same thing as a fraction of the whole ray or move, 0..1
+    public float fraction;
+    // what was hit, both null when it was a collision tile
+    public Segment2D segment;
+    public Rectangle rect;
+
+    public void reset() {
+        hit = false;
+        point.setZero();
+        normal.setZero();
+        distance = Float.MAX_VALUE;
+        fraction = 1f;
+        segment = null;
+        rect = null;
+    }
+
+}
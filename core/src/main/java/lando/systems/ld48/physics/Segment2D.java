@@ -10,6 +10,10 @@ public class Segment2D implements QuadTreeable {
     public Vector2 delta;
     public Vector2 normal;
     public Rectangle collisionRect;
+    // position in the level's segment list, broadphase queries hand back candidates in this order
+    public int order;
+    // slot in the SegmentStore holding this segment, -1 when it isn't stored
+    public int storeIndex = -1;
 
     public Segment2D() {
         this(new Vector2(0,0), new Vector2(1,0));
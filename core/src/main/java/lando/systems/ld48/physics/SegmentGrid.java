@@ -0,0 +1,154 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import lando.systems.ld48.Assets;
+
+/**
+ * Uniform grid over the level that buckets collision segments by the cells their bounds touch,
+ * so sweeps only have to look at the segments near the area they move through.
+ */
+public class SegmentGrid {
+
+    public static final float DEFAULT_CELL_SIZE = 64f;
+
+    // pad queries a little so touching contacts and float slop in the polygon tests don't fall through the cracks
+    private static final float QUERY_MARGIN = 1f;
+
+    private final float cellSize;
+    private final int cols;
+    private final int rows;
+    private final Array<Segment2D>[] cells;
+    // bumped on every change, anything holding on to query results can tell when they're stale
+    private int version;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SegmentGrid(float width, float height, float cellSize) {
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, MathUtils.ceil(width / cellSize));
+        this.rows = Math.max(1, MathUtils.ceil(height / cellSize));
+        this.cells = new Array[cols * rows];
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void clear() {
+        version++;
+        for (Array<Segment2D> cell : cells) {
+            if (cell != null) cell.clear();
+        }
+    }
+
+    public void insert(Segment2D segment) {
+        version++;
+        Rectangle r = segment.collisionRect;
+        int x0 = cellX(r.x), x1 = cellX(r.x + r.width);
+        int y0 = cellY(r.y), y1 = cellY(r.y + r.height);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int i = x + y * cols;
+                if (cells[i] == null) {
+                    cells[i] = new Array<>(false, 8);
+                }
+                cells[i].add(segment);
+            }
+        }
+    }
+
+    public void remove(Segment2D segment) {
+        remove(segment, segment.collisionRect);
+    }
+
+    /**
+     * Remove a segment from the cells covered by the given bounds, for when the segment has already moved
+     */
+    public void remove(Segment2D segment, Rectangle bounds) {
+        version++;
+        int x0 = cellX(bounds.x), x1 = cellX(bounds.x + bounds.width);
+        int y0 = cellY(bounds.y), y1 = cellY(bounds.y + bounds.height);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                Array<Segment2D> cell = cells[x + y * cols];
+                if (cell != null) cell.removeValue(segment, true);
+            }
+        }
+    }
+
+    /**
+     * Re-bucket a segment whose end points changed, only the cells under the old and new bounds are touched
+     */
+    public void update(Segment2D segment, Rectangle previousBounds) {
+        remove(segment, previousBounds);
+        insert(segment);
+    }
+
+    /**
+     * Collect every segment whose bounds overlap the area, in ascending {@link Segment2D#order}
+     * so callers see candidates in the same order as the level's segment list.
+     */
+    public Array<Segment2D> query(Rectangle area, Array<Segment2D> out) {
+        return query(area.x, area.y, area.x + area.width, area.y + area.height, out);
+    }
+
+    public Array<Segment2D> query(float minX, float minY, float maxX, float maxY, Array<Segment2D> out) {
+        out.clear();
+        minX -= QUERY_MARGIN; minY -= QUERY_MARGIN;
+        maxX += QUERY_MARGIN; maxY += QUERY_MARGIN;
+
+        int qx0 = cellX(minX), qx1 = cellX(maxX);
+        int qy0 = cellY(minY), qy1 = cellY(maxY);
+        for (int y = qy0; y <= qy1; y++) {
+            for (int x = qx0; x <= qx1; x++) {
+                Array<Segment2D> cell = cells[x + y * cols];
+                if (cell == null) continue;
+                for (int i = 0; i < cell.size; i++) {
+                    Segment2D segment = cell.get(i);
+                    Rectangle r = segment.collisionRect;
+                    if (r.x > maxX || r.x + r.width < minX || r.y > maxY || r.y + r.height < minY) continue;
+                    // a segment lives in every cell its bounds touch, only report it from the
+                    // first cell that both it and the query cover so it shows up exactly once
+                    if (x != Math.max(qx0, cellX(r.x)) || y != Math.max(qy0, cellY(r.y))) continue;
+                    out.add(segment);
+                }
+            }
+        }
+
+        // insertion sort, candidate lists are short and this keeps the query free of shared sorter state
+        for (int i = 1; i < out.size; i++) {
+            Segment2D segment = out.get(i);
+            int j = i - 1;
+            while (j >= 0 && out.get(j).order > segment.order) {
+                out.set(j + 1, out.get(j));
+                j--;
+            }
+            out.set(j + 1, segment);
+        }
+        return out;
+    }
+
+    public void renderDebug(SpriteBatch batch, Assets assets) {
+        batch.setColor(0f, 1f, 1f, 0.2f);
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                Array<Segment2D> cell = cells[x + y * cols];
+                if (cell == null || cell.size == 0) continue;
+                assets.debugNinePatch.draw(batch, x * cellSize, y * cellSize, cellSize, cellSize);
+            }
+        }
+        batch.setColor(Color.WHITE);
+    }
+
+    private int cellX(float x) {
+        return MathUtils.clamp(MathUtils.floor(x / cellSize), 0, cols - 1);
+    }
+
+    private int cellY(float y) {
+        return MathUtils.clamp(MathUtils.floor(y / cellSize), 0, rows - 1);
+    }
+
+}
@@ -0,0 +1,490 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Owns the level's collision segments and finds them by position instead of scanning.
+ *
+ * Segments are looked up two ways, both keyed on end points snapped to a quarter pixel:
+ *  - by their exact (oriented) end points
+ *  - by every tile-edge slice they cover, so a piece of a consolidated run can be found and cut out of it
+ *
+ * Removal is a swap with the last slot, so the list order isn't stable, {@link Segment2D#order} is.
+ *
+ * Every stored segment is also packed into parallel float arrays at its slot ({@link Segment2D#storeIndex}).
+ * The batched tests at the bottom run over a list of slots and only touch those arrays, so testing one rect
+ * or ray against a few dozen candidates is a straight loop over floats instead of five objects per segment.
+ */
+public class SegmentStore {
+
+    private static final float QUANTUM = 4f;
+
+    private final float sliceSize;
+    private final Array<Segment2D> segments = new Array<>();
+    private final LongMap<Segment2D> byEndpoints = new LongMap<>();
+    private final LongMap<Segment2D> bySlice = new LongMap<>();
+
+    // packed end points, unit normals and bounds, slot i holds the segment at storeIndex i
+    public float[] x1 = new float[64];
+    public float[] y1 = new float[64];
+    public float[] x2 = new float[64];
+    public float[] y2 = new float[64];
+    public float[] nx = new float[64];
+    public float[] ny = new float[64];
+    public float[] minX = new float[64];
+    public float[] minY = new float[64];
+    public float[] maxX = new float[64];
+    public float[] maxY = new float[64];
+
+    public SegmentStore(float sliceSize) {
+        this.sliceSize = sliceSize;
+    }
+
+    public Segment2D get(int slot) {
+        return segments.get(slot);
+    }
+
+    public Array<Segment2D> getSegments() {
+        return segments;
+    }
+
+    public int size() {
+        return segments.size;
+    }
+
+    public void clear() {
+        for (Segment2D segment : segments) {
+            segment.storeIndex = -1;
+        }
+        segments.clear();
+        byEndpoints.clear();
+        bySlice.clear();
+    }
+
+    public void add(Segment2D segment) {
+        segment.storeIndex = segments.size;
+        segments.add(segment);
+        ensureCapacity(segments.size);
+        pack(segment.storeIndex, segment);
+        byEndpoints.put(key(segment.start.x, segment.start.y, segment.end.x, segment.end.y), segment);
+        forEachSlice(segment, segment, true);
+    }
+
+    /**
+     * The segment with exactly these end points, in this direction, or null
+     */
+    public Segment2D find(float x1, float y1, float x2, float y2) {
+        Segment2D segment = byEndpoints.get(key(x1, y1, x2, y2));
+        if (segment == null) return null;
+        if (matches(segment, x1, y1, x2, y2)) return segment;
+
+        // keys are hashes, in the unlikely case two segments share one the other is only found by looking
+        for (int i = 0; i < segments.size; i++) {
+            Segment2D candidate = segments.get(i);
+            if (matches(candidate, x1, y1, x2, y2)) return candidate;
+        }
+        return null;
+    }
+
+    /**
+     * The segment that fully contains the piece from (x1, y1) to (x2, y2) in either direction, or null
+     */
+    public Segment2D findContaining(float x1, float y1, float x2, float y2) {
+        Segment2D segment = find(x1, y1, x2, y2);
+        if (segment != null) return segment;
+
+        // the first slice of the piece points at the run it belongs to
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        int steps = steps(dx, dy);
+        float ex = (steps > 0) ? x1 + dx / steps : x2;
+        float ey = (steps > 0) ? y1 + dy / steps : y2;
+        segment = bySlice.get(sliceKey(x1, y1, ex, ey));
+        if (segment != null && contains(segment, x1, y1, x2, y2)) return segment;
+
+        // slices can collide when something was stacked on an existing edge, fall back to looking at everything
+        for (int i = 0; i < segments.size; i++) {
+            Segment2D candidate = segments.get(i);
+            if (contains(candidate, x1, y1, x2, y2)) return candidate;
+        }
+        return null;
+    }
+
+    public boolean remove(Segment2D segment) {
+        int index = segment.storeIndex;
+        if (index < 0 || index >= segments.size || segments.get(index) != segment) return false;
+
+        long endpointKey = key(segment.start.x, segment.start.y, segment.end.x, segment.end.y);
+        if (byEndpoints.get(endpointKey) == segment) {
+            byEndpoints.remove(endpointKey);
+        }
+        forEachSlice(segment, segment, false);
+
+        Segment2D last = segments.pop();
+        if (last != segment) {
+            segments.set(index, last);
+            last.storeIndex = index;
+            pack(index, last);
+        }
+        segment.storeIndex = -1;
+        return true;
+    }
+
+    /**
+     * Copy a stored segment's end points into the packed arrays again, after they were changed in place
+     */
+    public void repack(Segment2D segment) {
+        int index = segment.storeIndex;
+        if (index < 0 || index >= segments.size || segments.get(index) != segment) return;
+        pack(index, segment);
+    }
+
+    /**
+     * Cut the piece from (x1, y1) to (x2, y2) out of whatever segment contains it.
+     * The containing segment goes into 'removed' and what's left of it on either side goes into 'added'.
+     *
+     * @return false if no segment covers the piece
+     */
+    public boolean removePiece(float x1, float y1, float x2, float y2, Array<Segment2D> removed, Array<Segment2D> added) {
+        Segment2D segment = findContaining(x1, y1, x2, y2);
+        if (segment == null) return false;
+
+        remove(segment);
+        removed.add(segment);
+
+        // parameterize the piece along the segment so the leftovers keep the segment's direction (and normal)
+        float sx = segment.start.x, sy = segment.start.y;
+        float dx = segment.end.x - sx, dy = segment.end.y - sy;
+        float len2 = dx * dx + dy * dy;
+        float t1 = ((x1 - sx) * dx + (y1 - sy) * dy) / len2;
+        float t2 = ((x2 - sx) * dx + (y2 - sy) * dy) / len2;
+        float tMin = Math.min(t1, t2);
+        float tMax = Math.max(t1, t2);
+        float minLength = 1f / QUANTUM;
+
+        if (tMin * tMin * len2 >= minLength * minLength) {
+            Segment2D before = new Segment2D(sx, sy, sx + dx * tMin, sy + dy * tMin);
+            add(before);
+            added.add(before);
+        }
+        if ((1f - tMax) * (1f - tMax) * len2 >= minLength * minLength) {
+            Segment2D after = new Segment2D(sx + dx * tMax, sy + dy * tMax, segment.end.x, segment.end.y);
+            add(after);
+            added.add(after);
+        }
+        return true;
+    }
+
+    /**
+     * Join segments that run in the same direction and meet end to start into single segments, in place.
+     *
+     * Every segment is indexed by its start and end point (plus direction), so each run is followed link by link
+     * instead of rescanning every pair until nothing changes. A run is kept on its earliest segment and the list
+     * keeps its relative order, which is the same result the old pairwise loop settled on.
+     * Only horizontal, vertical and 45 degree segments are joined, those are the only ones the tile layer produces.
+     */
+    public static void mergeRuns(Array<Segment2D> segments) {
+        int count = segments.size;
+        // one pair of maps per direction, keyed on the exact quantized point
+        Array<LongMap<Segment2D>> byStart = new Array<>(DIRECTIONS);
+        Array<LongMap<Segment2D>> byEnd = new Array<>(DIRECTIONS);
+        for (int i = 0; i < DIRECTIONS; i++) {
+            byStart.add(new LongMap<>());
+            byEnd.add(new LongMap<>());
+        }
+        for (int i = 0; i < count; i++) {
+            Segment2D segment = segments.get(i);
+            segment.order = i;
+            int direction = direction(segment);
+            if (direction < 0) continue;
+            byStart.get(direction).put(runKey(segment.start.x, segment.start.y), segment);
+            byEnd.get(direction).put(runKey(segment.end.x, segment.end.y), segment);
+        }
+
+        boolean[] merged = new boolean[count];
+        Array<Segment2D> runs = new Array<>(count);
+        for (int i = 0; i < count; i++) {
+            if (merged[i]) continue;
+            merged[i] = true;
+            Segment2D segment = segments.get(i);
+            runs.add(segment);
+            int direction = direction(segment);
+            if (direction < 0) continue;
+            LongMap<Segment2D> starts = byStart.get(direction);
+            LongMap<Segment2D> ends = byEnd.get(direction);
+
+            // walk back to the head of the run, then forward to its tail
+            float startX = segment.start.x, startY = segment.start.y;
+            Segment2D link = ends.get(runKey(startX, startY));
+            while (link != null && !merged[link.order]) {
+                merged[link.order] = true;
+                startX = link.start.x;
+                startY = link.start.y;
+                link = ends.get(runKey(startX, startY));
+            }
+            float endX = segment.end.x, endY = segment.end.y;
+            link = starts.get(runKey(endX, endY));
+            while (link != null && !merged[link.order]) {
+                merged[link.order] = true;
+                endX = link.end.x;
+                endY = link.end.y;
+                link = starts.get(runKey(endX, endY));
+            }
+
+            if (startX != segment.start.x || startY != segment.start.y) segment.setStart(startX, startY);
+            if (endX != segment.end.x || endY != segment.end.y) segment.setEnd(endX, endY);
+        }
+
+        segments.clear();
+        segments.addAll(runs);
+    }
+
+    // ------------------------------------------------------------------------
+    // Batched tests, each takes the slots to look at and reads nothing but the packed arrays
+    // ------------------------------------------------------------------------
+
+    /**
+     * Slots of the given segments, segments that have since been removed from the store are left out
+     */
+    public static IntArray gather(Array<Segment2D> segments, IntArray out) {
+        out.clear();
+        out.ensureCapacity(segments.size);
+        for (int i = 0; i < segments.size; i++) {
+            int slot = segments.get(i).storeIndex;
+            if (slot >= 0) out.add(slot);
+        }
+        return out;
+    }
+
+    /**
+     * Keep the slots whose segment faces against the move (vx, vy), segments are one sided.
+     * Compacts slots in place, in order, and returns how many are left.
+     */
+    public int facing(float vx, float vy, int[] slots, int count) {
+        int kept = 0;
+        for (int k = 0; k < count; k++) {
+            int i = slots[k];
+            slots[kept] = i;
+            kept += (nx[i] * vx + ny[i] * vy < 0) ? 1 : 0;
+        }
+        return kept;
+    }
+
+    /**
+     * One rect moving by (vx, vy) against many segments: keep the slots whose segment, swept back along the move,
+     * overlaps the rect on all four axes the narrowphase separates on (segment normal, move perpendicular, x and y).
+     * Nothing the narrowphase would report a contact for is dropped, the test is padded by 'slop' on every axis.
+     * Compacts slots in place, in order, and returns how many are left.
+     */
+    public int overlapSwept(float rx, float ry, float rw, float rh, float vx, float vy, float slop, int[] slots, int count) {
+        float rx1 = rx + rw;
+        float ry1 = ry + rh;
+        float cx = rx + rw / 2f;
+        float cy = ry + rh / 2f;
+        float hw = rw / 2f;
+        float hh = rh / 2f;
+        // the segment is pushed back along the move, so its box grows by -v
+        float backMinX = Math.min(0f, -vx);
+        float backMaxX = Math.max(0f, -vx);
+        float backMinY = Math.min(0f, -vy);
+        float backMaxY = Math.max(0f, -vy);
+        // perpendicular to the move, pushing back along the move doesn't change anything's projection onto it
+        float vlen = (float) Math.sqrt(vx * vx + vy * vy);
+        float px = (vlen < 0.000001f) ? 0f : vy / vlen;
+        float py = (vlen < 0.000001f) ? 0f : -vx / vlen;
+        float rectP = cx * px + cy * py;
+        float rectPExtent = hw * Math.abs(px) + hh * Math.abs(py);
+
+        int kept = 0;
+        for (int k = 0; k < count; k++) {
+            int i = slots[k];
+            boolean overlapX = minX[i] + backMinX <= rx1 + slop && maxX[i] + backMaxX >= rx - slop;
+            boolean overlapY = minY[i] + backMinY <= ry1 + slop && maxY[i] + backMaxY >= ry - slop;
+
+            float n0 = x1[i] * nx[i] + y1[i] * ny[i];
+            float n1 = n0 - (vx * nx[i] + vy * ny[i]);
+            float rectN = cx * nx[i] + cy * ny[i];
+            float rectNExtent = hw * Math.abs(nx[i]) + hh * Math.abs(ny[i]);
+            boolean overlapN = Math.min(n0, n1) <= rectN + rectNExtent + slop && Math.max(n0, n1) >= rectN - rectNExtent - slop;
+
+            float p0 = x1[i] * px + y1[i] * py;
+            float p1 = x2[i] * px + y2[i] * py;
+            boolean overlapP = Math.min(p0, p1) <= rectP + rectPExtent + slop && Math.max(p0, p1) >= rectP - rectPExtent - slop;
+
+            slots[kept] = i;
+            kept += (overlapX & overlapY & overlapN & overlapP) ? 1 : 0;
+        }
+        return kept;
+    }
+
+    /**
+     * One ray from (ox, oy) along (dx, dy) against many segments: out[k] is the fraction along the ray where it
+     * crosses the segment in slots[k], end points included, or Float.MAX_VALUE if it misses or runs parallel
+     */
+    public void rayFractions(float ox, float oy, float dx, float dy, int[] slots, int count, float[] out) {
+        for (int k = 0; k < count; k++) {
+            int i = slots[k];
+            float ex = x2[i] - x1[i];
+            float ey = y2[i] - y1[i];
+            float ax = x1[i] - ox;
+            float ay = y1[i] - oy;
+            float denom = dx * ey - dy * ex;
+            float t = (ax * ey - ay * ex) / denom;
+            float s = (ax * dy - ay * dx) / denom;
+            boolean hit = denom != 0 && t >= 0 && t <= 1 && s >= 0 && s <= 1;
+            out[k] = hit ? t : Float.MAX_VALUE;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private void pack(int i, Segment2D segment) {
+        x1[i] = segment.start.x;
+        y1[i] = segment.start.y;
+        x2[i] = segment.end.x;
+        y2[i] = segment.end.y;
+        nx[i] = segment.normal.x;
+        ny[i] = segment.normal.y;
+        minX[i] = segment.collisionRect.x;
+        minY[i] = segment.collisionRect.y;
+        maxX[i] = segment.collisionRect.x + segment.collisionRect.width;
+        maxY[i] = segment.collisionRect.y + segment.collisionRect.height;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= x1.length) return;
+        int capacity = Math.max(size, x1.length * 2);
+        x1 = copyOf(x1, capacity);
+        y1 = copyOf(y1, capacity);
+        x2 = copyOf(x2, capacity);
+        y2 = copyOf(y2, capacity);
+        nx = copyOf(nx, capacity);
+        ny = copyOf(ny, capacity);
+        minX = copyOf(minX, capacity);
+        minY = copyOf(minY, capacity);
+        maxX = copyOf(maxX, capacity);
+        maxY = copyOf(maxY, capacity);
+    }
+
+    private static float[] copyOf(float[] array, int capacity) {
+        float[] copy = new float[capacity];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    private void forEachSlice(Segment2D segment, Segment2D value, boolean put) {
+        float x1 = segment.start.x, y1 = segment.start.y;
+        float dx = segment.end.x - x1, dy = segment.end.y - y1;
+        int steps = steps(dx, dy);
+        if (steps == 0) {
+            updateSlice(sliceKey(x1, y1, segment.end.x, segment.end.y), value, put);
+            return;
+        }
+        float stepX = dx / steps;
+        float stepY = dy / steps;
+        for (int i = 0; i < steps; i++) {
+            float ax = x1 + stepX * i;
+            float ay = y1 + stepY * i;
+            updateSlice(sliceKey(ax, ay, ax + stepX, ay + stepY), value, put);
+        }
+    }
+
+    private void updateSlice(long key, Segment2D value, boolean put) {
+        if (put) {
+            bySlice.put(key, value);
+        } else if (bySlice.get(key) == value) {
+            bySlice.remove(key);
+        }
+    }
+
+    /**
+     * How many tile-edge slices a horizontal, vertical or 45 degree run covers, 0 if it isn't made of whole slices
+     */
+    private int steps(float dx, float dy) {
+        float ax = Math.abs(dx);
+        float ay = Math.abs(dy);
+        if (ax != 0f && ay != 0f && !MathUtils.isEqual(ax, ay, 1f / QUANTUM)) return 0;
+        float length = Math.max(ax, ay);
+        int steps = MathUtils.round(length / sliceSize);
+        if (steps == 0 || !MathUtils.isEqual(steps * sliceSize, length, 1f / QUANTUM)) return 0;
+        return steps;
+    }
+
+    private boolean matches(Segment2D segment, float x1, float y1, float x2, float y2) {
+        return quantize(segment.start.x) == quantize(x1) && quantize(segment.start.y) == quantize(y1)
+            && quantize(segment.end.x) == quantize(x2) && quantize(segment.end.y) == quantize(y2);
+    }
+
+    private boolean contains(Segment2D segment, float x1, float y1, float x2, float y2) {
+        return onSegment(segment, x1, y1) && onSegment(segment, x2, y2);
+    }
+
+    private boolean onSegment(Segment2D segment, float x, float y) {
+        float sx = segment.start.x, sy = segment.start.y;
+        float dx = segment.end.x - sx, dy = segment.end.y - sy;
+        float len2 = dx * dx + dy * dy;
+        if (len2 == 0f) return false;
+        float t = ((x - sx) * dx + (y - sy) * dy) / len2;
+        float tolerance = 1f / QUANTUM;
+        float tolT = tolerance * tolerance / len2;
+        if (t < -tolT || t > 1f + tolT) return false;
+        float cross = (x - sx) * dy - (y - sy) * dx;
+        return cross * cross <= tolerance * tolerance * len2;
+    }
+
+    private static final int DIRECTIONS = 9;
+
+    /**
+     * One of eight compass directions for a horizontal, vertical or 45 degree segment, -1 for anything else
+     */
+    private static int direction(Segment2D segment) {
+        int dx = MathUtils.round((segment.end.x - segment.start.x) * QUANTUM);
+        int dy = MathUtils.round((segment.end.y - segment.start.y) * QUANTUM);
+        if (dx == 0 && dy == 0) return -1;
+        if (dx != 0 && dy != 0 && Math.abs(dx) != Math.abs(dy)) return -1;
+        return (Integer.signum(dx) + 1) * 3 + (Integer.signum(dy) + 1);
+    }
+
+    private static long runKey(float x, float y) {
+        return point(quantize(x), quantize(y));
+    }
+
+    private static int quantize(float v) {
+        return MathUtils.floor(v * QUANTUM + 0.5f);
+    }
+
+    // both quantized coordinates of a point, exactly, in one long
+    private static long point(int qx, int qy) {
+        return ((long) qx << 32) | (qy & 0xFFFFFFFFL);
+    }
+
+    // two points don't fit in a long, so the key is a hash of them, lookups check the end points they get back
+    private static long key(int qx1, int qy1, int qx2, int qy2) {
+        return mix(mix(point(qx1, qy1)) ^ point(qx2, qy2));
+    }
+
+    private static long key(float x1, float y1, float x2, float y2) {
+        return key(quantize(x1), quantize(y1), quantize(x2), quantize(y2));
+    }
+
+    // slices are keyed without direction, whichever end point sorts first goes first
+    private static long sliceKey(float x1, float y1, float x2, float y2) {
+        int qx1 = quantize(x1), qy1 = quantize(y1);
+        int qx2 = quantize(x2), qy2 = quantize(y2);
+        if (qx1 > qx2 || (qx1 == qx2 && qy1 > qy2)) {
+            return key(qx2, qy2, qx1, qy1);
+        }
+        return key(qx1, qy1, qx2, qy2);
+    }
+
+    // splitmix64 finalizer, spreads every input bit over the whole key
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+}
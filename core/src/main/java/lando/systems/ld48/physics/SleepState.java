@@ -0,0 +1,27 @@
+package lando.systems.ld48.physics;
+
+/**
+ * Whether a body is asleep, and how long it's been sitting still. Sleeping bodies skip integration and collision
+ * until something moves them, see {@link PhysicsSystem}.
+ */
+public class SleepState {
+
+    public boolean asleep;
+    // consecutive ticks spent grounded and under the sleep velocity
+    public int restTicks;
+    // where the body went to sleep, anything that moves it wakes it up
+    public float x;
+    public float y;
+
+    public void sleep(float x, float y) {
+        this.asleep = true;
+        this.x = x;
+        this.y = y;
+    }
+
+    public void wake() {
+        asleep = false;
+        restTicks = 0;
+    }
+
+}
@@ -0,0 +1,209 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import lando.systems.ld48.levels.Level;
+import lando.systems.ld48.levels.OccupancyGrid;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Signed distance from any point in the level to the nearest collision surface, negative inside terrain.
+ *
+ * Distances are sampled on a grid of 'resolution' samples per tile and blended bilinearly in between, so a particle
+ * asks "how close is the nearest wall and which way is out" with one lookup instead of testing nearby segments.
+ * Only distances up to {@link #maxDistance} are stored, anything farther reads as maxDistance.
+ */
+public class TerrainField {
+
+    private static final int MAGIC = 0x53444631; // SDF1
+
+    public final int resolution;
+    public final float cellSize;
+    public final float maxDistance;
+    // samples across and up, one more than there are cells
+    public final int cols;
+    public final int rows;
+    public final float[] distances;
+
+    // what decides inside / outside, the segments only say how far
+    private OccupancyGrid occupancy;
+    private byte[] rampTypes;
+    private Array<Rectangle> rectangles;
+
+    public TerrainField(int width, int height, float tileSize, int resolution) {
+        this.resolution = resolution;
+        this.cellSize = tileSize / resolution;
+        // a couple of tiles is plenty for particles, and keeps each segment's share of a bake small
+        this.maxDistance = 2 * tileSize;
+        this.cols = width * resolution + 1;
+        this.rows = height * resolution + 1;
+        this.distances = new float[cols * rows];
+    }
+
+    public void setSolids(OccupancyGrid occupancy, byte[] rampTypes, Array<Rectangle> rectangles) {
+        this.occupancy = occupancy;
+        this.rampTypes = rampTypes;
+        this.rectangles = rectangles;
+    }
+
+    /**
+     * Recompute the samples inside an area, segments has to hold every segment within maxDistance of it
+     */
+    public void bake(float minX, float minY, float maxX, float maxY, Array<Segment2D> segments) {
+        int i0 = Math.max(0, MathUtils.floor(minX / cellSize));
+        int j0 = Math.max(0, MathUtils.floor(minY / cellSize));
+        int i1 = Math.min(cols - 1, MathUtils.ceil(maxX / cellSize));
+        int j1 = Math.min(rows - 1, MathUtils.ceil(maxY / cellSize));
+        if (i0 > i1 || j0 > j1) return;
+
+        for (int j = j0; j <= j1; j++) {
+            for (int i = i0; i <= i1; i++) {
+                distances[i + j * cols] = maxDistance;
+            }
+        }
+
+        // each segment only touches the samples within maxDistance of it
+        for (int s = 0; s < segments.size; s++) {
+            Segment2D segment = segments.get(s);
+            Rectangle bounds = segment.collisionRect;
+            int si0 = Math.max(i0, MathUtils.floor((bounds.x - maxDistance) / cellSize));
+            int sj0 = Math.max(j0, MathUtils.floor((bounds.y - maxDistance) / cellSize));
+            int si1 = Math.min(i1, MathUtils.ceil((bounds.x + bounds.width + maxDistance) / cellSize));
+            int sj1 = Math.min(j1, MathUtils.ceil((bounds.y + bounds.height + maxDistance) / cellSize));
+            for (int j = sj0; j <= sj1; j++) {
+                for (int i = si0; i <= si1; i++) {
+                    float d = distanceToSegment(i * cellSize, j * cellSize, segment);
+                    int index = i + j * cols;
+                    if (d < distances[index]) {
+                        distances[index] = d;
+                    }
+                }
+            }
+        }
+
+        for (int j = j0; j <= j1; j++) {
+            for (int i = i0; i <= i1; i++) {
+                if (isInside(i * cellSize, j * cellSize)) {
+                    distances[i + j * cols] = -distances[i + j * cols];
+                }
+            }
+        }
+    }
+
+    /**
+     * Signed distance at a point, bilinear between the surrounding samples
+     */
+    public float sample(float x, float y) {
+        float fx = x / cellSize;
+        float fy = y / cellSize;
+        int i = MathUtils.floor(fx);
+        int j = MathUtils.floor(fy);
+        if (i < 0 || j < 0 || i >= cols - 1 || j >= rows - 1) return maxDistance;
+
+        float u = fx - i;
+        float v = fy - j;
+        int index = i + j * cols;
+        float d00 = distances[index];
+        float d10 = distances[index + 1];
+        float d01 = distances[index + cols];
+        float d11 = distances[index + cols + 1];
+        return (d00 * (1 - u) + d10 * u) * (1 - v) + (d01 * (1 - u) + d11 * u) * v;
+    }
+
+    /**
+     * Direction the distance grows fastest at a point, pointing out of the terrain. Not normalized, (0, 0) in open space.
+     */
+    public Vector2 gradient(float x, float y, Vector2 out) {
+        float fx = x / cellSize;
+        float fy = y / cellSize;
+        int i = MathUtils.floor(fx);
+        int j = MathUtils.floor(fy);
+        if (i < 0 || j < 0 || i >= cols - 1 || j >= rows - 1) return out.setZero();
+
+        float u = fx - i;
+        float v = fy - j;
+        int index = i + j * cols;
+        float d00 = distances[index];
+        float d10 = distances[index + 1];
+        float d01 = distances[index + cols];
+        float d11 = distances[index + cols + 1];
+        return out.set((d10 - d00) * (1 - v) + (d11 - d01) * v,
+                       (d01 - d00) * (1 - u) + (d11 - d10) * u);
+    }
+
+    private boolean isInside(float x, float y) {
+        for (int i = 0; i < rectangles.size; i++) {
+            if (rectangles.get(i).contains(x, y)) return true;
+        }
+
+        int col = occupancy.toTile(x);
+        int row = occupancy.toTile(y);
+        if (!occupancy.isSolid(col, row)) return false;
+
+        byte ramp = rampTypes[col + row * occupancy.width];
+        if (ramp == Level.RAMP_NONE) return true;
+
+        // which side of the ramp diagonal, same sides TerrainQuery uses
+        float u = x / occupancy.tileSize - col;
+        float v = y / occupancy.tileSize - row;
+        switch (ramp) {
+            case Level.RAMP_OPEN_TOP_LEFT:     return v < u;
+            case Level.RAMP_OPEN_TOP_RIGHT:    return u + v < 1f;
+            case Level.RAMP_OPEN_BOTTOM_LEFT:  return u + v > 1f;
+            case Level.RAMP_OPEN_BOTTOM_RIGHT: return v > u;
+            default:                           return true;
+        }
+    }
+
+    private static float distanceToSegment(float x, float y, Segment2D segment) {
+        float dx = segment.delta.x;
+        float dy = segment.delta.y;
+        float len2 = dx * dx + dy * dy;
+        float t = (len2 == 0) ? 0 : MathUtils.clamp(((x - segment.start.x) * dx + (y - segment.start.y) * dy) / len2, 0f, 1f);
+        float px = segment.start.x + dx * t - x;
+        float py = segment.start.y + dy * t - y;
+        return (float) Math.sqrt(px * px + py * py);
+    }
+
+    // ------------------------------------------------------------------------
+    // Baked copy, stored at the end of the level's collision sidecar
+    // ------------------------------------------------------------------------
+
+    public int byteSize() {
+        return 16 + distances.length * 4;
+    }
+
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(resolution);
+        buffer.putFloat(maxDistance);
+        buffer.putInt(distances.length);
+        for (float d : distances) {
+            buffer.putFloat(d);
+        }
+    }
+
+    /**
+     * @return the field, or null if the buffer doesn't hold one for a map of this size
+     */
+    public static TerrainField read(ByteBuffer buffer, int width, int height, float tileSize) {
+        if (buffer.remaining() < 16) return null;
+        if (buffer.getInt() != MAGIC) return null;
+
+        int resolution = buffer.getInt();
+        float maxDistance = buffer.getFloat();
+        int count = buffer.getInt();
+        if (resolution <= 0 || count != (width * resolution + 1) * (height * resolution + 1) || buffer.remaining() < count * 4) return null;
+
+        TerrainField field = new TerrainField(width, height, tileSize, resolution);
+        if (field.maxDistance != maxDistance) return null;
+        for (int i = 0; i < count; i++) {
+            field.distances[i] = buffer.getFloat();
+        }
+        return field;
+    }
+
+}
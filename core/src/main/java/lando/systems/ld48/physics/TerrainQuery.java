@@ -0,0 +1,353 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import lando.systems.ld48.levels.Level;
+import lando.systems.ld48.levels.OccupancyGrid;
+
+/**
+ * Ray, overlap and sweep tests against the level's terrain.
+ *
+ * Rays walk the collision tiles they cross (a grid DDA) and stop at the first solid tile face or ramp diagonal,
+ * so their cost depends on how far they get rather than on how much level there is. Rect sweeps go through the
+ * segment grid instead since a box touches more than one column of tiles. Runtime collision rectangles are checked
+ * directly by everything. Nothing in here allocates.
+ */
+public class TerrainQuery {
+
+    private static final float INV_SQRT2 = 0.70710677f;
+
+    private final Level level;
+    private final SegmentGrid segmentGrid;
+    private final Array<Segment2D> candidates = new Array<>();
+    private final IntArray slots = new IntArray();
+    // fraction along the move for each candidate, one list per rect corner
+    private final FloatArray[] cornerFractions = { new FloatArray(), new FloatArray(), new FloatArray(), new FloatArray() };
+
+    // slab test output
+    private float slabNormalX;
+    private float slabNormalY;
+
+    public TerrainQuery(Level level, SegmentGrid segmentGrid) {
+        this.level = level;
+        this.segmentGrid = segmentGrid;
+    }
+
+    /**
+     * First terrain along the ray from (x1, y1) to (x2, y2). A ray that starts inside a solid tile ignores that tile.
+     */
+    public boolean raycast(float x1, float y1, float x2, float y2, RaycastHit hit) {
+        hit.reset();
+        OccupancyGrid grid = level.getOccupancy();
+        float tileSize = grid.tileSize;
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+
+        int col = grid.toTile(x1);
+        int row = grid.toTile(y1);
+        int stepX = (dx > 0) ? 1 : (dx < 0) ? -1 : 0;
+        int stepY = (dy > 0) ? 1 : (dy < 0) ? -1 : 0;
+        float tDeltaX = (stepX != 0) ? tileSize / Math.abs(dx) : Float.MAX_VALUE;
+        float tDeltaY = (stepY != 0) ? tileSize / Math.abs(dy) : Float.MAX_VALUE;
+        float tMaxX = (stepX > 0) ? ((col + 1) * tileSize - x1) / dx : (stepX < 0) ? (col * tileSize - x1) / dx : Float.MAX_VALUE;
+        float tMaxY = (stepY > 0) ? ((row + 1) * tileSize - y1) / dy : (stepY < 0) ? (row * tileSize - y1) / dy : Float.MAX_VALUE;
+
+        // only the diagonal of a ramp we start in can stop us, its straight faces are behind the start
+        if (grid.isSolid(col, row)) {
+            testRamp(grid, col, row, x1, y1, dx, dy, 0f, Math.min(Math.min(tMaxX, tMaxY), 1f), hit);
+        }
+
+        while (!hit.hit) {
+            float tEnter;
+            int faceX = 0;
+            int faceY = 0;
+            if (tMaxX < tMaxY) {
+                col += stepX;
+                tEnter = tMaxX;
+                tMaxX += tDeltaX;
+                faceX = -stepX;
+            } else {
+                row += stepY;
+                tEnter = tMaxY;
+                tMaxY += tDeltaY;
+                faceY = -stepY;
+            }
+            if (tEnter > 1f) break;
+            // off the map and heading further away, nothing left to hit
+            if ((col < 0 && stepX <= 0) || (col >= grid.width && stepX >= 0)
+             || (row < 0 && stepY <= 0) || (row >= grid.height && stepY >= 0)) break;
+            if (!grid.isSolid(col, row)) continue;
+
+            byte ramp = level.getRampType(col, row);
+            if (ramp == Level.RAMP_NONE || isSolidFace(ramp, faceX, faceY)) {
+                record(hit, tEnter, x1, y1, dx, dy, faceX, faceY);
+            } else {
+                testRamp(grid, col, row, x1, y1, dx, dy, tEnter, Math.min(Math.min(tMaxX, tMaxY), 1f), hit);
+            }
+        }
+
+        Array<Rectangle> rects = level.getCollisionRectangles();
+        for (int i = 0; i < rects.size; i++) {
+            Rectangle rect = rects.get(i);
+            float t = slab(x1, y1, dx, dy, rect.x, rect.y, rect.x + rect.width, rect.y + rect.height);
+            if (t >= 0 && t < hit.fraction) {
+                record(hit, t, x1, y1, dx, dy, slabNormalX, slabNormalY);
+                hit.rect = rect;
+            }
+        }
+
+        if (hit.hit) {
+            hit.distance = hit.fraction * (float) Math.sqrt(dx * dx + dy * dy);
+        }
+        return hit.hit;
+    }
+
+    /**
+     * Whether the ray reaches the target rectangle before any terrain. The hit describes whichever came first,
+     * with hit.rect set to the target when it was the target.
+     */
+    public boolean firstHit(float x1, float y1, float x2, float y2, Rectangle target, RaycastHit hit) {
+        raycast(x1, y1, x2, y2, hit);
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float t = slab(x1, y1, dx, dy, target.x, target.y, target.x + target.width, target.y + target.height);
+        if (t < 0 || t > hit.fraction) return false;
+
+        record(hit, t, x1, y1, dx, dy, slabNormalX, slabNormalY);
+        hit.rect = target;
+        hit.segment = null;
+        hit.distance = t * (float) Math.sqrt(dx * dx + dy * dy);
+        return true;
+    }
+
+    /**
+     * Whether any solid tile, ramp or collision rectangle overlaps the inside of rect, just touching doesn't count
+     */
+    public boolean overlapRect(Rectangle rect) {
+        if (overlapTiles(rect.x, rect.y, rect.width, rect.height)) return true;
+
+        Array<Rectangle> rects = level.getCollisionRectangles();
+        for (int i = 0; i < rects.size; i++) {
+            if (rects.get(i).overlaps(rect)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@link #overlapRect(Rectangle)} for the collision tiles and ramps only
+     */
+    public boolean overlapTiles(float x, float y, float width, float height) {
+        OccupancyGrid grid = level.getOccupancy();
+        float tileSize = grid.tileSize;
+        float x0 = x;
+        float y0 = y;
+        float x1 = x + width;
+        float y1 = y + height;
+        int col0 = grid.toTile(x0);
+        int row0 = grid.toTile(y0);
+        int col1 = MathUtils.ceil(x1 / tileSize) - 1;
+        int row1 = MathUtils.ceil(y1 / tileSize) - 1;
+        for (int row = Math.max(0, row0); row <= Math.min(grid.height - 1, row1); row++) {
+            int col = col0 - 1;
+            while ((col = grid.firstSolidInRow(row, col + 1, col1)) != -1) {
+                byte ramp = level.getRampType(col, row);
+                if (ramp == Level.RAMP_NONE) return true;
+
+                // the rect clipped to this tile, in tile units
+                float u0 = Math.max(0f, x0 / tileSize - col);
+                float u1 = Math.min(1f, x1 / tileSize - col);
+                float v0 = Math.max(0f, y0 / tileSize - row);
+                float v1 = Math.min(1f, y1 / tileSize - row);
+                if (overlapsRampSolid(ramp, u0, v0, u1, v1)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move rect by (vx, vy) and report where it first touches a collision segment or rectangle it's moving into
+     */
+    public boolean sweepRect(Rectangle rect, float vx, float vy, RaycastHit hit) {
+        hit.reset();
+        float minX = Math.min(rect.x, rect.x + vx);
+        float minY = Math.min(rect.y, rect.y + vy);
+        float maxX = Math.max(rect.x + rect.width, rect.x + rect.width + vx);
+        float maxY = Math.max(rect.y + rect.height, rect.y + rect.height + vy);
+        segmentGrid.query(minX, minY, maxX, maxY, candidates);
+
+        float rx0 = rect.x;
+        float ry0 = rect.y;
+        float rx1 = rect.x + rect.width;
+        float ry1 = rect.y + rect.height;
+        // segments are one sided, same as the entity sweep
+        SegmentStore store = level.getCollisionStore();
+        SegmentStore.gather(candidates, slots);
+        int count = store.facing(vx, vy, slots.items, slots.size);
+
+        // a rect corner running into the segment, each corner's ray against all the candidates in one go
+        float[] t0 = cornerFractions[0].ensureCapacity(count);
+        float[] t1 = cornerFractions[1].ensureCapacity(count);
+        float[] t2 = cornerFractions[2].ensureCapacity(count);
+        float[] t3 = cornerFractions[3].ensureCapacity(count);
+        store.rayFractions(rx0, ry0, vx, vy, slots.items, count, t0);
+        store.rayFractions(rx1, ry0, vx, vy, slots.items, count, t1);
+        store.rayFractions(rx0, ry1, vx, vy, slots.items, count, t2);
+        store.rayFractions(rx1, ry1, vx, vy, slots.items, count, t3);
+
+        for (int k = 0; k < count; k++) {
+            int i = slots.items[k];
+            float best = Math.min(Math.min(t0[k], t1[k]), Math.min(t2[k], t3[k]));
+            if (best < hit.fraction) {
+                record(hit, best, rect.x, rect.y, vx, vy, store.nx[i], store.ny[i]);
+                hit.segment = store.get(i);
+            }
+
+            // or an end of the segment running into a rect face, as seen from the rect
+            sweepPoint(store.x1[i], store.y1[i], rx0, ry0, rx1, ry1, vx, vy, store.get(i), rect, hit);
+            sweepPoint(store.x2[i], store.y2[i], rx0, ry0, rx1, ry1, vx, vy, store.get(i), rect, hit);
+        }
+
+        Array<Rectangle> rects = level.getCollisionRectangles();
+        for (int i = 0; i < rects.size; i++) {
+            Rectangle other = rects.get(i);
+            // the rect's corner against the other rect grown by the rect's size
+            float t = slab(rx0, ry0, vx, vy, other.x - rect.width, other.y - rect.height, other.x + other.width, other.y + other.height);
+            if (t > 0 && t < hit.fraction) {
+                record(hit, t, rect.x, rect.y, vx, vy, slabNormalX, slabNormalY);
+                hit.segment = null;
+                hit.rect = other;
+            }
+        }
+
+        if (hit.hit) {
+            hit.distance = hit.fraction * (float) Math.sqrt(vx * vx + vy * vy);
+        }
+        return hit.hit;
+    }
+
+    private void sweepPoint(float px, float py, float rx0, float ry0, float rx1, float ry1, float vx, float vy,
+                            Segment2D segment, Rectangle rect, RaycastHit hit) {
+        float t = slab(px, py, -vx, -vy, rx0, ry0, rx1, ry1);
+        if (t > 0 && t < hit.fraction) {
+            // slab normal faces back along -v, the contact normal is the opposite face
+            record(hit, t, rect.x, rect.y, vx, vy, -slabNormalX, -slabNormalY);
+            hit.segment = segment;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Ramps
+    // ------------------------------------------------------------------------
+
+    // which way the diagonal of each ramp faces, out into the open half
+    private static int rampNormalX(byte ramp) {
+        return (ramp == Level.RAMP_OPEN_TOP_LEFT || ramp == Level.RAMP_OPEN_BOTTOM_LEFT) ? -1 : 1;
+    }
+
+    private static int rampNormalY(byte ramp) {
+        return (ramp == Level.RAMP_OPEN_TOP_LEFT || ramp == Level.RAMP_OPEN_TOP_RIGHT) ? 1 : -1;
+    }
+
+    // the two straight faces of a ramp are the ones its diagonal faces away from
+    private static boolean isSolidFace(byte ramp, int faceX, int faceY) {
+        return (faceX != 0 && faceX == -rampNormalX(ramp))
+            || (faceY != 0 && faceY == -rampNormalY(ramp));
+    }
+
+    private void testRamp(OccupancyGrid grid, int col, int row, float x1, float y1, float dx, float dy, float tMin, float tMax, RaycastHit hit) {
+        byte ramp = level.getRampType(col, row);
+        if (ramp == Level.RAMP_NONE) return;
+
+        int nx = rampNormalX(ramp);
+        int ny = rampNormalY(ramp);
+        // only rays heading into the solid half can hit the diagonal
+        if (nx * dx + ny * dy >= 0) return;
+
+        // the diagonal is nx * u + ny * v = c in tile units, through the corner at (0, 0) or (1, 0)
+        float c = (nx == ny) ? nx : 0;
+        float u = (x1 - col * grid.tileSize) / grid.tileSize;
+        float v = (y1 - row * grid.tileSize) / grid.tileSize;
+        float t = (c - nx * u - ny * v) / ((nx * dx + ny * dy) / grid.tileSize);
+        if (t >= tMin && t <= tMax) {
+            record(hit, t, x1, y1, dx, dy, nx * INV_SQRT2, ny * INV_SQRT2);
+        }
+    }
+
+    private static boolean overlapsRampSolid(byte ramp, float u0, float v0, float u1, float v1) {
+        int nx = rampNormalX(ramp);
+        int ny = rampNormalY(ramp);
+        float c = (nx == ny) ? nx : 0;
+        // the corner of the clipped rect deepest into the solid half
+        float u = (nx > 0) ? u0 : u1;
+        float v = (ny > 0) ? v0 : v1;
+        return nx * u + ny * v - c < 0;
+    }
+
+    // ------------------------------------------------------------------------
+    // Primitives
+    // ------------------------------------------------------------------------
+
+    private static void record(RaycastHit hit, float t, float x, float y, float dx, float dy, float nx, float ny) {
+        hit.hit = true;
+        hit.fraction = t;
+        hit.point.set(x + dx * t, y + dy * t);
+        hit.normal.set(nx, ny);
+        hit.segment = null;
+        hit.rect = null;
+    }
+
+    /**
+     * Fraction along (dx, dy) where a ray from (x, y) enters the box, 0 if it starts inside, -1 if it misses.
+     * The face it came through is left in slabNormalX / slabNormalY.
+     */
+    private float slab(float x, float y, float dx, float dy, float minX, float minY, float maxX, float maxY) {
+        float tEnter = 0f;
+        float tExit = 1f;
+        slabNormalX = 0;
+        slabNormalY = 0;
+
+        if (dx == 0) {
+            if (x < minX || x > maxX) return -1;
+        } else {
+            float ta = (minX - x) / dx;
+            float tb = (maxX - x) / dx;
+            float near = Math.min(ta, tb);
+            float far = Math.max(ta, tb);
+            if (near > tEnter) {
+                tEnter = near;
+                slabNormalX = (dx > 0) ? -1 : 1;
+            }
+            tExit = Math.min(tExit, far);
+        }
+
+        if (dy == 0) {
+            if (y < minY || y > maxY) return -1;
+        } else {
+            float ta = (minY - y) / dy;
+            float tb = (maxY - y) / dy;
+            float near = Math.min(ta, tb);
+            float far = Math.max(ta, tb);
+            if (near > tEnter) {
+                tEnter = near;
+                slabNormalX = 0;
+                slabNormalY = (dy > 0) ? -1 : 1;
+            }
+            tExit = Math.min(tExit, far);
+        }
+
+        if (tEnter > tExit) return -1;
+        if (slabNormalX == 0 && slabNormalY == 0) {
+            // started inside, push back out the way we came
+            float len = (float) Math.sqrt(dx * dx + dy * dy);
+            if (len > 0) {
+                slabNormalX = -dx / len;
+                slabNormalY = -dy / len;
+            }
+        }
+        return tEnter;
+    }
+
+}
@@ -52,6 +52,11 @@ public abstract class BaseScreen implements InputProcessor, ControllerListener {
      */
     public abstract void update(float dt);
 
+    /**
+     * Simulation update, called zero or more times a frame with a constant Config.tickStep, respects Time.pause_for()
+     */
+    public void fixedUpdate(float dt) {}
+
     /**
      * Normal render
      */
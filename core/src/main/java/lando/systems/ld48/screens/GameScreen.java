@@ -30,7 +30,7 @@ import lando.systems.ld48.particles.Particles;
 import lando.systems.ld48.physics.PhysicsComponent;
 import lando.systems.ld48.physics.PhysicsSystem;
 import lando.systems.ld48.ui.Modal;
-import lando.systems.ld48.utils.Calc;
+import lando.systems.ld48.utils.Time;
 
 public class GameScreen extends BaseScreen {
 
@@ -40,13 +40,12 @@ public class GameScreen extends BaseScreen {
     public LevelTransition levelTransition;
     public ParallaxBackground background;
     public CaptureHandler captureHandler;
-    public Array<EnemyEntity> enemies;
-    public Array<PickupEntity> pickups;
-    public Array<InteractableEntity> interactables;
-    public Array<Bullet> bullets;
+    // everything live in the level, by group
+    public EntityStore entities;
+    public Projectiles projectiles;
+    public ActorHash actors = new ActorHash();
 
     public PhysicsSystem physicsSystem;
-    public Array<PhysicsComponent> physicsEntities;
 
     public boolean upPressed = false;
     public boolean rightPressed = false;
@@ -55,6 +54,13 @@ public class GameScreen extends BaseScreen {
     public boolean shiftPressed = false;
 
     private Rectangle overlapRectangle;
+    private Rectangle interactRectangle;
+    // spatial query results, reused every tick
+    private final Array<PickupEntity> touchedPickups = new Array<>();
+    private final Array<InteractableEntity> touchedInteractables = new Array<>();
+    private static final float INTERACT_REACH = 2f;
+    private Vector2 cameraPrevious = new Vector2();
+    private Vector2 cameraCurrent = new Vector2();
 
     public Modal generalModal;
 
@@ -69,7 +75,12 @@ public class GameScreen extends BaseScreen {
 
     public void loadLevel(LevelDescriptor levelDescriptor) {
         this.boss = null;
+        Level previousLevel = this.level;
         this.level = new Level(levelDescriptor, this);
+        // after the new level is up, so reloading the same map reuses it instead of reading it again
+        if (previousLevel != null) {
+            previousLevel.dispose();
+        }
         this.levelTransition = null;
 
         if (levelDescriptor == LevelDescriptor.introduction) {
@@ -82,14 +93,12 @@ public class GameScreen extends BaseScreen {
         resetPlayer(level.getPlayerSpawn());
 
         this.captureHandler = new CaptureHandler(player, this);
-        this.enemies = new Array<>();
-        this.pickups = new Array<>();
-        this.interactables = new Array<>();
-        this.bullets = new Array<>();
+        this.entities = new EntityStore();
+        this.entities.join(player, EntityStore.Group.physics);
         this.physicsSystem = new PhysicsSystem(this);
-        this.physicsEntities = new Array<>();
-        this.physicsEntities.add(player);
+        this.projectiles = new Projectiles(this);
         this.overlapRectangle = new Rectangle();
+        this.interactRectangle = new Rectangle();
 
         TiledMapTileLayer collisionLayer = level.getLayer(Level.LayerType.collision).tileLayer;
         float levelWidth = collisionLayer.getWidth() * collisionLayer.getTileWidth();
@@ -109,17 +118,20 @@ public class GameScreen extends BaseScreen {
         this.background = new ParallaxBackground(parallax);
 
         // immediately spawn stuff, probably not enough time to get clever spawning setup
-        for (SpawnBoss spawner : this.level.getBossSpawns()) {
-            spawner.spawn(this);
-        }
-        for (SpawnEnemy spawner : this.level.getEnemySpawns()) {
-            spawner.spawn(this);
-        }
-        for (SpawnPickup spawner : this.level.getPickupSpawns()) {
-            spawner.spawn(this);
-        }
-        for (SpawnInteractable spawner : this.level.getInteractableSpawns()) {
-            spawner.spawn(this);
+        // (streamed levels spawn a region's stuff when the region first loads instead)
+        if (!level.isStreaming()) {
+            for (SpawnBoss spawner : this.level.getBossSpawns()) {
+                spawner.spawn(this);
+            }
+            for (SpawnEnemy spawner : this.level.getEnemySpawns()) {
+                spawner.spawn(this);
+            }
+            for (SpawnPickup spawner : this.level.getPickupSpawns()) {
+                spawner.spawn(this);
+            }
+            for (SpawnInteractable spawner : this.level.getInteractableSpawns()) {
+                spawner.spawn(this);
+            }
         }
 
         // make sure the camera is setup correctly for when we get here from a level transition
@@ -129,6 +141,8 @@ public class GameScreen extends BaseScreen {
         worldCamera.position.x = CameraConstraints.targetPos.x;
         worldCamera.position.y = CameraConstraints.targetPos.y;
         worldCamera.update();
+        cameraPrevious.set(worldCamera.position.x, worldCamera.position.y);
+        level.updateStreaming(worldCamera, player.position.x, player.position.y);
 
         // NOTE: happens in LevelTransition now
 //        game.audio.playMusic(Audio.Musics.level3elevator);
@@ -143,96 +157,109 @@ public class GameScreen extends BaseScreen {
 
     @Override
     public void update(float dt) {
+        // transitions and modals poll 'just pressed' input, so they run every frame rather than per tick
         if (levelTransition != null) {
             levelTransition.update(dt);
+        } else if (player.isOffScreen) {
+            player.updateOffScreen(dt);
         } else {
-            if (player.isOffScreen) {
-                player.updateOffScreen(dt);
-                return;
-            }
+            handleModal(dt);
+        }
+    }
 
-            if (handleModal(dt)) { return; }
+    @Override
+    public void fixedUpdate(float dt) {
+        if (levelTransition != null || player.isOffScreen || generalModal != null) {
+            return;
+        }
 
-            // stash player's current position pre-update in case we need to walk it back
-            float playerPrevPosX = Calc.floor(player.position.x);
-            float playerPrevPosY = Calc.floor(player.position.y);
+        cameraPrevious.set(worldCamera.position.x, worldCamera.position.y);
 
-            // loop in reverse so we don't get off when entity is removed
-            for (int i = physicsEntities.size - 1; i >= 0; i--) {
-                physicsEntities.get(i).update(dt);
-            }
+        level.updateStreaming(worldCamera, player.position.x, player.position.y);
 
-            captureHandler.updateCapture(dt, enemies);
-            level.update(dt);
-            physicsSystem.update(dt);
-            particles.update(dt);
-            if (boss != null) {
-                boss.update(dt);
-            }
-            checkBulletCollisions();
+        // loop in reverse so we don't get off when entity is removed
+        Array<PhysicsComponent> physicsEntities = entities.physics;
+        for (int i = physicsEntities.size - 1; i >= 0; i--) {
+            PhysicsComponent entity = physicsEntities.get(i);
+            // things in regions that aren't loaded have no ground under them, leave them be until it streams back in
+            Vector2 pos = entity.getPosition();
+            if (!level.isResident(pos.x, pos.y)) continue;
+            entity.update(dt);
+        }
 
-            CameraConstraints.update(worldCamera, player, level);
+        captureHandler.updateCapture(dt);
+        level.update(dt);
+        physicsSystem.update(dt);
+        // everything has moved for this tick, catch the spatial index up before anything queries it
+        entities.reindex();
+        particles.update(dt);
+        if (boss != null) {
+            boss.update(dt);
+        }
 
-            // pickup pickup-able entities
-            if (player.capturedEnemy != null) {
-                for (int i = pickups.size - 1; i >= 0; i--) {
-                    PickupEntity pickup = pickups.get(i);
-                    if (player.collisionBounds.overlaps(pickup.collisionBounds)) {
-                        // TODO: make a counter for the hud or something
-                        particles.pickup(pickup.position.x, pickup.position.y, pickup.type);
-                        game.audio.playSound(Audio.Sounds.coin);
-                        pickup.removeFromScreen();
-                        switch (pickup.type) {
-                            case dogecoin:
-                                player.dogeCount++;
-                                break;
-                            case bitcoin:
-                                player.btcCount++;
-                                break;
-                            default:
-                                break;
-                        }
-                    }
-                }
-            }
+        // everything that can be shot has moved for this tick, bucket it for the projectile hit pass
+        actors.begin();
+        actors.add(player, ActorHash.TEAM_PLAYER);
+        Array<EnemyEntity> enemies = entities.enemies;
+        for (int i = 0; i < enemies.size; i++) {
+            actors.add(enemies.get(i), ActorHash.TEAM_ENEMY);
+        }
+        actors.build();
+        projectiles.update(dt);
 
-            // interact with interactable entities
-            for (InteractableEntity interactable : interactables) {
-                if (player.collisionBounds.overlaps(interactable.collisionBounds)) {
-                    // can't interact if we're a ghost
-                    if (player.capturedEnemy != null) {
-                        interactable.interact();
-                    }
+        CameraConstraints.update(worldCamera, player, level);
 
-                    // special case to keep players from passing through doors
-                    // when a door completes its 'interaction' (ie opens) it gets removed, so players can pass then
-                    // NOTE - this is super sketch, literally everything in the physics system would be made simpler
-                    //  if we operated only on integer boundaries and carried over remainders through frames
-                    if (interactable.type == SpawnInteractable.Type.door) {
-                        Intersector.intersectRectangles(player.collisionBounds, interactable.collisionBounds, overlapRectangle);
-                        boolean onYourLeft = (player.collisionBounds.x < interactable.collisionBounds.x);
-                        float sign = onYourLeft ? -1 : 1;
-                        float playerSeparationPosX = player.position.x + sign * overlapRectangle.width;
-                        player.setPosition(playerSeparationPosX, playerPrevPosY);
-                        player.collisionBounds.setPosition(
-                                playerSeparationPosX - Calc.floor(player.collisionBounds.width / 2f),
-                                playerPrevPosY - Calc.floor(player.collisionBounds.height / 2f));
-                        player.stop();
-                        showDoorTutorial();
-                    }
+        // pickup pickup-able entities
+        if (player.capturedEnemy != null) {
+            Array<PickupEntity> pickups = entities.overlapping(player.collisionBounds, EntityStore.Group.pickup, touchedPickups);
+            for (int i = 0; i < pickups.size; i++) {
+                PickupEntity pickup = pickups.get(i);
+                // TODO: make a counter for the hud or something
+                particles.pickup(pickup.position.x, pickup.position.y, pickup.type);
+                game.audio.playSound(Audio.Sounds.coin);
+                pickup.removeFromScreen();
+                switch (pickup.type) {
+                    case dogecoin:
+                        player.dogeCount++;
+                        break;
+                    case bitcoin:
+                        player.btcCount++;
+                        break;
+                    default:
+                        break;
                 }
             }
+            pickups.clear();
+        }
 
-            // check for level exit
-            // todo - this is abrupt, probably want to trigger an interaction animation like moving the player and making them face front, then spawning a particle system or something
-            // todo - this is also a little dumb, probably want a more robust way to check for 'mostly overlapped' (vs 'any overlap' vs 'fully contained')
+        // interact with interactable entities
+        // closed doors are collision, so the player only ever gets up against them, reach a little past the bounds
+        interactRectangle.set(player.collisionBounds);
+        interactRectangle.x -= INTERACT_REACH;
+        interactRectangle.width += 2 * INTERACT_REACH;
+        Array<InteractableEntity> interactables = entities.overlapping(interactRectangle, EntityStore.Group.interactable, touchedInteractables);
+        for (int i = 0; i < interactables.size; i++) {
+            InteractableEntity interactable = interactables.get(i);
+            // can't interact if we're a ghost
             if (player.capturedEnemy != null) {
-                if (Intersector.intersectRectangles(player.collisionBounds, level.getExit().bounds, overlapRectangle)) {
-                    // lol, player got smaller so overlaps weren't counted anymore
-                    float minOverlapArea = 200f;
-                    if (overlapRectangle.area() >= minOverlapArea) {
-                        startLevelTransition(level.getExit());
-                    }
+                interactable.interact();
+            }
+
+            if (interactable.type == SpawnInteractable.Type.door) {
+                showDoorTutorial();
+            }
+        }
+        interactables.clear();
+
+        // check for level exit
+        // todo - this is abrupt, probably want to trigger an interaction animation like moving the player and making them face front, then spawning a particle system or something
+        // todo - this is also a little dumb, probably want a more robust way to check for 'mostly overlapped' (vs 'any overlap' vs 'fully contained')
+        if (player.capturedEnemy != null) {
+            if (Intersector.intersectRectangles(player.collisionBounds, level.getExit().bounds, overlapRectangle)) {
+                // lol, player got smaller so overlaps weren't counted anymore
+                float minOverlapArea = 200f;
+                if (overlapRectangle.area() >= minOverlapArea) {
+                    startLevelTransition(level.getExit());
                 }
             }
         }
@@ -261,36 +288,17 @@ public class GameScreen extends BaseScreen {
         return false;
     }
 
-    private void checkBulletCollisions() {
-        for (int i = bullets.size - 1; i >= 0; i--) {
-            Bullet b = bullets.get(i);
-            if (b.owner == player) {
-                for (EnemyEntity enemy : enemies) {
-                    if (enemy.collisionBounds.contains(b.getPosition())) {
-                        enemy.adjustHitpoints(-b.damage);
-                        enemy.position.set(enemy.position.x + (b.velocity.x > 0 ? 5 : -5), enemy.position.y);
-                        particles.blood(enemy.position.x, enemy.position.y);
-                        bullets.removeValue(b, true);
-                        physicsEntities.removeValue(b, true);
-
-                    }
-                }
-            } else {
-                // enemy bullet
-                if (player.capturedEnemy != null && player.collisionBounds.contains(b.position)){
-                    player.adjustHitpoints(-b.damage);
-                    particles.blood(player.position.x, player.position.y);
-                    player.velocity.set(player.velocity.x + (b.bulletSpeed > 0 ? 15 : -15), player.velocity.y + 5);
-                    player.setGrounded(false);
-                    bullets.removeValue(b, true);
-                    physicsEntities.removeValue(b, true);
-                }
-            }
-        }
-    }
-
     @Override
     public void render(SpriteBatch batch) {
+        // draw the camera between ticks too, unless something else is driving it
+        boolean interpolateCamera = (levelTransition == null && !CameraConstraints.override);
+        if (interpolateCamera) {
+            cameraCurrent.set(worldCamera.position.x, worldCamera.position.y);
+            worldCamera.position.x = MathUtils.lerp(cameraPrevious.x, cameraCurrent.x, Time.tick_alpha);
+            worldCamera.position.y = MathUtils.lerp(cameraPrevious.y, cameraCurrent.y, Time.tick_alpha);
+            worldCamera.update();
+        }
+
         // draw world stuff
         batch.setProjectionMatrix(worldCamera.combined);
         {
@@ -314,16 +322,18 @@ public class GameScreen extends BaseScreen {
                 batch.begin();
                 {
                     // draw all but player - that goes on top
-                    physicsEntities.forEach(entity -> {
+                    for (int i = 0; i < entities.physics.size; i++) {
+                        PhysicsComponent entity = entities.physics.get(i);
                         if (entity != player) {
-                            entity.render(batch);
+                            entity.render(batch, Time.tick_alpha);
                         }
-                    });
+                    }
                     particles.draw(batch, Particles.Layer.middle);
                     if (boss != null) {
                         boss.render(batch);
                     }
-                    player.render(batch);
+                    projectiles.draw(batch, Time.tick_alpha);
+                    player.render(batch, Time.tick_alpha);
                     level.renderObjects(batch);
                     particles.draw(batch, Particles.Layer.foreground);
                 }
@@ -346,16 +356,16 @@ public class GameScreen extends BaseScreen {
                         player.renderDebug(batch);
                     }
                     if (DebugFlags.renderEnemyDebug) {
-                        enemies.forEach(enemy -> enemy.renderDebug(batch));
+                        entities.enemies.forEach(enemy -> enemy.renderDebug(batch));
                         if (boss != null) {
                             boss.renderDebug(batch);
                         }
                     }
                     if (DebugFlags.renderPickupDebug) {
-                        pickups.forEach(pickup -> pickup.renderDebug(batch));
+                        entities.pickups.forEach(pickup -> pickup.renderDebug(batch));
                     }
                     if (DebugFlags.renderInteractDebug) {
-                        interactables.forEach(interactable -> interactable.renderDebug(batch));
+                        entities.interactables.forEach(interactable -> interactable.renderDebug(batch));
                     }
                     if (DebugFlags.renderPhysicsDebug) {
                         physicsSystem.renderDebug(batch);
@@ -365,12 +375,23 @@ public class GameScreen extends BaseScreen {
             }
         }
 
+        if (interpolateCamera) {
+            worldCamera.position.x = cameraCurrent.x;
+            worldCamera.position.y = cameraCurrent.y;
+            worldCamera.update();
+        }
+
         // draw window space stuff
         batch.setProjectionMatrix(windowCamera.combined);
         batch.begin();
         {
             if (DebugFlags.renderFpsDebug) {
                 game.assets.pixelFont16.draw(batch, " fps: " + Gdx.graphics.getFramesPerSecond(), 10f, windowCamera.viewportHeight - 10f);
+                game.assets.pixelFont16.draw(batch, " engine: " + physicsSystem.engine + " sweeps: " + physicsSystem.sweepIterations
+                        + " pixel steps: " + physicsSystem.pixelMover.steps + " contact cache: " + MathUtils.round(physicsSystem.getCacheHitRate() * 100) + "%"
+                        + " warm: " + physicsSystem.warmStarts, 10f, windowCamera.viewportHeight - 30f);
+                game.assets.pixelFont16.draw(batch, " bodies awake: " + physicsSystem.awakeBodies + " asleep: " + physicsSystem.sleepingBodies
+                        + " particles asleep: " + physicsSystem.sleepingParticles + " projectiles: " + projectiles.size, 10f, windowCamera.viewportHeight - 50f);
             }
             // draw overlay ui stuff
             if (player.isOffScreen){
@@ -410,7 +431,7 @@ public class GameScreen extends BaseScreen {
             case Input.Keys.S:
             case Input.Keys.DOWN:
                 if (captureHandler != null) {
-                    captureHandler.beginCapture(enemies);
+                    captureHandler.beginCapture();
                 }
                 downPressed = true;
                 break;
@@ -475,7 +496,7 @@ public class GameScreen extends BaseScreen {
 //        }
 //        if (buttonCode == Xbox.B) {
 //            if (captureHandler != null) {
-//                captureHandler.beginCapture(enemies);
+//                captureHandler.beginCapture();
 //            }
 //            downPressed = true;
 //        }
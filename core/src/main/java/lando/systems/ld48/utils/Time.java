@@ -10,6 +10,9 @@ public class Time {
     public static long previous_elapsed = 0;
     public static float delta = 0;
     public static float pause_timer = 0;
+    public static float tick_accumulator = 0;
+    // how far between the previous and current tick the frame being rendered is, 0..1
+    public static float tick_alpha = 1;
 
     public static void init() {
         start_millis = TimeUtils.millis();
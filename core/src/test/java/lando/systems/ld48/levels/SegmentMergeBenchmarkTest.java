@@ -0,0 +1,187 @@
+package lando.systems.ld48.levels;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.loaders.resolvers.AbsoluteFileHandleResolver;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import lando.systems.ld48.physics.Segment2D;
+import lando.systems.ld48.physics.SegmentStore;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loads every level's map, outlines its collision layer the way Level does, then merges the outline with the old
+ * pairwise loop and with {@link SegmentStore#mergeRuns} and logs how long each took.
+ * Both have to end up with the same segments, the order they come out in doesn't matter.
+ *
+ * Textures get created against a stub GL that hands out handles and ignores everything else, the ramp
+ * classification only reads the tileset pixmaps back from their files.
+ */
+public class SegmentMergeBenchmarkTest {
+
+    private static final int ROUNDS = 20;
+
+    private static GL20 savedGL;
+    private static int nextHandle;
+
+    @BeforeClass
+    public static void startHeadless() {
+        if (Gdx.app == null) {
+            new HeadlessApplication(new ApplicationAdapter() {});
+        }
+        savedGL = Gdx.gl20;
+        Gdx.gl = Gdx.gl20 = stubGL();
+    }
+
+    @AfterClass
+    public static void stopHeadless() {
+        Gdx.gl = Gdx.gl20 = savedGL;
+    }
+
+    @Test
+    public void mergeRunsMatchesThePairwiseMergeOnEveryLevel() {
+        File assets = assetsDir();
+        TmxMapLoader loader = new TmxMapLoader(new AbsoluteFileHandleResolver());
+        int levels = 0;
+        for (LevelDescriptor descriptor : LevelDescriptor.values()) {
+            if (descriptor.mapFileName.isEmpty()) continue;
+
+            TiledMap map = loader.load(new File(assets, descriptor.mapFileName).getAbsolutePath());
+            Array<Segment2D> outline = collisionGrid(map, descriptor).outline(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+            long pairwiseNanos = Long.MAX_VALUE;
+            long runsNanos = Long.MAX_VALUE;
+            Array<Segment2D> pairwise = null;
+            Array<Segment2D> runs = null;
+            for (int round = 0; round < ROUNDS; round++) {
+                pairwise = copy(outline);
+                long start = TimeUtils.nanoTime();
+                consolidateSegments(pairwise);
+                pairwiseNanos = Math.min(pairwiseNanos, TimeUtils.timeSinceNanos(start));
+
+                runs = copy(outline);
+                start = TimeUtils.nanoTime();
+                SegmentStore.mergeRuns(runs);
+                runsNanos = Math.min(runsNanos, TimeUtils.timeSinceNanos(start));
+            }
+
+            Gdx.app.log("Benchmark", descriptor + ": " + outline.size + " edges -> " + runs.size + " segments"
+                    + ", pairwise " + pairwiseNanos / 1000 + "us, mergeRuns " + runsNanos / 1000 + "us");
+            assertTrue(descriptor + " has collision", runs.size > 0);
+            assertEquals(descriptor.toString(), endpoints(pairwise), endpoints(runs));
+
+            map.dispose();
+            levels++;
+        }
+        assertTrue(levels > 0);
+    }
+
+    /**
+     * The merge Level ran on its collision segments before mergeRuns, kept as the reference mergeRuns has to match
+     */
+    private static void consolidateSegments(Array<Segment2D> collisionSegments) {
+        boolean fixed = true;
+        while (fixed){
+            fixed = false;
+            for (int i = 0; i < collisionSegments.size; i++) {
+                Segment2D seg = collisionSegments.get(i);
+                for (int j = collisionSegments.size - 1; j > i; j--) {
+                    Segment2D next = collisionSegments.get(j);
+                    if (seg.getRotation() != next.getRotation()) continue;
+                    if (seg.end.epsilonEquals(next.start)) {
+                        seg.setEnd(next.end);
+                        collisionSegments.removeIndex(j);
+                        fixed = true;
+                    } else if (seg.start.epsilonEquals(next.end)){
+                        seg.setStart(next.start);
+                        collisionSegments.removeIndex(j);
+                        fixed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    // same cells and ramps Level.buildCollisionGrid sets when there's no sidecar
+    private static CollisionBuilder collisionGrid(TiledMap map, LevelDescriptor descriptor) {
+        TiledMapTileLayer collisionLayer = null;
+        for (MapLayer layer : map.getLayers()) {
+            if (layer.getName().equalsIgnoreCase("collision")) collisionLayer = (TiledMapTileLayer) layer;
+        }
+        assertNotNull(descriptor + " has a collision layer", collisionLayer);
+
+        CollisionBuilder builder = new CollisionBuilder(collisionLayer.getWidth(), collisionLayer.getHeight(), collisionLayer.getTileWidth());
+        TileRampCache rampCache = new TileRampCache(map);
+        for (int x = 0; x < collisionLayer.getWidth(); x++) {
+            for (int y = 0; y < collisionLayer.getHeight(); y++) {
+                TiledMapTileLayer.Cell cell = collisionLayer.getCell(x, y);
+                if (cell == null) continue;
+                builder.setCell(x, y, rampCache.get(cell.getTile()));
+            }
+        }
+        rampCache.releasePixmaps();
+        return builder;
+    }
+
+    private static Array<Segment2D> copy(Array<Segment2D> segments) {
+        Array<Segment2D> copy = new Array<>(segments.size);
+        for (Segment2D segment : segments) {
+            copy.add(new Segment2D(segment.start, segment.end));
+        }
+        return copy;
+    }
+
+    private static List<String> endpoints(Array<Segment2D> segments) {
+        List<String> endpoints = new ArrayList<>(segments.size);
+        for (Segment2D segment : segments) {
+            endpoints.add(Math.round(segment.start.x) + "," + Math.round(segment.start.y)
+                  + " -> " + Math.round(segment.end.x) + "," + Math.round(segment.end.y));
+        }
+        Collections.sort(endpoints);
+        return endpoints;
+    }
+
+    // the tests run from core/ under gradle, from the project root otherwise
+    private static File assetsDir() {
+        File assets = new File("../assets");
+        if (!assets.isDirectory()) {
+            assets = new File("assets");
+        }
+        assertTrue("can't find the assets folder from " + new File("").getAbsolutePath(), assets.isDirectory());
+        return assets;
+    }
+
+    /**
+     * Just enough of GL20 for textures to set themselves up, every call does nothing
+     */
+    private static GL20 stubGL() {
+        return (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[] { GL20.class }, (proxy, method, args) -> {
+            if (method.getName().equals("glGenTexture")) return ++nextHandle;
+            Class<?> type = method.getReturnType();
+            if (type == String.class) return "";
+            if (type == boolean.class) return false;
+            if (type == int.class) return 0;
+            if (type == float.class) return 0f;
+            return null;
+        });
+    }
+
+}
@@ -0,0 +1,237 @@
+package lando.systems.ld48.levels;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.mock.graphics.MockGraphics;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import lando.systems.ld48.Config;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pans a camera back and forth over a streaming sized map, the way a long run through a big level would, with the
+ * tile renderer and the level streamer sized like Level sizes them for streaming maps.
+ *
+ * There's no GL context here, GL calls go to a stub that answers shader and buffer setup and counts the indices
+ * each frame draws. Every frame has to draw at least every tile in the chunks the view covers, so a page getting
+ * evicted out from under chunks that are about to be drawn shows up as missing tiles.
+ */
+public class StreamingSoakTest {
+
+    private static final int MAP_WIDTH = 2000;
+    private static final int MAP_HEIGHT = 200;
+    private static final int TILE_SIZE = 32;
+    private static final int PASSES = 3;
+    private static final float STEP = 48f;
+
+    private static GL20 savedGL;
+    private static Graphics savedGraphics;
+    private static MockGraphics graphics;
+    private static long drawnIndices;
+    private static int nextHandle;
+
+    @BeforeClass
+    public static void startHeadless() {
+        if (Gdx.app == null) {
+            new HeadlessApplication(new ApplicationAdapter() {});
+        }
+        savedGL = Gdx.gl20;
+        savedGraphics = Gdx.graphics;
+        // our own frame counter, the headless app's loop advances the one it made on its own thread
+        graphics = new MockGraphics();
+        Gdx.graphics = graphics;
+        Gdx.gl = Gdx.gl20 = stubGL();
+    }
+
+    @AfterClass
+    public static void stopHeadless() {
+        Gdx.gl = Gdx.gl20 = savedGL;
+        Gdx.graphics = savedGraphics;
+    }
+
+    @Test
+    public void panningAStreamingMapStaysWithinThePageBudget() {
+        Random random = new Random(48);
+        Texture texture = new Texture(new Pixmap(TILE_SIZE * 2, TILE_SIZE * 2, Pixmap.Format.RGBA8888));
+        StaticTiledMapTile[] tiles = new StaticTiledMapTile[4];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new StaticTiledMapTile(new TextureRegion(texture, (i % 2) * TILE_SIZE, (i / 2) * TILE_SIZE, TILE_SIZE, TILE_SIZE));
+        }
+
+        TiledMap map = new TiledMap();
+        TiledMapTileLayer background = new TiledMapTileLayer(MAP_WIDTH, MAP_HEIGHT, TILE_SIZE, TILE_SIZE);
+        TiledMapTileLayer collision = new TiledMapTileLayer(MAP_WIDTH, MAP_HEIGHT, TILE_SIZE, TILE_SIZE);
+        CollisionBuilder grid = new CollisionBuilder(MAP_WIDTH, MAP_HEIGHT, TILE_SIZE);
+        for (int x = 0; x < MAP_WIDTH; x++) {
+            int ground = 20 + (int) (15 * MathUtils.sin(x * 0.05f));
+            for (int y = 0; y < MAP_HEIGHT; y++) {
+                if (random.nextFloat() < 0.7f) {
+                    background.setCell(x, y, cell(tiles[random.nextInt(tiles.length)]));
+                }
+                if (y < ground || random.nextFloat() < 0.05f) {
+                    collision.setCell(x, y, cell(tiles[0]));
+                    grid.setCell(x, y, (byte) 0);
+                }
+            }
+        }
+        map.getLayers().add(background);
+        map.getLayers().add(collision);
+
+        int regionCells = Config.streamingRegionSize * Config.streamingRegionSize;
+        ChunkedTileMapRenderer renderer = new ChunkedTileMapRenderer(map, Config.streamingRegionBudget * regionCells);
+        assertTrue(renderer.getPageSize() <= ChunkedTileMapRenderer.MAX_PAGE_SIZE);
+        assertTrue("a streaming map this size needs more than one page", renderer.getMaxPages() > 1);
+
+        int[] live = new int[1];
+        LevelStreamer streamer = new LevelStreamer(grid, Config.streamingRegionSize, Config.streamingRegionBudget, new LevelStreamer.Listener() {
+            @Override
+            public void regionLoaded(LevelStreamer.Region region) {
+                live[0] += region.segments.size;
+            }
+
+            @Override
+            public void regionEvicted(LevelStreamer.Region region) {
+                live[0] -= region.segments.size;
+            }
+        });
+
+        OrthographicCamera camera = new OrthographicCamera(Config.windowWidth, Config.windowHeight);
+        Rectangle view = new Rectangle();
+        float[] zooms = { 1f, 2f, 0.5f };
+        float mapWidth = MAP_WIDTH * TILE_SIZE;
+        float mapHeight = MAP_HEIGHT * TILE_SIZE;
+        int frames = 0;
+        int peakResident = 0;
+        int peakPages = 0;
+        for (int pass = 0; pass < PASSES; pass++) {
+            camera.zoom = zooms[pass];
+            for (float t = 0; t <= mapWidth; t += STEP) {
+                float x = (pass % 2 == 0) ? t : mapWidth - t;
+                float y = mapHeight / 2f + (mapHeight / 2f) * MathUtils.sin(t * 0.0005f);
+                camera.position.set(x, y, 0);
+                camera.update();
+
+                if (frames % 25 == 0) {
+                    paint(background, renderer, 0, tiles[1], camera, random);
+                }
+
+                float width = camera.viewportWidth * camera.zoom;
+                float height = camera.viewportHeight * camera.zoom;
+                view.set(x - width / 2f, y - height / 2f, width, height);
+                streamer.update(view, x, y);
+                peakResident = Math.max(peakResident, streamer.getResident().size);
+                assertTrue(streamer.getResident().size <= streamer.getBudget());
+                assertTrue(streamer.isResident(x, y));
+
+                graphics.incrementFrameId();
+                for (int layer = 0; layer < 2; layer++) {
+                    drawnIndices = 0;
+                    renderer.setView(camera);
+                    renderer.render(layer);
+                    long expected = 6L * tilesInView((TiledMapTileLayer) map.getLayers().get(layer), view);
+                    assertTrue("frame " + frames + " layer " + layer + " drew " + drawnIndices / 6 + " of " + expected / 6 + " tiles",
+                               drawnIndices >= expected);
+                }
+                peakPages = Math.max(peakPages, renderer.getPageCount());
+                assertTrue(renderer.getPageCount() <= renderer.getMaxPages());
+                frames++;
+            }
+        }
+
+        assertEquals("every page the budget allows got used", renderer.getMaxPages(), peakPages);
+        assertTrue(peakResident <= Config.streamingRegionBudget);
+        assertTrue(live[0] >= 0);
+
+        renderer.dispose();
+        texture.dispose();
+    }
+
+    private static TiledMapTileLayer.Cell cell(StaticTiledMapTile tile) {
+        return new TiledMapTileLayer.Cell().setTile(tile);
+    }
+
+    // fill a random 4x4 block in view, the chunks it lands in grow past what they were baked with
+    private static void paint(TiledMapTileLayer layer, ChunkedTileMapRenderer renderer, int layerIndex, StaticTiledMapTile tile,
+                              OrthographicCamera camera, Random random) {
+        int col0 = MathUtils.clamp((int) (camera.position.x / TILE_SIZE) + random.nextInt(9) - 4, 0, MAP_WIDTH - 4);
+        int row0 = MathUtils.clamp((int) (camera.position.y / TILE_SIZE) + random.nextInt(9) - 4, 0, MAP_HEIGHT - 4);
+        for (int col = col0; col < col0 + 4; col++) {
+            for (int row = row0; row < row0 + 4; row++) {
+                layer.setCell(col, row, cell(tile));
+                renderer.invalidate(layerIndex, col, row);
+            }
+        }
+    }
+
+    // tiles in the chunks the renderer draws for this view, see ChunkedTileMapRenderer.render
+    private static int tilesInView(TiledMapTileLayer layer, Rectangle view) {
+        int size = ChunkedTileMapRenderer.CHUNK_SIZE;
+        float chunkSize = size * TILE_SIZE;
+        int chunkCols = MathUtils.ceil(MAP_WIDTH / (float) size);
+        int chunkRows = MathUtils.ceil(MAP_HEIGHT / (float) size);
+        float left = view.x - TILE_SIZE;
+        float bottom = view.y - TILE_SIZE;
+        int cx0 = Math.max(0, MathUtils.floor(left / chunkSize));
+        int cy0 = Math.max(0, MathUtils.floor(bottom / chunkSize));
+        int cx1 = Math.min(chunkCols - 1, MathUtils.floor((left + view.width + 2 * TILE_SIZE) / chunkSize));
+        int cy1 = Math.min(chunkRows - 1, MathUtils.floor((bottom + view.height + 2 * TILE_SIZE) / chunkSize));
+
+        int count = 0;
+        for (int row = cy0 * size; row < Math.min(MAP_HEIGHT, (cy1 + 1) * size); row++) {
+            for (int col = cx0 * size; col < Math.min(MAP_WIDTH, (cx1 + 1) * size); col++) {
+                if (layer.getCell(col, row) != null) count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Enough of GL20 for textures, shaders and meshes to set themselves up and draw, everything else does nothing
+     */
+    private static GL20 stubGL() {
+        return (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[] { GL20.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "glGenTexture":
+                case "glGenBuffer":
+                case "glCreateShader":
+                case "glCreateProgram":
+                    return ++nextHandle;
+                case "glGetShaderiv":
+                case "glGetProgramiv":
+                    int pname = (Integer) args[1];
+                    boolean ok = pname == GL20.GL_COMPILE_STATUS || pname == GL20.GL_LINK_STATUS;
+                    ((IntBuffer) args[2]).put(0, ok ? 1 : 0);
+                    return null;
+                case "glDrawElements":
+                    drawnIndices += (Integer) args[1];
+                    return null;
+            }
+            Class<?> type = method.getReturnType();
+            if (type == String.class) return "";
+            if (type == boolean.class) return false;
+            if (type == int.class) return 0;
+            if (type == float.class) return 0f;
+            return null;
+        });
+    }
+
+}
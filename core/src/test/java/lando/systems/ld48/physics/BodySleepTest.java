@@ -0,0 +1,195 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Shape2D;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sleep and wake transitions for bodies: asleep after enough grounded ticks, awake again on an impulse or when an
+ * awake body touches them, and a bump only travels one body further each tick.
+ */
+public class BodySleepTest {
+
+    private BodySleep bodySleep;
+    private Array<PhysicsComponent> bodies;
+    private BodySleep.Neighbours neighbours;
+
+    @Before
+    public void setUp() {
+        PhysicsSystem.sleeping = true;
+        bodySleep = new BodySleep();
+        bodies = new Array<>();
+        // every body, the index the game uses only narrows down who gets tested
+        neighbours = (area, out) -> {
+            out.clear();
+            for (PhysicsComponent body : bodies) {
+                if (area.overlaps((Rectangle) body.getCollisionBounds())) out.add(body);
+            }
+        };
+    }
+
+    @After
+    public void resetSwitches() {
+        PhysicsSystem.sleeping = true;
+    }
+
+    @Test
+    public void groundedBodyFallsAsleepAfterEnoughTicks() {
+        Body body = body(0, 0);
+        for (int i = 0; i < PhysicsSystem.SLEEP_TICKS - 1; i++) {
+            bodySleep.settle(body);
+            assertFalse("tick " + i, body.sleep.asleep);
+        }
+        bodySleep.settle(body);
+        assertTrue(body.sleep.asleep);
+        assertTrue(bodySleep.isSleeping(body));
+    }
+
+    @Test
+    public void movingOrAirborneBodiesStayAwake() {
+        Body airborne = body(0, 0);
+        airborne.grounded = false;
+        Body moving = body(100, 0);
+        moving.velocity.set(PhysicsSystem.SLEEP_VELOCITY * 2, 0);
+        for (int i = 0; i < PhysicsSystem.SLEEP_TICKS * 2; i++) {
+            bodySleep.settle(airborne);
+            bodySleep.settle(moving);
+        }
+        assertFalse(airborne.sleep.asleep);
+        assertFalse(moving.sleep.asleep);
+
+        // starting to move again counts from zero
+        Body resting = body(200, 0);
+        for (int i = 0; i < PhysicsSystem.SLEEP_TICKS - 1; i++) {
+            bodySleep.settle(resting);
+        }
+        resting.velocity.set(0, PhysicsSystem.SLEEP_VELOCITY * 2);
+        bodySleep.settle(resting);
+        resting.velocity.setZero();
+        bodySleep.settle(resting);
+        assertFalse(resting.sleep.asleep);
+    }
+
+    @Test
+    public void impulseWakesASleepingBody() {
+        Body body = asleep(0, 0);
+        assertTrue(bodySleep.isSleeping(body));
+        body.impulse.set(0, 200, 0.1f);
+        assertFalse(bodySleep.isSleeping(body));
+        assertFalse(body.sleep.asleep);
+        assertEquals(0, body.sleep.restTicks);
+    }
+
+    @Test
+    public void beingMovedWakesASleepingBody() {
+        Body body = asleep(0, 0);
+        body.position.x += 1;
+        assertFalse(bodySleep.isSleeping(body));
+    }
+
+    @Test
+    public void touchingAnAwakeBodyWakesASleepingOne() {
+        Body sleeper = asleep(0, 0);
+        Body farAway = asleep(500, 0);
+        Body awake = body(10, 0);
+
+        bodySleep.wakeTouched(bodies, neighbours);
+        assertFalse(sleeper.sleep.asleep);
+        assertTrue(farAway.sleep.asleep);
+        assertFalse(awake.sleep.asleep);
+        assertEquals(1, bodySleep.sleepingBodies);
+        assertEquals(2, bodySleep.awakeBodies);
+    }
+
+    @Test
+    public void sleepingBodiesDontWakeEachOther() {
+        asleep(0, 0);
+        asleep(10, 0);
+        bodySleep.wakeTouched(bodies, neighbours);
+        assertEquals(2, bodySleep.sleepingBodies);
+        assertEquals(0, bodySleep.awakeBodies);
+    }
+
+    @Test
+    public void bumpTravelsOneBodyPerTick() {
+        // a row of touching sleepers with an awake body at one end
+        Body[] row = new Body[5];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = asleep(i * 20, 0);
+        }
+        body(-20, 0);
+        for (int tick = 0; tick < row.length; tick++) {
+            bodySleep.wakeTouched(bodies, neighbours);
+            for (int i = 0; i < row.length; i++) {
+                assertEquals("tick " + tick + " body " + i, i > tick, row[i].sleep.asleep);
+            }
+        }
+    }
+
+    @Test
+    public void turningSleepOffWakesEverything() {
+        Body body = asleep(0, 0);
+        PhysicsSystem.sleeping = false;
+        assertFalse(bodySleep.isSleeping(body));
+        bodySleep.settle(body);
+        assertFalse(body.sleep.asleep);
+    }
+
+    private Body body(float x, float y) {
+        Body body = new Body(x, y);
+        bodies.add(body);
+        return body;
+    }
+
+    private Body asleep(float x, float y) {
+        Body body = body(x, y);
+        for (int i = 0; i < PhysicsSystem.SLEEP_TICKS; i++) {
+            bodySleep.settle(body);
+        }
+        assertTrue(body.sleep.asleep);
+        return body;
+    }
+
+    // a 24px square resting on the ground, centered on its position
+    private static class Body implements PhysicsComponent {
+        final Vector2 position = new Vector2();
+        final Vector2 velocity = new Vector2();
+        final Vector2 acceleration = new Vector2();
+        final Vector3 impulse = new Vector3();
+        final Rectangle bounds = new Rectangle(0, 0, 24, 24);
+        final SleepState sleep = new SleepState();
+        final ContactCache contactCache = new ContactCache();
+        final Vector2 moveRemainder = new Vector2();
+        boolean grounded = true;
+
+        Body(float x, float y) {
+            position.set(x, y);
+        }
+
+        @Override public Vector2 getPosition() { return position; }
+        @Override public Vector2 getVelocity() { return velocity; }
+        @Override public Vector2 getAcceleration() { return acceleration; }
+        @Override public Shape2D getCollisionBounds() { return bounds.setCenter(position); }
+        @Override public Vector3 getImpulse() { return impulse; }
+        @Override public float getBounceScale() { return 0; }
+        @Override public float getGravityModifier() { return 1; }
+        @Override public boolean isGrounded() { return grounded; }
+        @Override public void setGrounded(boolean grounded) { this.grounded = grounded; }
+        @Override public void onCollision() {}
+        @Override public ContactCache getContactCache() { return contactCache; }
+        @Override public SleepState getSleepState() { return sleep; }
+        @Override public Vector2 getMoveRemainder() { return moveRemainder; }
+        @Override public void update(float dt) {}
+        @Override public void render(SpriteBatch batch) {}
+        @Override public void render(SpriteBatch batch, float alpha) {}
+    }
+
+}
@@ -0,0 +1,180 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Contacts found through the segment grid (and the per entity contact cache on top of it) have to be the same list,
+ * in the same order, as contacts found by testing every segment in the level. The one contact the sweep loop
+ * resolves has to be the same however it's found.
+ */
+public class BroadphaseParityTest {
+
+    private static final int WIDTH = 80;
+    private static final int HEIGHT = 50;
+    private static final float DT = 1 / 60f;
+
+    private SegmentStore store;
+    private SegmentGrid grid;
+    private ContactFinder contacts;
+    private final Rectangle bounds = new Rectangle();
+    private final Rectangle sweepBounds = new Rectangle();
+    private final Vector2 move = new Vector2();
+    private final Array<Segment2D> candidates = new Array<>();
+
+    @BeforeClass
+    public static void startHeadless() {
+        TestLevels.startHeadless();
+    }
+
+    @Before
+    public void buildLevel() {
+        PhysicsSystem.validateBroadphase = true;
+        store = new SegmentStore(TestLevels.TILE_SIZE);
+        grid = TestLevels.index(TestLevels.randomGrid(new Random(1), WIDTH, HEIGHT, 0.3f).build(), store, WIDTH, HEIGHT);
+        contacts = new ContactFinder(store);
+    }
+
+    @After
+    public void resetSwitches() {
+        PhysicsSystem.validateBroadphase = false;
+    }
+
+    @Test
+    public void gridQueriesGiveTheSameContactsAsEverySegment() {
+        Random random = new Random(2);
+        for (int i = 0; i < 20000; i++) {
+            randomSweep(random);
+            grid.query(sweepBounds, candidates);
+            assertTrue("sweep " + i + " " + bounds + " moving " + move,
+                       contacts.validateCandidates(bounds, move, store.getSegments(), candidates));
+        }
+        assertEquals(0, contacts.broadphaseMismatches);
+    }
+
+    @Test
+    public void cachedCandidatesGiveTheSameContactsAsEverySegment() {
+        Random random = new Random(3);
+        ContactCache cache = new ContactCache();
+        int reused = 0;
+        for (int i = 0; i < 20000; i++) {
+            // small steps from the last sweep so the cache gets reused, with the odd jump to force a refresh
+            if (i % 50 == 0) {
+                randomSweep(random);
+            } else {
+                bounds.x += random.nextFloat() * 6f - 3f;
+                bounds.y += random.nextFloat() * 6f - 3f;
+                move.set(random.nextFloat() * 400f - 200f, random.nextFloat() * 800f - 400f).scl(DT);
+                sweepBounds(bounds, move);
+            }
+            if (cache.covers(sweepBounds, grid)) {
+                reused++;
+            } else {
+                cache.refresh(sweepBounds, grid);
+            }
+            assertTrue("sweep " + i + " " + bounds + " moving " + move,
+                       contacts.validateCandidates(bounds, move, store.getSegments(), cache.candidates));
+        }
+        assertTrue(reused > 0);
+        assertEquals(0, contacts.broadphaseMismatches);
+    }
+
+    @Test
+    public void firstContactMatchesSortingEveryContact() {
+        // what the sweep loop used to do: every contact, sorted, first one the move doesn't run away from
+        Random random = new Random(5);
+        ContactCache cache = new ContactCache();
+        Array<Collision> all = new Array<>();
+        Collision first = new Collision();
+        int hits = 0;
+        int warm = 0;
+        for (int i = 0; i < 20000; i++) {
+            if (i % 50 == 0) {
+                randomSweep(random);
+            } else {
+                bounds.x += random.nextFloat() * 6f - 3f;
+                bounds.y += random.nextFloat() * 6f - 3f;
+                move.set(random.nextFloat() * 400f - 200f, random.nextFloat() * 800f - 400f).scl(DT);
+                sweepBounds(bounds, move);
+            }
+            if (!cache.covers(sweepBounds, grid)) {
+                cache.refresh(sweepBounds, grid);
+            }
+
+            contacts.findCollisions(bounds, move, store.getSegments(), all);
+            all.sort();
+            Collision expected = null;
+            for (Collision c : all) {
+                if (c.segment.normal.dot(move) > 0) continue;
+                expected = c;
+                break;
+            }
+
+            boolean found = contacts.firstContact(bounds, move, cache.candidates, cache.active, first);
+            String message = "sweep " + i + " " + bounds + " moving " + move;
+            assertEquals(message, expected != null, found);
+            if (found) {
+                assertSame(message, expected.segment, first.segment);
+                assertEquals(message, expected.distance.depth, first.distance.depth, 0f);
+                assertEquals(message, expected.t, first.t, 0f);
+                hits++;
+                if (cache.active.contains(first.segment, true)) warm++;
+                cache.touch(first.segment);
+            }
+            cache.endTick();
+            contacts.free(all);
+        }
+        assertTrue(hits > 1000);
+        assertTrue("last tick's contacts get tried first", warm > 0);
+    }
+
+    @Test
+    public void mismatchesAreCounted() {
+        // leaving a real candidate out has to be caught, quietly, every one of them would be logged
+        Gdx.app.setLogLevel(Application.LOG_NONE);
+        Random random = new Random(4);
+        int caught = 0;
+        for (int i = 0; i < 2000; i++) {
+            randomSweep(random);
+            grid.query(sweepBounds, candidates);
+            if (candidates.size == 0) continue;
+            candidates.removeIndex(random.nextInt(candidates.size));
+            if (!contacts.validateCandidates(bounds, move, store.getSegments(), candidates)) {
+                caught++;
+            }
+        }
+        Gdx.app.setLogLevel(Application.LOG_INFO);
+        assertTrue(caught > 0);
+        assertEquals(caught, contacts.broadphaseMismatches);
+    }
+
+    private void randomSweep(Random random) {
+        bounds.set(random.nextFloat() * (WIDTH - 2) * TestLevels.TILE_SIZE,
+                   random.nextFloat() * (HEIGHT - 2) * TestLevels.TILE_SIZE,
+                   16f + random.nextFloat() * 32f,
+                   16f + random.nextFloat() * 48f);
+        move.set(random.nextFloat() * 800f - 400f, random.nextFloat() * 1600f - 800f).scl(DT);
+        sweepBounds(bounds, move);
+    }
+
+    // the same area PhysicsSystem asks the broadphase about
+    private void sweepBounds(Rectangle bounds, Vector2 move) {
+        float minX = Math.min(bounds.x, bounds.x + move.x);
+        float minY = Math.min(bounds.y, bounds.y + move.y);
+        float maxX = Math.max(bounds.x + bounds.width, bounds.x + bounds.width + move.x);
+        float maxY = Math.max(bounds.y + bounds.height, bounds.y + bounds.height + move.y);
+        sweepBounds.set(minX, minY, maxX - minX, maxY - minY);
+    }
+
+}
@@ -0,0 +1,171 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Thousands of collision rectangles switched on and off the way Level and PhysicsSystem do it at runtime: segments
+ * added to and cut out of the store, then patched into the grid in a batch. The grid has to keep handing back
+ * exactly the stored segments, and contacts through it have to match contacts against every segment.
+ */
+public class CollisionToggleStressTest {
+
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 100;
+    private static final float T = TestLevels.TILE_SIZE;
+
+    private SegmentStore store;
+    private SegmentGrid grid;
+    private ContactFinder contacts;
+    private int nextOrder;
+    private final Array<Segment2D> added = new Array<>();
+    private final Array<Segment2D> removed = new Array<>();
+    private final Array<Rectangle> rectangles = new Array<>();
+
+    private final Rectangle bounds = new Rectangle();
+    private final Rectangle sweepBounds = new Rectangle();
+    private final Rectangle previousBounds = new Rectangle();
+    private final Vector2 move = new Vector2();
+    private final Array<Segment2D> candidates = new Array<>();
+
+    @BeforeClass
+    public static void startHeadless() {
+        TestLevels.startHeadless();
+    }
+
+    @Before
+    public void buildLevel() {
+        PhysicsSystem.validateBroadphase = true;
+        store = new SegmentStore(T);
+        Array<Segment2D> segments = TestLevels.randomGrid(new Random(6), WIDTH, HEIGHT, 0.15f).build();
+        grid = TestLevels.index(segments, store, WIDTH, HEIGHT);
+        nextOrder = segments.size;
+        contacts = new ContactFinder(store);
+    }
+
+    @After
+    public void resetSwitches() {
+        PhysicsSystem.validateBroadphase = false;
+    }
+
+    @Test
+    public void toggledRectanglesKeepTheGridInStep() {
+        Random random = new Random(7);
+        int toggles = 0;
+        for (int batch = 0; batch < 200; batch++) {
+            for (int i = 0; i < 25; i++) {
+                if (rectangles.size > 0 && random.nextBoolean()) {
+                    removeRectangle(rectangles.removeIndex(random.nextInt(rectangles.size)));
+                } else {
+                    addRectangle(random);
+                }
+                toggles++;
+            }
+            applyChanges();
+            moveSomeSegments(random);
+
+            assertGridHoldsTheStore(random);
+            for (int i = 0; i < 50; i++) {
+                randomSweep(random);
+                grid.query(sweepBounds, candidates);
+                assertTrue("batch " + batch + " sweep " + i + " " + bounds + " moving " + move,
+                           contacts.validateCandidates(bounds, move, store.getSegments(), candidates));
+            }
+        }
+        assertEquals(5000, toggles);
+        assertEquals(0, contacts.broadphaseMismatches);
+    }
+
+    // Level.addCollisionRectangle
+    private void addRectangle(Random random) {
+        Rectangle rect = new Rectangle(random.nextInt(WIDTH - 4) * T, random.nextInt(HEIGHT - 4) * T,
+                                       (1 + random.nextInt(4)) * T, (1 + random.nextInt(4)) * T);
+        add(new Segment2D(rect.x, rect.y, rect.x + rect.width, rect.y));
+        add(new Segment2D(rect.x + rect.width, rect.y, rect.x + rect.width, rect.y + rect.height));
+        add(new Segment2D(rect.x + rect.width, rect.y + rect.height, rect.x, rect.y + rect.height));
+        add(new Segment2D(rect.x, rect.y + rect.height, rect.x, rect.y));
+        rectangles.add(rect);
+    }
+
+    private void add(Segment2D segment) {
+        store.add(segment);
+        added.add(segment);
+    }
+
+    // Level.removeCollisionRectangle, each side is cut out of whatever run covers it now
+    private void removeRectangle(Rectangle rect) {
+        store.removePiece(rect.x, rect.y, rect.x + rect.width, rect.y, removed, added);
+        store.removePiece(rect.x + rect.width, rect.y, rect.x + rect.width, rect.y + rect.height, removed, added);
+        store.removePiece(rect.x + rect.width, rect.y + rect.height, rect.x, rect.y + rect.height, removed, added);
+        store.removePiece(rect.x, rect.y + rect.height, rect.x, rect.y, removed, added);
+    }
+
+    // PhysicsSystem.updateSegment, end points nudged in place on segments the grid already has
+    private void moveSomeSegments(Random random) {
+        for (int i = 0; i < 5 && store.size() > 0; i++) {
+            Segment2D segment = store.get(random.nextInt(store.size()));
+            previousBounds.set(segment.collisionRect);
+            segment.setEnd(segment.end.x + random.nextInt(3) * T - T, segment.end.y + random.nextInt(3) * T - T);
+            store.repack(segment);
+            grid.update(segment, previousBounds);
+        }
+    }
+
+    // PhysicsSystem.applySegmentChanges
+    private void applyChanges() {
+        for (int i = 0; i < added.size; i++) {
+            Segment2D segment = added.get(i);
+            segment.order = nextOrder++;
+            grid.insert(segment);
+        }
+        for (int i = 0; i < removed.size; i++) {
+            grid.remove(removed.get(i));
+        }
+        added.clear();
+        removed.clear();
+    }
+
+    private void assertGridHoldsTheStore(Random random) {
+        // the whole level at once, then a few windows against a brute force scan of the store
+        grid.query(-T, -T, (WIDTH + 1) * T, (HEIGHT + 1) * T, candidates);
+        assertEquals(store.size(), candidates.size);
+        for (int i = 0; i < candidates.size; i++) {
+            Segment2D segment = candidates.get(i);
+            assertSame(segment, store.get(segment.storeIndex));
+        }
+        for (int i = 0; i < 20; i++) {
+            float x = random.nextFloat() * WIDTH * T;
+            float y = random.nextFloat() * HEIGHT * T;
+            float size = 32f + random.nextFloat() * 256f;
+            grid.query(x, y, x + size, y + size, candidates);
+            int expected = 0;
+            for (int j = 0; j < store.size(); j++) {
+                Rectangle r = store.get(j).collisionRect;
+                if (r.x <= x + size && r.x + r.width >= x && r.y <= y + size && r.y + r.height >= y) expected++;
+            }
+            // the grid pads queries a little, so it can only return more
+            assertTrue(candidates.size >= expected);
+        }
+    }
+
+    private void randomSweep(Random random) {
+        bounds.set(random.nextFloat() * (WIDTH - 2) * T, random.nextFloat() * (HEIGHT - 2) * T,
+                   16f + random.nextFloat() * 32f, 16f + random.nextFloat() * 48f);
+        move.set(random.nextFloat() * 16f - 8f, random.nextFloat() * 28f - 14f);
+        float minX = Math.min(bounds.x, bounds.x + move.x);
+        float minY = Math.min(bounds.y, bounds.y + move.y);
+        float maxX = Math.max(bounds.x + bounds.width, bounds.x + bounds.width + move.x);
+        float maxY = Math.max(bounds.y + bounds.height, bounds.y + bounds.height + move.y);
+        sweepBounds.set(minX, minY, maxX - minX, maxY - minY);
+    }
+
+}
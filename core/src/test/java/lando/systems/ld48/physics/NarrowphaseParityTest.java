@@ -0,0 +1,148 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * The analytic narrowphase against the polygon solver it replaced, they have to agree on whether a sweep touches a
+ * segment and on the depth and normal of the contact.
+ */
+public class NarrowphaseParityTest {
+
+    // recorded contacts: rect x, y, width, height, move x, y, segment x1, y1, x2, y2
+    private static final float[][] CASES = {
+        // landing on a floor, falling onto it and resting on it
+        { 100f, 33f, 24f, 48f,    0f,  -8f,    64f,  32f, 192f,  32f },
+        { 100f, 32f, 24f, 48f,    0f, -13.3f,  64f,  32f, 192f,  32f },
+        { 100f, 32.01f, 24f, 48f, 4f, -0.2f,   64f,  32f, 192f,  32f },
+        // running into a wall from either side
+        {  40f, 64f, 24f, 48f,    7f,   0f,    64f, 128f,  64f,  32f },
+        {  66f, 64f, 24f, 48f,   -7f,   0f,    64f,  32f,  64f, 128f },
+        // bumping a ceiling on the way up
+        { 100f, 60f, 24f, 48f,    0f,  12f,   192f, 110f,  64f, 110f },
+        // walking up and sliding down 45 degree ramps
+        { 100f, 40f, 24f, 48f,    6f,  -1f,    96f,  32f, 128f,  64f },
+        { 110f, 52f, 24f, 48f,   -5f,  -9f,    96f,  32f, 128f,  64f },
+        { 100f, 40f, 24f, 48f,   -6f,  -1f,   128f,  32f,  96f,  64f },
+        // clipping the corner where a floor meets a wall
+        {  40f, 33f, 24f, 48f,    9f,  -6f,    64f, 128f,  64f,  32f },
+        {  40f, 33f, 24f, 48f,    9f,  -6f,     0f,  32f,  64f,  32f },
+        // moving along a wall without touching it, and clear misses
+        {  30f, 64f, 24f, 48f,    0f,  10f,    64f, 128f,  64f,  32f },
+        { 300f, 300f, 24f, 48f,   5f,  -5f,    64f,  32f, 192f,  32f },
+        { 100f, 90f, 24f, 48f,    0f,  -8f,    64f,  32f, 192f,  32f },
+    };
+
+    private ContactFinder contacts;
+    private final Rectangle rect = new Rectangle();
+    private final Vector2 move = new Vector2();
+    private final Collision analytic = new Collision();
+    private final Collision polygon = new Collision();
+    private boolean analyticHit;
+    private boolean polygonHit;
+
+    @BeforeClass
+    public static void startHeadless() {
+        TestLevels.startHeadless();
+    }
+
+    @Before
+    public void setUp() {
+        contacts = new ContactFinder(new SegmentStore(TestLevels.TILE_SIZE));
+    }
+
+    @After
+    public void resetSwitches() {
+        PhysicsSystem.narrowphase = PhysicsSystem.Narrowphase.analytic;
+        PhysicsSystem.validateNarrowphase = false;
+    }
+
+    @Test
+    public void recordedContactsMatch() {
+        for (int i = 0; i < CASES.length; i++) {
+            float[] c = CASES[i];
+            rect.set(c[0], c[1], c[2], c[3]);
+            move.set(c[4], c[5]);
+            Segment2D segment = new Segment2D(c[6], c[7], c[8], c[9]);
+            boolean match = analyticMatchesPolygon(segment);
+            assertTrue(describe("case " + i, segment), match);
+        }
+    }
+
+    @Test
+    public void sweepsOverARandomLevelMatch() {
+        Random random = new Random(5);
+        // the runtime check runs on every analytic sweep in here too, bow ties included, and mustn't flag any
+        PhysicsSystem.validateNarrowphase = true;
+        Array<Segment2D> segments = TestLevels.randomGrid(random, 60, 40, 0.3f).build();
+        int compared = 0;
+        int hits = 0;
+        for (int i = 0; i < 20000; i++) {
+            Segment2D segment = segments.get(random.nextInt(segments.size));
+            // start somewhere around the segment so most sweeps come close to it
+            rect.set(segment.collisionRect.x - 48f + random.nextFloat() * (segment.collisionRect.width + 64f),
+                     segment.collisionRect.y - 64f + random.nextFloat() * (segment.collisionRect.height + 96f),
+                     16f + random.nextFloat() * 32f,
+                     16f + random.nextFloat() * 48f);
+            move.set(random.nextFloat() * 24f - 12f, random.nextFloat() * 24f - 12f);
+            // the polygon solver's answer is only worth comparing when its swept quad came out convex
+            contacts.sweepPolygon(rect, segment, move, polygon);
+            if (!contacts.polygonConvex) continue;
+            compared++;
+            boolean match = analyticMatchesPolygon(segment);
+            assertTrue(describe("sweep " + i, segment), match);
+            if (analyticHit) hits++;
+        }
+        assertEquals(0, contacts.narrowphaseMismatches);
+        assertTrue(compared > 15000);
+        assertTrue(hits > 5000);
+    }
+
+    @Test
+    public void validationRunsAlongsideTheAnalyticSolver() {
+        PhysicsSystem.narrowphase = PhysicsSystem.Narrowphase.analytic;
+        PhysicsSystem.validateNarrowphase = true;
+        for (float[] c : CASES) {
+            rect.set(c[0], c[1], c[2], c[3]);
+            move.set(c[4], c[5]);
+            contacts.sweep(rect, new Segment2D(c[6], c[7], c[8], c[9]), move, analytic);
+        }
+        assertEquals(0, contacts.narrowphaseMismatches);
+    }
+
+    @Test
+    public void polygonSwitchUsesThePolygonSolver() {
+        PhysicsSystem.narrowphase = PhysicsSystem.Narrowphase.polygon;
+        // the polygon solver fills in the overlap polygon, the analytic one leaves it alone
+        rect.set(100f, 33f, 24f, 48f);
+        move.set(0f, -8f);
+        assertTrue(contacts.sweep(rect, new Segment2D(64f, 32f, 192f, 32f), move, polygon));
+        assertTrue(polygon.polygon.getVertices().length > 0);
+    }
+
+    // both solvers on the current rect and move, true if they agree on whether it hits and how
+    private boolean analyticMatchesPolygon(Segment2D segment) {
+        PhysicsSystem.narrowphase = PhysicsSystem.Narrowphase.analytic;
+        analyticHit = contacts.sweep(rect, segment, move, analytic);
+        polygonHit = contacts.sweepPolygon(rect, segment, move, polygon);
+        if (analyticHit != polygonHit) return false;
+        return !analyticHit || ContactFinder.sameContact(analytic, polygon);
+    }
+
+    // what the last analyticMatchesPolygon compared, for failure messages
+    private String describe(String label, Segment2D segment) {
+        return label + ": " + rect + " moving " + move + " against " + segment.start + " -> " + segment.end
+             + ": analytic " + (analyticHit ? analytic.distance.depth + " " + analytic.distance.normal : "miss")
+             + ", polygon " + (polygonHit ? polygon.distance.depth + " " + polygon.distance.normal : "miss");
+    }
+
+}
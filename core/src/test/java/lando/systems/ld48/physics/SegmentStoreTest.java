@@ -0,0 +1,140 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectSet;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lookups and run merging key on quantized end points, points a long way apart or below zero mustn't get mixed up.
+ */
+public class SegmentStoreTest {
+
+    private static final float T = TestLevels.TILE_SIZE;
+    // a quarter pixel quantum used to wrap at 16 bits, which is every 16384px
+    private static final float WRAP = 16384f;
+
+    @Test
+    public void findTellsApartPointsAWrapApart() {
+        SegmentStore store = new SegmentStore(T);
+        Segment2D near = new Segment2D(0f, 0f, T, 0f);
+        store.add(near);
+
+        assertSame(near, store.find(0f, 0f, T, 0f));
+        assertNull(store.find(WRAP, 0f, WRAP + T, 0f));
+        assertNull(store.find(0f, WRAP, T, WRAP));
+        assertNull(store.findContaining(WRAP, 0f, WRAP + T, 0f));
+
+        Segment2D far = new Segment2D(WRAP, 0f, WRAP + T, 0f);
+        store.add(far);
+        assertSame(near, store.find(0f, 0f, T, 0f));
+        assertSame(far, store.find(WRAP, 0f, WRAP + T, 0f));
+    }
+
+    @Test
+    public void findWorksBelowZero() {
+        SegmentStore store = new SegmentStore(T);
+        Segment2D negative = new Segment2D(-4 * T, -2 * T, -T, -2 * T);
+        store.add(negative);
+
+        assertSame(negative, store.find(-4 * T, -2 * T, -T, -2 * T));
+        assertSame(negative, store.findContaining(-3 * T, -2 * T, -2 * T, -2 * T));
+        assertNull(store.find(WRAP - 4 * T, -2 * T, WRAP - T, -2 * T));
+
+        Array<Segment2D> removed = new Array<>();
+        Array<Segment2D> added = new Array<>();
+        assertTrue(store.removePiece(-3 * T, -2 * T, -2 * T, -2 * T, removed, added));
+        assertEquals(1, removed.size);
+        assertEquals(2, added.size);
+        assertNotNull(store.find(-4 * T, -2 * T, -3 * T, -2 * T));
+        assertNotNull(store.find(-2 * T, -2 * T, -T, -2 * T));
+    }
+
+    @Test
+    public void runsAWrapApartStaySeparate() {
+        Array<Segment2D> segments = new Array<>();
+        segments.add(new Segment2D(0f, 0f, T, 0f));
+        segments.add(new Segment2D(WRAP + T, 0f, WRAP + 2 * T, 0f));
+        SegmentStore.mergeRuns(segments);
+        assertEquals(2, segments.size);
+        assertEquals(T, segments.get(0).end.x, 0f);
+    }
+
+    @Test
+    public void runsJoinAcrossZero() {
+        Array<Segment2D> segments = new Array<>();
+        segments.add(new Segment2D(0f, -T, T, -T));
+        segments.add(new Segment2D(-T, -T, 0f, -T));
+        segments.add(new Segment2D(-2 * T, -T, -T, -T));
+        SegmentStore.mergeRuns(segments);
+        assertEquals(1, segments.size);
+        assertEquals(-2 * T, segments.get(0).start.x, 0f);
+        assertEquals(T, segments.get(0).end.x, 0f);
+    }
+
+    @Test
+    public void mergedRunsCoverExactlyTheTileEdges() {
+        // a level a good deal wider than the old wrap, shifted so a chunk of it sits below zero
+        Random random = new Random(8);
+        int width = 1200, height = 24;
+        float offsetX = -8000f, offsetY = -300f;
+        boolean[] solid = new boolean[width * height];
+        for (int i = 0; i < solid.length; i++) {
+            solid[i] = random.nextFloat() < 0.4f;
+        }
+
+        Array<Segment2D> edges = new Array<>();
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (!solid[x + y * width]) continue;
+                float x0 = offsetX + x * T, y0 = offsetY + y * T;
+                if (!solid(solid, width, height, x + 1, y)) edges.add(new Segment2D(x0 + T, y0, x0 + T, y0 + T));
+                if (!solid(solid, width, height, x - 1, y)) edges.add(new Segment2D(x0, y0 + T, x0, y0));
+                if (!solid(solid, width, height, x, y + 1)) edges.add(new Segment2D(x0 + T, y0 + T, x0, y0 + T));
+                if (!solid(solid, width, height, x, y - 1)) edges.add(new Segment2D(x0, y0, x0 + T, y0));
+            }
+        }
+        ObjectSet<String> unitEdges = new ObjectSet<>();
+        for (Segment2D edge : edges) {
+            unitEdges.add(key(edge.start.x, edge.start.y, edge.end.x, edge.end.y));
+        }
+
+        Array<Segment2D> runs = new Array<>(edges);
+        SegmentStore.mergeRuns(runs);
+        assertTrue(runs.size < edges.size);
+
+        // every slice of every run is one of the original edges, and between them they use every edge once
+        int slices = 0;
+        ObjectSet<String> runStarts = new ObjectSet<>();
+        for (Segment2D run : runs) {
+            int steps = Math.round(run.delta.len() / T);
+            float stepX = run.delta.x / steps, stepY = run.delta.y / steps;
+            for (int i = 0; i < steps; i++) {
+                float ax = run.start.x + stepX * i, ay = run.start.y + stepY * i;
+                assertTrue("run " + run.start + " -> " + run.end + " covers a missing edge at " + ax + ", " + ay,
+                           unitEdges.contains(key(ax, ay, ax + stepX, ay + stepY)));
+                slices++;
+            }
+            runStarts.add(key(run.start.x, run.start.y, Math.signum(run.delta.x), Math.signum(run.delta.y)));
+        }
+        assertEquals(edges.size, slices);
+
+        // and nothing was left unjoined, no run ends where another one going the same way starts
+        for (Segment2D run : runs) {
+            assertFalse("run " + run.start + " -> " + run.end + " wasn't joined to the next one",
+                        runStarts.contains(key(run.end.x, run.end.y, Math.signum(run.delta.x), Math.signum(run.delta.y))));
+        }
+    }
+
+    private static boolean solid(boolean[] solid, int width, int height, int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height && solid[x + y * width];
+    }
+
+    private static String key(float a, float b, float c, float d) {
+        return Math.round(a) + "," + Math.round(b) + "," + Math.round(c) + "," + Math.round(d);
+    }
+
+}
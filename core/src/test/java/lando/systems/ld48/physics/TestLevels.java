@@ -0,0 +1,54 @@
+package lando.systems.ld48.physics;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.utils.Array;
+import lando.systems.ld48.levels.CollisionBuilder;
+
+import java.util.Random;
+
+/**
+ * Shared setup for the physics tests: a headless app so logging works, and random tile levels built the same way
+ * Level builds collision from a map.
+ */
+class TestLevels {
+
+    static final float TILE_SIZE = 32f;
+
+    static void startHeadless() {
+        if (Gdx.app == null) {
+            new HeadlessApplication(new ApplicationAdapter() {});
+        }
+    }
+
+    /**
+     * A width x height tile grid, roughly fill solid, with some of the solid cells cut into ramps
+     */
+    static CollisionBuilder randomGrid(Random random, int width, int height, float fill) {
+        CollisionBuilder builder = new CollisionBuilder(width, height, TILE_SIZE);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (random.nextFloat() >= fill) continue;
+                byte ramp = (random.nextFloat() < 0.1f) ? (byte) (1 + random.nextInt(4)) : 0;
+                builder.setCell(x, y, ramp);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Store and grid the segments the way PhysicsSystem does at load, the list order becomes each segment's order
+     */
+    static SegmentGrid index(Array<Segment2D> segments, SegmentStore store, int width, int height) {
+        SegmentGrid grid = new SegmentGrid(width * TILE_SIZE, height * TILE_SIZE, SegmentGrid.DEFAULT_CELL_SIZE);
+        for (int i = 0; i < segments.size; i++) {
+            Segment2D segment = segments.get(i);
+            segment.order = i;
+            store.add(segment);
+            grid.insert(segment);
+        }
+        return grid;
+    }
+
+}
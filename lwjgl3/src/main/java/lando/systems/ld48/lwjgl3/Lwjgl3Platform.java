@@ -0,0 +1,150 @@
+package lando.systems.ld48.lwjgl3;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import lando.systems.ld48.Platform;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/** Desktop platform hooks, runs parallel work on a small pool of daemon threads. */
+public class Lwjgl3Platform extends Platform {
+
+	private final int parallelism;
+	// the calling thread takes a share of the work too, so there's one fewer of these
+	private final Thread[] threads;
+
+	// state for the runAll in progress, it's only ever called from the game thread so there's one at a time.
+	// every worker takes part in every call and runAll waits for all of them, so none can still be on the last one
+	private volatile int generation;
+	private volatile Task currentTask;
+	private volatile int taskCount;
+	private final AtomicInteger nextIndex = new AtomicInteger();
+	private final AtomicInteger pending = new AtomicInteger();
+	private volatile Thread waiter;
+	private volatile Throwable failure;
+	private volatile boolean disposed;
+
+	public Lwjgl3Platform() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public Lwjgl3Platform(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+		this.threads = new Thread[this.parallelism - 1];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Worker(), "platform-worker-" + (i + 1));
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+	}
+
+	@Override
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	@Override
+	public void runAll(int count, Task task) {
+		if (threads.length == 0 || count <= 1) {
+			super.runAll(count, task);
+			return;
+		}
+
+		// workers are handed the call through these fields and unparked, nothing is queued so a call allocates nothing
+		currentTask = task;
+		taskCount = count;
+		failure = null;
+		waiter = Thread.currentThread();
+		nextIndex.set(0);
+		pending.set(threads.length + 1);
+		generation++;
+		for (Thread thread : threads) {
+			LockSupport.unpark(thread);
+		}
+
+		drain(task, count);
+
+		// the last one to finish unparks this thread, park can also return early so check again each time
+		boolean interrupted = false;
+		while (pending.get() > 0) {
+			LockSupport.park(this);
+			if (Thread.interrupted()) {
+				interrupted = true;
+			}
+		}
+		currentTask = null;
+		waiter = null;
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		Throwable t = failure;
+		if (t != null) {
+			failure = null;
+			throw new GdxRuntimeException("Platform task failed", t);
+		}
+	}
+
+	// claim and run indices until there are none left, then check out of this call
+	private void drain(Task task, int count) {
+		int index;
+		while ((index = nextIndex.getAndIncrement()) < count) {
+			try {
+				task.run(index);
+			} catch (Throwable t) {
+				fail(t);
+			}
+		}
+		if (pending.decrementAndGet() == 0) {
+			LockSupport.unpark(waiter);
+		}
+	}
+
+	@Override
+	public ByteBuffer mapFile(FileHandle file) {
+		// internal files that only exist inside the jar can't be mapped, those get read like everywhere else
+		if (file.type() != Files.FileType.Classpath && file.file().exists()) {
+			try {
+				return file.map();
+			} catch (GdxRuntimeException e) {
+				// fall through to a plain read
+			}
+		}
+		return super.mapFile(file);
+	}
+
+	private synchronized void fail(Throwable t) {
+		if (failure == null) {
+			failure = t;
+		}
+	}
+
+	// parks until runAll bumps the generation, then helps drain that call's indices
+	private final class Worker implements Runnable {
+		@Override
+		public void run() {
+			int seen = 0;
+			while (!disposed) {
+				int current = generation;
+				if (current == seen) {
+					LockSupport.park(this);
+					continue;
+				}
+				seen = current;
+				drain(currentTask, taskCount);
+			}
+		}
+	}
+
+	@Override
+	public void dispose() {
+		disposed = true;
+		for (Thread thread : threads) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+}